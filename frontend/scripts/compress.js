@@ -0,0 +1,57 @@
+// Writes a .br and a .gz copy next to each compressible file of the production
+// build, so that the backend can send the precompressed bytes instead of the
+// original (see spring.web.resources.chain.compressed in application.properties).
+//
+// Usage: node scripts/compress.js [directory]   (default: build)
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const COMPRESSIBLE = /\.(html|js|css|json|map|svg|txt|ico)$/;
+
+// Files this small fit in a packet either way
+const MIN_BYTES = 1024;
+
+function* files(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      yield* files(file);
+    } else if (COMPRESSIBLE.test(entry.name)) {
+      yield file;
+    }
+  }
+}
+
+function compress(file) {
+  const original = fs.readFileSync(file);
+  if (original.length < MIN_BYTES) {
+    return 0;
+  }
+  const variants = {
+    ".br": zlib.brotliCompressSync(original, {
+      params: {
+        [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+        [zlib.constants.BROTLI_PARAM_SIZE_HINT]: original.length,
+      },
+    }),
+    ".gz": zlib.gzipSync(original, { level: zlib.constants.Z_BEST_COMPRESSION }),
+  };
+  let written = 0;
+  for (const [suffix, bytes] of Object.entries(variants)) {
+    // a variant that saves nothing would only cost a lookup
+    if (bytes.length < original.length) {
+      fs.writeFileSync(file + suffix, bytes);
+      written++;
+    }
+  }
+  return written;
+}
+
+const root = process.argv[2] || "build";
+let count = 0;
+for (const file of files(root)) {
+  count += compress(file);
+}
+console.log(`compress: wrote ${count} precompressed files under ${root}`);
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is JMH state that starts the whole application, on a random port, against
+ * an in-memory H2 database (the integration profile), once per fork.
+ *
+ * Only the application's own classes are component scanned: the benchmarks run from
+ * the test classpath, and the test configuration there would otherwise replace beans.
+ *
+ * Logging is turned down to WARN so that SQL and request logging do not end up
+ * in the benchmark output.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+  private ConfigurableApplicationContext context;
+
+  /**
+   * This method starts the application.
+   */
+  @Setup(Level.Trial)
+  public void start() {
+    context = application().run(commandLine());
+  }
+
+  /**
+   * This method shuts the application down.
+   */
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  /**
+   * This method returns a bean from the running application.
+   * @param <T> the type of the bean
+   * @param type the class of the bean
+   * @return the bean
+   */
+  public <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  /**
+   * This method returns the beans of a type from the running application.
+   * @param <T> the type of the beans
+   * @param type the class of the beans
+   * @return the beans, by name
+   */
+  public <T> Map<String, T> getBeansOfType(Class<T> type) {
+    return context.getBeansOfType(type);
+  }
+
+  /**
+   * This method returns a builder for the application, as described above.
+   * @return the builder
+   */
+  static SpringApplicationBuilder application() {
+    return new SpringApplicationBuilder(ExampleApplication.class)
+        .profiles("integration")
+        .initializers(applicationContext -> applicationContext.getBeanFactory()
+            .registerSingleton("excludeTestClasses", new ExcludeTestClasses()));
+  }
+
+  /**
+   * This method returns the command line to start the application with.  Command line
+   * arguments are used because they take precedence over the properties files.
+   * @param args further arguments, e.g. "--VIRTUAL_THREADS=true"
+   * @return the command line
+   */
+  static String[] commandLine(String... args) {
+    List<String> commandLine = new ArrayList<>(List.of(
+        "--PORT=0",
+        "--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_ON_EXIT=FALSE",
+        "--logging.level.root=WARN",
+        "--logging.level.sql=WARN",
+        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"));
+    commandLine.addAll(List.of(args));
+    return commandLine.toArray(String[]::new);
+  }
+
+  /**
+   * This filter keeps component scanning out of target/test-classes.
+   */
+  static class ExcludeTestClasses extends TypeExcludeFilter {
+    @Override
+    public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory)
+        throws IOException {
+      return metadataReader.getResource().getURL().toString().contains("/test-classes/");
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+/**
+ * This benchmark measures CurrentUserServiceImpl.getCurrentUser for a user logged in
+ * with OAuth2, both when the user is already cached and when it has to be read from
+ * the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrentUserServiceBenchmark {
+
+  private CurrentUserServiceImpl currentUserService;
+
+  /**
+   * This method logs a user in on the benchmark thread, and resolves it once so that
+   * the user exists in the database.
+   * @param application the running application
+   */
+  @Setup(Level.Trial)
+  public void setup(ApplicationState application) {
+    currentUserService = application.getBean(CurrentUserServiceImpl.class);
+
+    Map<String, Object> attributes = Map.of(
+        "sub", "115856948234298493496",
+        "email", "cgaucho@ucsb.edu",
+        "picture", "https://lh3.googleusercontent.com/a/photo.jpg",
+        "name", "Chris Gaucho",
+        "given_name", "Chris",
+        "family_name", "Gaucho",
+        "email_verified", true,
+        "locale", "en",
+        "hd", "ucsb.edu");
+    List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    DefaultOAuth2User principal = new DefaultOAuth2User(authorities, attributes, "sub");
+    SecurityContextHolder.getContext()
+        .setAuthentication(new OAuth2AuthenticationToken(principal, authorities, "google"));
+
+    currentUserService.getCurrentUser();
+  }
+
+  /**
+   * This method logs the user out again.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  /**
+   * Resolving a user that is already in the cache.
+   * @return the current user
+   */
+  @Benchmark
+  public CurrentUser cached() {
+    return currentUserService.getCurrentUser();
+  }
+
+  /**
+   * Resolving a user that has just been evicted from the cache, so that it is read from the database.
+   * @return the current user
+   */
+  @Benchmark
+  public CurrentUser uncached() {
+    currentUserService.evictUser(currentUserService.getUser());
+    return currentUserService.getCurrentUser();
+  }
+}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures building an EntityNotFoundException, i.e. what every
+ * 404 from the API costs before it is turned into a response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityNotFoundExceptionBenchmark {
+
+  private long id = 42L;
+
+  /**
+   * Constructing the exception (which formats the message and fills in the stack trace).
+   * @return the exception
+   */
+  @Benchmark
+  public EntityNotFoundException construct() {
+    return new EntityNotFoundException(UCSBDate.class, id);
+  }
+
+  /**
+   * Constructing the exception and reading the message, as the exception handler does.
+   * @return the message
+   */
+  @Benchmark
+  public String message() {
+    return new EntityNotFoundException(UCSBDate.class, id).getMessage();
+  }
+}
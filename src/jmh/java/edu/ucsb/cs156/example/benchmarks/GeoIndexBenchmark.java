@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.services.GeoIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the nearest-commons lookup on indexes of points scattered
+ * around the UCSB campus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoIndexBenchmark {
+
+  @Param({ "10", "1000" })
+  private int points;
+
+  @Param({ "1", "5" })
+  private int k;
+
+  private GeoIndex<double[]> index;
+
+  /**
+   * This method builds the index.
+   */
+  @Setup
+  public void setup() {
+    Random random = new Random(156);
+    List<double[]> locations = new ArrayList<>(points);
+    for (int i = 0; i < points; i++) {
+      locations.add(new double[] { 34.405 + random.nextDouble() * 0.01, -119.855 + random.nextDouble() * 0.015 });
+    }
+    index = new GeoIndex<>(locations, p -> p[0], p -> p[1]);
+  }
+
+  /**
+   * Finding the k points nearest to a random point on campus.
+   * @return the nearest points
+   */
+  @Benchmark
+  public List<GeoIndex.Neighbour<double[]>> nearest() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return index.nearest(34.405 + random.nextDouble() * 0.01, -119.855 + random.nextDouble() * 0.015, k);
+  }
+}
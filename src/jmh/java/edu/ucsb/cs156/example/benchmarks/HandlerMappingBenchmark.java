@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+/**
+ * This benchmark measures how long the DispatcherServlet takes to find the handler of
+ * a request: asking each handler mapping in turn, as DispatcherServlet.getHandler does,
+ * after parsing the request path if any mapping matches on parsed paths.
+ *
+ * The requests are an /api read with a path variable-free URL and a query string, an
+ * /api write, a page of the frontend (answered with index.html) and a hashed asset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerMappingBenchmark {
+
+  @Param({ "api-read", "api-write", "page", "asset" })
+  private String request;
+
+  private List<HandlerMapping> handlerMappings;
+
+  private boolean parseRequestPath;
+
+  private String method;
+
+  private String path;
+
+  /**
+   * This method finds the handler mappings of the running application, in the order the
+   * DispatcherServlet asks them.
+   * @param application the running application
+   */
+  @Setup
+  public void setup(ApplicationState application) {
+    handlerMappings = application.getBeansOfType(HandlerMapping.class).values().stream()
+        .sorted(AnnotationAwareOrderComparator.INSTANCE)
+        .toList();
+    parseRequestPath = handlerMappings.stream().anyMatch(HandlerMapping::usesPathPatterns);
+    method = request.equals("api-write") ? "PUT" : "GET";
+    path = switch (request) {
+      case "api-read", "api-write" -> "/api/ucsbdates";
+      case "page" -> "/ucsbdates/edit/7";
+      default -> "/static/js/main.0123abcd.js";
+    };
+  }
+
+  /**
+   * Finding the handler of one request.
+   * @return the handler
+   * @throws Exception if a handler mapping fails
+   */
+  @Benchmark
+  public Object getHandler() throws Exception {
+    MockHttpServletRequest req = new MockHttpServletRequest(method, path);
+    req.setQueryString("id=7");
+    req.setParameter("id", "7");
+    if (parseRequestPath) {
+      ServletRequestPathUtils.parseAndCache(req);
+    }
+    for (HandlerMapping mapping : handlerMappings) {
+      HandlerExecutionChain handler = mapping.getHandler(req);
+      if (handler != null) {
+        return handler;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
+import edu.ucsb.cs156.example.entities.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * This benchmark measures Jackson serialization of one instance of each entity,
+ * using an ObjectMapper configured the way Spring configures the application's.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+  @Param({ "Articles", "HelpRequest", "MenuItemReview", "Restaurant", "UCSBDate", "UCSBDiningCommons",
+      "UCSBDiningCommonsMenuItem", "UCSBOrganization", "UCSBRecommendationRequest", "User" })
+  private String entity;
+
+  private Object value;
+
+  private ObjectWriter writer;
+
+  /**
+   * This method builds the entity to serialize and a writer for its type.
+   */
+  @Setup
+  public void setup() {
+    LocalDateTime when = LocalDateTime.parse("2022-01-03T00:00:00");
+    value = switch (entity) {
+      case "Articles" -> Articles.builder().id(1).title("Using testing-playground")
+          .url("https://github.com/testing-library/testing-playground")
+          .explanation("Helpful when we get to front end development").email("phtcon@ucsb.edu")
+          .dateAdded(when).build();
+      case "HelpRequest" -> HelpRequest.builder().id(1).requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3")
+          .tableOrBreakoutRoom("7").requestTime(when).explanation("Need help with Swagger-ui").solved(false).build();
+      case "MenuItemReview" -> MenuItemReview.builder().id(1).itemId(7).reviewerEmail("cgaucho@ucsb.edu").stars(4)
+          .dateReviewed(when).comments("Great, but a little salty").build();
+      case "Restaurant" -> Restaurant.builder().id(1).name("Taco Bell").description("Mexican").build();
+      case "UCSBDate" -> UCSBDate.builder().id(1).quarterYYYYQ("20222").name("firstDayOfClasses")
+          .localDateTime(when).build();
+      case "UCSBDiningCommons" -> UCSBDiningCommons.builder().code("de-la-guerra").name("De La Guerra")
+          .hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true)
+          .latitude(34.409811).longitude(-119.845026).build();
+      case "UCSBDiningCommonsMenuItem" -> UCSBDiningCommonsMenuItem.builder().id(1).diningCommonsCode("ortega")
+          .name("Baked Pesto Pasta with Chicken").station("Entree Specials").build();
+      case "UCSBOrganization" -> UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZETA PHI RHO")
+          .orgTranslation("ZETA PHI RHO").inactive(false).build();
+      case "UCSBRecommendationRequest" -> UCSBRecommendationRequest.builder().id(1)
+          .requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("BS/MS program")
+          .dateRequested(when).dateNeeded(when.plusMonths(1)).build();
+      case "User" -> User.builder().id(1).email("cgaucho@ucsb.edu").googleSub("115856948234298493496")
+          .pictureUrl("https://lh3.googleusercontent.com/a/photo.jpg").fullName("Chris Gaucho")
+          .givenName("Chris").familyName("Gaucho").emailVerified(true).locale("en").hostedDomain("ucsb.edu")
+          .admin(false).build();
+      default -> throw new IllegalArgumentException("unknown entity " + entity);
+    };
+    writer = Jackson2ObjectMapperBuilder.json().build().writerFor(value.getClass());
+  }
+
+  /**
+   * Serializing the entity to UTF-8 bytes, as the message converter does.
+   * @return the JSON
+   * @throws Exception if serialization fails
+   */
+  @Benchmark
+  public byte[] serialize() throws Exception {
+    return writer.writeValueAsBytes(value);
+  }
+}
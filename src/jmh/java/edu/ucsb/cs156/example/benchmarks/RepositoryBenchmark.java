@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures findAll and findById on the UCSBDate repository,
+ * against the embedded H2 database, for tables of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+  @Param({ "100", "10000" })
+  private int rows;
+
+  private UCSBDateRepository ucsbDateRepository;
+
+  private long[] ids;
+
+  /**
+   * This method fills the table with the given number of rows.
+   * @param application the running application
+   */
+  @Setup(Level.Trial)
+  public void setup(ApplicationState application) {
+    ucsbDateRepository = application.getBean(UCSBDateRepository.class);
+    ucsbDateRepository.deleteAll();
+
+    LocalDateTime start = LocalDateTime.parse("2022-01-03T00:00:00");
+    List<UCSBDate> dates = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      dates.add(UCSBDate.builder()
+          .quarterYYYYQ("2022" + (i % 4 + 1))
+          .name("date" + i)
+          .localDateTime(start.plusHours(i))
+          .build());
+    }
+    ids = new long[rows];
+    int i = 0;
+    for (UCSBDate saved : ucsbDateRepository.saveAll(dates)) {
+      ids[i++] = saved.getId();
+    }
+  }
+
+  /**
+   * Reading the whole table.
+   * @return all of the dates
+   */
+  @Benchmark
+  public Iterable<UCSBDate> findAll() {
+    return ucsbDateRepository.findAll();
+  }
+
+  /**
+   * Reading one row by primary key.
+   * @return the date
+   */
+  @Benchmark
+  public Optional<UCSBDate> findById() {
+    return ucsbDateRepository.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+  }
+}
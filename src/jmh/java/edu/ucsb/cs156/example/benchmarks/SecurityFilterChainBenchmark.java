@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.csrf.CsrfToken;
+
+/**
+ * This benchmark measures the cost of the application's security filter chain for a
+ * single anonymous request, without a session or an XSRF-TOKEN cookie, as for the
+ * static assets, the page load and the API read that start each visit.
+ *
+ * With loadTokenEveryRequest=true, the request's CSRF token is loaded once the filters
+ * have run, as CsrfCookieFilter did for every request before it learned to skip static
+ * assets and API reads; comparing the two shows the cost that saves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityFilterChainBenchmark {
+
+  @Param({ "static-asset", "page-load", "api-read" })
+  private String request;
+
+  @Param({ "false", "true" })
+  private boolean loadTokenEveryRequest;
+
+  private Filter filterChainProxy;
+
+  private FilterChain servlet;
+
+  /**
+   * This method finds the security filter chain, and makes the end of the chain that
+   * stands in for the servlet.
+   * @param application the running application
+   */
+  @Setup
+  public void setup(ApplicationState application) {
+    filterChainProxy = application.getBean(FilterChainProxy.class);
+    servlet = (req, res) -> {
+      if (loadTokenEveryRequest) {
+        ((CsrfToken) req.getAttribute("_csrf")).getToken();
+      }
+    };
+  }
+
+  /**
+   * Running one request through the filter chain.
+   * @return the response
+   * @throws Exception if a filter fails
+   */
+  @Benchmark
+  public MockHttpServletResponse filter() throws Exception {
+    MockHttpServletRequest req = switch (request) {
+      case "static-asset" -> get("/static/js/main.3f2a1b.js", "*/*");
+      case "page-load" -> get("/ucsbdates", "text/html,application/xhtml+xml,*/*;q=0.8");
+      default -> get("/api/ucsbdates/all", "application/json");
+    };
+    MockHttpServletResponse res = new MockHttpServletResponse();
+    filterChainProxy.doFilter(req, res, servlet);
+    return res;
+  }
+
+  private static MockHttpServletRequest get(String path, String accept) {
+    MockHttpServletRequest req = new MockHttpServletRequest("GET", path);
+    req.addHeader("Accept", accept);
+    return req;
+  }
+}
@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.services.TextIndex;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures building the articles search index and querying it, for
+ * articles made of words drawn from a vocabulary with a Zipf-like distribution, so that
+ * a few words are in most articles and most words are in few.
+ *
+ * Query latency is reported as a distribution (Mode.SampleTime), so that its p99 can be
+ * read off the result; run e.g. -Djmh.args="TextIndexBenchmark.search -p articles=500000".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TextIndexBenchmark {
+
+  private static final int VOCABULARY = 20_000;
+
+  @Param({ "10000", "500000" })
+  private int articles;
+
+  private String[] words;
+
+  private String[][] fields;
+
+  private TextIndex index;
+
+  /**
+   * This method makes up the articles and builds the index that is queried.
+   */
+  @Setup
+  public void setup() {
+    Random random = new Random(156);
+    words = new String[VOCABULARY];
+    for (int i = 0; i < VOCABULARY; i++) {
+      words[i] = Integer.toString(i * 7919, 36) + "x";
+    }
+    fields = new String[articles][];
+    for (int i = 0; i < articles; i++) {
+      fields[i] = new String[] { text(random, 6), text(random, 30), "https://example.com/" + text(random, 3) };
+    }
+    index = build();
+  }
+
+  private String text(Random random, int length) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      // rank ~ 1/u gives a Zipf-like distribution over the vocabulary
+      int rank = (int) Math.min(VOCABULARY, 1 / Math.max(random.nextDouble(), 1.0 / VOCABULARY)) - 1;
+      text.append(words[rank]).append(' ');
+    }
+    return text.toString();
+  }
+
+  private TextIndex build() {
+    TextIndex built = new TextIndex(3, 1, 1);
+    for (int i = 0; i < articles; i++) {
+      built.put(i, fields[i]);
+    }
+    return built;
+  }
+
+  /**
+   * Building the index from scratch, as on the first search after startup.
+   * @return the index
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 3)
+  public TextIndex build_index() {
+    return build();
+  }
+
+  /**
+   * Searching for two words, the second only as a prefix, as someone typing into a search box would.
+   * @return the first page of results
+   */
+  @Benchmark
+  public TextIndex.Hits search() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String first = words[random.nextInt(200)];
+    String second = words[random.nextInt(2_000)];
+    return index.search(first + " " + second.substring(0, 2), 0, 50);
+  }
+
+  /**
+   * Searching for a single common word, which matches a large share of the articles.
+   * @return the first page of results
+   */
+  @Benchmark
+  public TextIndex.Hits search_common_word() {
+    return index.search(words[0], 0, 50);
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import jakarta.servlet.Filter;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * This is a load test that compares handling requests on the servlet container's
+ * platform threads with handling them on virtual threads (VIRTUAL_THREADS=true).
+ *
+ * For each mode it starts the application, fills the help request table, and then has
+ * load.clients concurrent clients (1000 by default) each send requests to load.path
+ * back to back, for load.warmupSeconds and then load.seconds.  The default path,
+ * /api/helprequest/all, reads the table on every request: help requests are in
+ * neither the second-level cache nor the query cache, and the listing has no ETag,
+ * so the requests spend their time waiting on JDBC, which is where virtual threads
+ * should differ from platform threads.  It prints the throughput
+ * and the 50th/99th percentile latency of each mode, and writes them as JSON to
+ * target/load-test-result.json.
+ *
+ * Run it with:  BENCHMARKS=true mvn -DskipTests test-compile exec:exec@load-test
+ *
+ * Requests are authenticated as a plain user by a filter that runs after Spring Security,
+ * so that the @PreAuthorize checks on the API pass without an OAuth login.  By default
+ * the database is the in-memory H2 database; pass e.g. -Dspring.datasource.url=... in
+ * load.args to test against PostgreSQL instead.
+ */
+public class VirtualThreadsLoadTest {
+
+  private static final int clients = Integer.getInteger("load.clients", 1000);
+  private static final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+  private static final int seconds = Integer.getInteger("load.seconds", 30);
+  private static final int rows = Integer.getInteger("load.rows", 100);
+  private static final String path = System.getProperty("load.path", "/api/helprequest/all");
+
+  /**
+   * This method runs the load test in both modes.
+   * @param args unused
+   * @throws Exception if the load test cannot be run
+   */
+  public static void main(String[] args) throws Exception {
+    Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+    results.put("platform", run(false));
+    results.put("virtual", run(true));
+
+    System.out.printf("%-10s %12s %10s %10s %10s%n", "threads", "requests/s", "p50 (ms)", "p99 (ms)", "errors");
+    results.forEach((mode, result) -> System.out.printf("%-10s %12.1f %10.2f %10.2f %10d%n", mode,
+        result.get("throughput"), result.get("p50Millis"), result.get("p99Millis"), result.get("errors")));
+
+    File file = new File("target/load-test-result.json");
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, results);
+    System.out.println("Load test result is saved to " + file.getAbsolutePath());
+    System.exit(0);
+  }
+
+  private static Map<String, Object> run(boolean virtualThreads) throws Exception {
+    try (ConfigurableApplicationContext context = ApplicationState.application()
+        .initializers(applicationContext -> applicationContext.getBeanFactory()
+            .registerSingleton("authenticateLoadTest", authenticateAsUser()))
+        .run(ApplicationState.commandLine("--VIRTUAL_THREADS=" + virtualThreads))) {
+      seed(context.getBean(HelpRequestRepository.class));
+      int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+      URI uri = URI.create("http://localhost:" + port + path);
+
+      drive(uri, warmupSeconds);
+      return drive(uri, seconds);
+    }
+  }
+
+  private static void seed(HelpRequestRepository helpRequestRepository) {
+    LocalDateTime start = LocalDateTime.parse("2022-01-03T00:00:00");
+    List<HelpRequest> helpRequests = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      helpRequests.add(HelpRequest.builder()
+          .requesterEmail("student" + i + "@ucsb.edu")
+          .teamId("w22-5pm-" + (i % 4 + 1))
+          .tableOrBreakoutRoom(Integer.toString(i % 8 + 1))
+          .explanation("request" + i)
+          .solved(i % 2 == 0)
+          .requestTime(start.plusMinutes(i))
+          .build());
+    }
+    helpRequestRepository.saveAll(helpRequests);
+  }
+
+  /**
+   * A filter, ordered after Spring Security's, that authenticates every request as a
+   * plain user for the rest of the request.
+   */
+  private static FilterRegistrationBean<Filter> authenticateAsUser() {
+    Filter filter = (request, response, chain) -> {
+      SecurityContextHolder.getContext()
+          .setAuthentication(new TestingAuthenticationToken("loadtest", null, "ROLE_USER"));
+      try {
+        chain.doFilter(request, response);
+      } finally {
+        SecurityContextHolder.clearContext();
+      }
+    };
+    FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+    registration.setOrder(0);
+    return registration;
+  }
+
+  /**
+   * This method has each client send requests back to back for the given number of seconds.
+   * The clients themselves run on virtual threads, so that the client side is never the bottleneck.
+   */
+  private static Map<String, Object> drive(URI uri, int seconds) throws Exception {
+    HttpClient httpClient = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(30))
+        .build();
+    HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+    AtomicLong errors = new AtomicLong();
+    long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+    List<Future<long[]>> futures = new ArrayList<>(clients);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < clients; i++) {
+        futures.add(executor.submit(() -> {
+          long[] latencies = new long[1024];
+          int count = 0;
+          while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            try {
+              HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+              if (response.statusCode() != 200) {
+                errors.incrementAndGet();
+                continue;
+              }
+            } catch (Exception e) {
+              errors.incrementAndGet();
+              continue;
+            }
+            if (count == latencies.length) {
+              latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+          }
+          return Arrays.copyOf(latencies, count);
+        }));
+      }
+    }
+
+    long[] all = futures.stream().map(VirtualThreadsLoadTest::join).flatMapToLong(Arrays::stream).sorted().toArray();
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("clients", clients);
+    result.put("seconds", seconds);
+    result.put("requests", all.length);
+    result.put("errors", errors.get());
+    result.put("throughput", (double) all.length / seconds);
+    result.put("p50Millis", percentile(all, 0.50));
+    result.put("p99Millis", percentile(all, 0.99));
+    return result;
+  }
+
+  private static long[] join(Future<long[]> future) {
+    try {
+      return future.get();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return Double.NaN;
+    }
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(index, 0)] / 1_000_000.0;
+  }
+}
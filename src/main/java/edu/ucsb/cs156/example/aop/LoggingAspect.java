@@ -1,23 +1,41 @@
 package edu.ucsb.cs156.example.aop;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * This class is an Aspect that logs all invocations of controller methods that are annotated
+ * This class is an Aspect that times, and logs, all invocations of controller methods that are annotated
  * with {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
  * or {@code @PatchMapping}.
  * 
+ * Each invocation is recorded in the {@code app.controller.requests} timer, tagged with the controller,
+ * the handler method and the HTTP status it produced.  The timer publishes a percentile histogram
+ * (for /actuator/prometheus) and the 50th, 95th and 99th percentiles (for /actuator/metrics).
+ * 
  * For more information on Aspect Oriented Programming (AOP)
  * and AspectJ, including what a {@code JoinPoint} is, 
  * refer to <a href="https://www.baeldung.com/aspectj">https://www.baeldung.com/aspectj</a> 
@@ -38,37 +56,113 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  /** The name of the timer that controller invocations are recorded in */
+  public static final String TIMER_NAME = "app.controller.requests";
+
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // timers by handler method, then status, so a call does not have to build a Meter.Id to find its timer
+  private final Map<Method, Map<Integer, Timer>> timers = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, ExceptionHandlerMethodResolver> exceptionHandlers = new ConcurrentHashMap<>();
 
   /**
-   * This method is called before any controller method that is annotated with
+   * This method is called around any controller method that is annotated with
    * {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
-   * or {@code @PatchMapping}.
+   * or {@code @PatchMapping}.  It logs the request, unless the controller is on the stoplist,
+   * and records how long the method took.
    * @param joinPoint the join point (injected by Spring framework)
+   * @return whatever the controller method returns
+   * @throws Throwable whatever the controller method throws
+   */
+  @Around(pointcut)
+  public Object timeControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+    logRequest(signature);
+
+    long start = System.nanoTime();
+    int status = 500;
+    try {
+      Object result = joinPoint.proceed();
+      status = statusOf(signature.getMethod(), result);
+      return result;
+    } catch (Throwable t) {
+      status = statusOf(signature.getDeclaringType(), t);
+      throw t;
+    } finally {
+      timer(signature, status).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void logRequest(MethodSignature signature) {
+    String declaringTypeName = signature.getDeclaringTypeName();
+    if (stoplist.contains(declaringTypeName) || !log.isInfoEnabled()) {
+      return;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletAttributes) {
+      HttpServletRequest request = servletAttributes.getRequest();
+      log.info("===== {} {} handled by {} in {}", request.getMethod(), request.getRequestURI(),
+          signature.getName(), declaringTypeName);
+    }
+  }
+
+  private Timer timer(MethodSignature signature, int status) {
+    return timers.computeIfAbsent(signature.getMethod(), method -> new ConcurrentHashMap<>())
+        .computeIfAbsent(status, s -> Timer.builder(TIMER_NAME)
+            .description("Time taken by controller methods")
+            .tag("controller", signature.getDeclaringType().getSimpleName())
+            .tag("method", signature.getName())
+            .tag("status", Integer.toString(s))
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(meterRegistry));
+  }
+
+  /**
+   * The status of a normal return: that of a ResponseEntity, else the method's
+   * {@code @ResponseStatus}, else whatever the method set on the response, else 200.
    */
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+  private static int statusOf(Method method, Object result) {
+    if (result instanceof ResponseEntity<?> entity) {
+      return entity.getStatusCode().value();
+    }
+    ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(method, ResponseStatus.class);
+    if (responseStatus != null) {
+      return responseStatus.code().value();
+    }
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes servletAttributes) {
+      HttpServletResponse response = servletAttributes.getResponse();
+      if (response != null) {
+        return response.getStatus();
+      }
+    }
+    return 200;
   }
 
   /**
-   * The function `getCurrentHttpRequest` returns an `Optional` containing the current
-   * `HttpServletRequest` if available.
-   * 
-   * @return An Optional object containing the current HttpServletRequest, if available.
+   * The status an exception will be turned into: that given by the controller's own
+   * {@code @ExceptionHandler} for it (e.g. 404 for EntityNotFoundException), else by
+   * the exception itself, else 500.
    */
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private int statusOf(Class<?> controller, Throwable t) {
+    Method handler = exceptionHandlers.computeIfAbsent(controller, ExceptionHandlerMethodResolver::new)
+        .resolveMethodByThrowable(t);
+    ResponseStatus responseStatus = (handler != null)
+        ? AnnotatedElementUtils.findMergedAnnotation(handler, ResponseStatus.class)
+        : AnnotatedElementUtils.findMergedAnnotation(t.getClass(), ResponseStatus.class);
+    if (responseStatus != null) {
+      return responseStatus.code().value();
+    }
+    if (t instanceof ResponseStatusException e) {
+      return e.getStatusCode().value();
+    }
+    return 500;
   }
 }
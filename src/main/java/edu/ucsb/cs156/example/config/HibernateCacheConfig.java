@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.SharedCacheMode;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the configuration of Hibernate's second-level cache, which keeps the reference
+ * entities (UCSBDate, UCSBDiningCommons, UCSBDiningCommonsMenuItem and UCSBOrganization),
+ * and the results of their cacheable queries, in memory between transactions.
+ *
+ * The cache is JCache on the Caffeine provider.  Only entities annotated with
+ * {@code @Cacheable} are cached, so the transactional entities are unaffected.  Each region
+ * is bounded by {@code app.hibernate.cache.<region>.maximum-size} entries, and entries expire
+ * {@code app.hibernate.cache.<region>.ttl-seconds} after they are written (0 for never).
+ * Each region's hits and misses are published as cache.gets{cache=&lt;region&gt;}, and its
+ * hit ratio as cache.hit.ratio{cache=&lt;region&gt;}.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+  /** The regions of the cache: one per reference entity, then the query cache's two */
+  public static final List<String> REGIONS = List.of("ucsbdates", "ucsbdiningcommons",
+      "ucsbdiningcommonsmenuitem", "ucsborganization", "default-query-results-region",
+      "default-update-timestamps-region");
+
+  private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  @Autowired
+  private Environment environment;
+
+  /**
+   * This method creates the cache manager holding the regions.  It is a cache manager
+   * of its own, rather than the provider's default one, so that application contexts
+   * (such as those of tests) never share cached entities.
+   * @return the cache manager
+   */
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager() {
+    CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+        .getCacheManager(URI.create("hibernate-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+    for (String region : REGIONS) {
+      String prefix = "app.hibernate.cache." + region;
+      long maximumSize = environment.getProperty(prefix + ".maximum-size", Long.class, DEFAULT_MAXIMUM_SIZE);
+      long ttlSeconds = environment.getProperty(prefix + ".ttl-seconds", Long.class, 0L);
+
+      CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+      configuration.setMaximumSize(OptionalLong.of(maximumSize));
+      if (ttlSeconds > 0) {
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+      }
+      // Hibernate caches its own copies of entity state, so they need not be copied again
+      configuration.setStoreByValue(false);
+      configuration.setNativeStatisticsEnabled(true);
+      cacheManager.createCache(region, configuration);
+    }
+    return cacheManager;
+  }
+
+  /**
+   * This method turns on the second-level and query caches, on the regions of hibernateCacheManager.
+   * A region that was not created there is an error rather than an unbounded cache.
+   * @param hibernateCacheManager the cache manager holding the regions
+   * @return the customizer of Hibernate's properties
+   */
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheProperties(CacheManager hibernateCacheManager) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+      properties.put(AvailableSettings.JAKARTA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+      properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    };
+  }
+
+  /**
+   * This method publishes the metrics of each region.
+   * @param hibernateCacheManager the cache manager holding the regions
+   * @return the binder of the metrics
+   */
+  @Bean
+  public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+    return registry -> {
+      for (String region : REGIONS) {
+        Cache<?, ?> cache = hibernateCacheManager.getCache(region).unwrap(Cache.class);
+        CaffeineCacheMetrics.monitor(registry, cache, region);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+            .tag("cache", region)
+            .description("The share of lookups in the cache that were hits")
+            .register(registry);
+      }
+    };
+  }
+}
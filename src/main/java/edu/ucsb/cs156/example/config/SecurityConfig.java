@@ -1,7 +1,12 @@
 package edu.ucsb.cs156.example.config;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.events.UserChangedEvent;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CacheLoads;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -34,17 +39,19 @@ import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler
 import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -62,9 +69,33 @@ public class SecurityConfig {
   @Value("${app.admin.emails}")
   private final List<String> adminEmails = new ArrayList<>();
 
+  @Value("${app.admin.cache.ttl-seconds:60}")
+  private long adminCacheTtlSeconds;
+
+  @Value("${app.admin.cache.maximum-size:10000}")
+  private long adminCacheMaximumSize;
+
   @Autowired
   UserRepository userRepository;
 
+  private Set<String> adminEmailSet;
+
+  private AsyncCache<String, Boolean> adminFlagCache;
+
+  /**
+   * This method builds an immutable hash set of app.admin.emails, and a short-lived
+   * cache of the admin flags read from the users table, so that most logins
+   * resolve admin status without a query.
+   */
+  @PostConstruct
+  void buildAdminLookup() {
+    adminEmailSet = Set.copyOf(adminEmails);
+    adminFlagCache = Caffeine.newBuilder()
+        .maximumSize(adminCacheMaximumSize)
+        .expireAfterWrite(Duration.ofSeconds(adminCacheTtlSeconds))
+        .buildAsync();
+  }
+
   /**
    * The `filterChain` method in this Java code configures various security
    * settings for an HTTP request,
@@ -85,7 +116,10 @@ public class SecurityConfig {
             .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
             .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .authorizeHttpRequests(auth -> auth
+            .requestMatchers(antMatcher("/actuator/health")).permitAll()
+            .requestMatchers(antMatcher("/actuator/**")).hasRole("ADMIN")
+            .anyRequest().permitAll())
         .logout(logout -> logout.logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/"));
     return http.build();
   }
@@ -135,15 +169,36 @@ public class SecurityConfig {
    * predefined
    * list or by querying the user repository.
    * 
+   * Answers from the user repository are cached for app.admin.cache.ttl-seconds,
+   * or until that user is written (see onUserChanged).
+   * 
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
+    if (email == null) {
+      return false;
+    }
+    if (adminEmailSet.contains(email)) {
       return true;
     }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return CacheLoads.get(adminFlagCache, email,
+        key -> userRepository.findByEmail(key).map(User::getAdmin).orElse(false));
+  }
+
+  /**
+   * This method drops the cached admin flag for a user once a transaction that
+   * inserts, updates or deletes that user has committed; evicting any earlier would
+   * let a request in between cache the flag as it was before the write.
+   * 
+   * @param event the event published by UserListener
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    String email = event.getUser().getEmail();
+    if (email != null) {
+      adminFlagCache.synchronous().invalidate(email);
+    }
   }
 }
 
@@ -187,6 +242,29 @@ final class SpaCsrfTokenRequestHandler extends CsrfTokenRequestAttributeHandler
 
 final class CsrfCookieFilter extends OncePerRequestFilter {
 
+  private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+  /*
+   * The SPA reads the token from the cookie when a page is loaded, and sends it back
+   * with each state-changing call, so only those two kinds of request need the token
+   * to be loaded (or minted) here.  Static assets, and API reads, leave the token
+   * repository (and so the cookie) alone.
+   */
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return SAFE_METHODS.contains(request.getMethod()) && !isDocumentLoad(request);
+  }
+
+  // A GET for HTML of a path whose last segment has no dot, i.e. one that FrontendController
+  // answers with index.html rather than a static resource
+  static boolean isDocumentLoad(HttpServletRequest request) {
+    String accept = request.getHeader("Accept");
+    String path = request.getRequestURI();
+    return "GET".equals(request.getMethod())
+        && accept != null && accept.contains("text/html")
+        && path.indexOf('.', path.lastIndexOf('/') + 1) < 0;
+  }
+
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
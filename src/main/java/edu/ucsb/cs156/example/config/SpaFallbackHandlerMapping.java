@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.controllers.FrontendController;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.AbstractHandlerMapping;
+
+/**
+ * This handler mapping sends the frontend's pages (the routes of the React app, such as
+ * /ucsbdates/edit/7) to FrontendController.index, which answers with index.html.
+ *
+ * It is asked after the request mappings of the controllers, and before the static
+ * resources, so it only sees requests that no controller maps.  Of those, a GET or HEAD
+ * is a page unless its last path segment has a dot (an asset, e.g. /static/js/main.js,
+ * /favicon.ico) or its first segment belongs to the server (e.g. /api, /oauth2).  Those
+ * are left to the static resources, which answer 404 for anything else; in particular,
+ * an unmapped /api path is a 404 rather than index.html.
+ *
+ * The decision is one scan of the path, without regular expressions or allocation.
+ */
+@Profile("!development")
+@Component
+public class SpaFallbackHandlerMapping extends AbstractHandlerMapping {
+
+  /** The first path segments that belong to the server rather than the frontend */
+  static final String[] SERVER_SEGMENTS = { "api", "oauth2", "login", "logout", "swagger-ui", "v3",
+      "h2-console", "actuator" };
+
+  private final HandlerMethod index;
+
+  /**
+   * This constructor makes the mapping of pages to FrontendController.index.
+   * @param frontendController the controller (injected by Spring)
+   */
+  public SpaFallbackHandlerMapping(FrontendController frontendController) {
+    this.index = new HandlerMethod(frontendController,
+        ReflectionUtils.findMethod(FrontendController.class, "index", String.class));
+    // after RequestMappingHandlerMapping (0), before the resource handlers (LOWEST_PRECEDENCE - 1)
+    setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+  }
+
+  @Override
+  protected Object getHandlerInternal(HttpServletRequest request) {
+    String method = request.getMethod();
+    if (!method.equals("GET") && !method.equals("HEAD")) {
+      return null;
+    }
+    return isPage(initLookupPath(request)) ? index : null;
+  }
+
+  /**
+   * This method tells whether a path is a page of the frontend, as described above.
+   * @param path the path within the application, starting with /
+   * @return whether the path is a page
+   */
+  static boolean isPage(String path) {
+    int end = path.length();
+    int firstEnd = path.indexOf('/', 1);
+    int firstLength = ((firstEnd < 0) ? end : firstEnd) - 1;
+    for (String segment : SERVER_SEGMENTS) {
+      if (segment.length() == firstLength && path.startsWith(segment, 1)) {
+        return false;
+      }
+    }
+    for (int i = end - 1; i >= 0; i--) {
+      char c = path.charAt(i);
+      if (c == '/') {
+        return true;
+      }
+      if (c == '.') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
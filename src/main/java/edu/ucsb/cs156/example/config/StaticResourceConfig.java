@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * This is the configuration of how the frontend's build output is served.
+ *
+ * Everything under /static/ has a content hash in its name (e.g. main.3f2a1b.js), so a
+ * given URL never changes, and browsers may keep it for a year without asking again.
+ * Either way, a precompressed .br or .gz sibling written by the build is sent instead of
+ * the file itself to clients that accept it.  The other files of the build (favicon.ico,
+ * manifest.json, ...) are served by Spring Boot's own handler, configured by the
+ * spring.web.resources properties, and index.html is served by FrontendController.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    registry.addResourceHandler("/static/**")
+        .addResourceLocations("classpath:/public/static/")
+        .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+        .setUseLastModified(false)
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver());
+  }
+}
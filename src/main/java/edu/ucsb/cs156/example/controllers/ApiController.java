@@ -1,16 +1,36 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import edu.ucsb.cs156.example.models.BulkInsertError;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -21,6 +41,18 @@ public abstract class ApiController {
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  @Value("${app.pagination.default-page-size:50}")
+  private int defaultPageSize;
+
+  @Value("${app.pagination.max-page-size:500}")
+  private int maxPageSize;
+
+  @Value("${app.bulk.max-rows:10000}")
+  private int maxBulkRows;
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,6 +70,156 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns the size of a page of a paginated listing.
+   * The requested size is clamped to between 1 and {@code app.pagination.max-page-size}.
+   * @param size the requested page size, or null for {@code app.pagination.default-page-size}
+   * @return the page size to use
+   */
+  protected int pageSize(Integer size) {
+    return (size == null) ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+  }
+
+  /**
+   * This method returns the pageable used to read one page of a keyset paginated listing.
+   * @param size the requested page size, or null for {@code app.pagination.default-page-size}
+   * @param keyProperty the name of the key property the listing is ordered by
+   * @return a pageable for the first page of entries after the cursor, sorted by the key
+   */
+  protected Pageable keysetPageable(Integer size, String keyProperty) {
+    return PageRequest.of(0, pageSize(size), Sort.by(keyProperty));
+  }
+
+  /**
+   * This method turns a slice of entries into a keyset page.
+   * @param slice the entries read for this page
+   * @param keyOf function returning the key of an entry
+   * @return the page, with the key of its last entry as the next cursor if there are more entries
+   */
+  protected <T, K> KeysetPage<T, K> keysetPage(Slice<T> slice, Function<T, K> keyOf) {
+    List<T> content = slice.getContent();
+    K next = slice.hasNext() ? keyOf.apply(content.get(content.size() - 1)) : null;
+    return new KeysetPage<>(content, next);
+  }
+
+  /**
+   * This method answers a GET for the contents of a whole table conditionally.  The
+   * response carries a strong ETag for the table's current version (see TableVersionService);
+   * if the request's If-None-Match already matches it, the response is a 304 Not Modified,
+   * and the body is never read or serialized.
+   * @param table the entity class of the table
+   * @param request the request (injected by Spring)
+   * @param body function reading the table, called only when the client needs it
+   * @return the body with its ETag, or null when a 304 has been sent
+   */
+  protected <T> ResponseEntity<T> conditionalGet(Class<?> table, WebRequest request, Supplier<T> body) {
+    if (request.checkNotModified(tableVersionService.getETag(table))) {
+      return null;
+    }
+    return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(body.get());
+  }
+
+  /**
+   * This method returns the row version that a PUT's If-Match header requires.  The
+   * ETag of a single entity is its version in quotes (see withVersion).
+   * @param ifMatch the If-Match header, or null if there was none
+   * @return the required version, or null when the update is unconditional (no header, or *)
+   * @throws PreconditionFailedException if the header is not a single strong ETag of
+   *     a version, since then it cannot match the entity's current ETag
+   */
+  protected Long requiredVersion(String ifMatch) {
+    if (ifMatch == null) {
+      return null;
+    }
+    List<ETag> tags = ETag.parse(ifMatch);
+    if (tags.size() == 1 && tags.get(0).isWildcard()) {
+      return null;
+    }
+    if (tags.size() != 1 || tags.get(0).weak() || !tags.get(0).tag().matches("\\d{1,18}")) {
+      throw new PreconditionFailedException(
+          "If-Match must be the ETag of the current version, e.g. \"3\", got %s".formatted(ifMatch));
+    }
+    return Long.parseLong(tags.get(0).tag());
+  }
+
+  /**
+   * This method returns a single entity with its version as a strong ETag, which
+   * can be sent back as If-Match to update the entity only if it is unchanged.
+   * @param body the entity
+   * @param version the entity's version
+   * @return the entity with its ETag
+   */
+  protected <T> ResponseEntity<T> withVersion(T body, long version) {
+    return ResponseEntity.ok().eTag(Long.toString(version)).body(body);
+  }
+
+  /**
+   * This method validates each row of a /bulk request and inserts the valid ones.
+   * Invalid rows are reported by their index in the request, and do not stop the others.
+   * @param rows the rows from the request body
+   * @param validator function returning the problems with a row, or an empty list if it is valid
+   * @param insertAll function inserting the valid rows and returning how many it inserted
+   * @return the number of rows inserted and the errors for the rows that were not
+   * @throws IllegalArgumentException if there are more than {@code app.bulk.max-rows} rows
+   */
+  protected <T> BulkInsertResult bulkInsert(List<T> rows, Function<T, List<String>> validator,
+      ToIntFunction<List<T>> insertAll) {
+    if (rows.size() > maxBulkRows) {
+      throw new IllegalArgumentException(
+          "at most %d rows can be inserted at once, got %d".formatted(maxBulkRows, rows.size()));
+    }
+    List<T> valid = new ArrayList<>();
+    List<BulkInsertError> errors = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i++) {
+      T row = rows.get(i);
+      List<String> problems = (row == null) ? List.of("row is null") : validator.apply(row);
+      if (problems.isEmpty()) {
+        valid.add(row);
+      } else {
+        errors.add(new BulkInsertError(i, problems));
+      }
+    }
+    int inserted = valid.isEmpty() ? 0 : insertAll.applyAsInt(valid);
+    return new BulkInsertResult(inserted, errors);
+  }
+
+  /**
+   * This method checks the row count of a single-statement delete of one entity,
+   * and records the change to its table.  Such deletes bypass entity listeners, so
+   * the TableVersionService is told about them here.
+   * @param table the entity class of the table
+   * @param id the id of the entity that was to be deleted
+   * @param deleted the number of rows the delete removed
+   * @throws EntityNotFoundException if no row was deleted
+   */
+  protected void requireDeleted(Class<?> table, Object id, int deleted) {
+    if (deleted == 0) {
+      throw new EntityNotFoundException(table, id);
+    }
+    tableVersionService.deleted(table, List.of(id));
+  }
+
+  /**
+   * This method deletes many entities by id in a single statement, for a bulk DELETE
+   * request.  Ids with no entity are ignored.
+   * @param table the entity class of the table
+   * @param ids the ids from the request
+   * @param deleteAll function deleting the entities with the ids and returning how many it deleted
+   * @return the number of entities deleted
+   * @throws IllegalArgumentException if there are more than {@code app.bulk.max-rows} ids
+   */
+  protected <K> int bulkDelete(Class<?> table, List<K> ids, ToIntFunction<List<K>> deleteAll) {
+    if (ids.size() > maxBulkRows) {
+      throw new IllegalArgumentException(
+          "at most %d rows can be deleted at once, got %d".formatted(maxBulkRows, ids.size()));
+    }
+    int deleted = ids.isEmpty() ? 0 : deleteAll.applyAsInt(ids);
+    if (deleted > 0) {
+      tableVersionService.deleted(table, ids);
+    }
+    return deleted;
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +233,49 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles an IllegalArgumentException, which controllers throw
+   * for request values that are well-formed but not acceptable.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ IllegalArgumentException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleIllegalArgumentException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles a PreconditionFailedException, which is thrown when an
+   * If-Match header does not match the current version of an entity.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ PreconditionFailedException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailedException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles an OptimisticLockingFailureException, which is thrown when
+   * an entity is changed by another request between being read and being saved.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleOptimisticLockingFailureException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
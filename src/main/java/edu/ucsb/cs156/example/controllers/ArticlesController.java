@@ -3,7 +3,12 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.SearchPage;
+import edu.ucsb.cs156.example.services.ArticlesSearchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,19 +18,24 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 
 /**
@@ -41,6 +51,15 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticlesRepository ArticlesRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    ArticlesSearchService articlesSearchService;
+
     /**
      * List all articles
      * 
@@ -54,6 +73,58 @@ public class ArticlesController extends ApiController {
         return articles;
     }
 
+    /**
+     * List articles one page at a time, ordered by id
+     * 
+     * @param after only articles with an id greater than this are listed
+     * @param size the maximum number of articles to return
+     * @return a page of articles, and the id to pass as after for the next page
+     */
+    @Operation(summary= "List articles one page at a time", description = "Retrieve the articles with an id greater than after, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Articles, Long> pageArticles(
+            @Parameter(description = "Id of the last article on the previous page", example = "0") @RequestParam(defaultValue = "0") long after,
+            @Parameter(description = "Maximum number of articles to return", example = "50") @RequestParam(required = false) Integer size) {
+        Slice<Articles> articles = ArticlesRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(articles, Articles::getId);
+    }
+
+    /**
+     * Search articles by the words in their title, explanation and url
+     * 
+     * @param q the words to search for; every word must match, and may be the start of a longer word
+     * @param page the number of the page, starting from 0
+     * @param size the maximum number of articles to return
+     * @return a page of matching articles, best match first, and how many articles match
+     */
+    @Operation(summary= "Search articles", description = "Find the articles whose title, explanation or url contain every word of the query, best match first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public SearchPage<Articles> searchArticles(
+            @Parameter(description = "Words to search for", example = "first art") @RequestParam String q,
+            @Parameter(description = "Number of the page, starting from 0", example = "0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Maximum number of articles to return", example = "50") @RequestParam(required = false) Integer size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative, got %d".formatted(page));
+        }
+        return articlesSearchService.search(q, page, pageSize(size));
+    }
+
+    /**
+     * Export all articles as newline-delimited JSON, one article per line
+     * 
+     * @param response the response to stream the articles to
+     * @throws IOException if the response cannot be written
+     */
+    @Operation(summary= "Export all articles", description = "Stream every article as newline-delimited JSON; memory use does not grow with the number of articles")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/export", produces = NdjsonExportService.NDJSON)
+    public void exportArticles(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonExportService.NDJSON);
+        ndjsonExportService.export(Articles.class, response.getOutputStream());
+    }
+
     /**
      * Create a new article
      * 
@@ -100,28 +171,37 @@ public class ArticlesController extends ApiController {
     @Operation(summary= "Get a single article", description = "Retrieve a single article by providing the ID")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Articles getById(
+    public ResponseEntity<Articles> getById(
             @Parameter(name="id") @RequestParam Long id) {
         Articles article = ArticlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
 
-        return article;
+        return withVersion(article, article.getVersion());
     }
 
     /**
      * Update a single article
      * 
      * @param id       id of the article to update
+     * @param ifMatch  optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the new article object
      * @return the updated article object
      */
     @Operation(summary= "Update a single article", description = "Update a single article by providing the ID and the new article data")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public Articles updateArticle(
+    public ResponseEntity<Articles> updateArticle(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid Articles incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            Articles updated = optimisticUpdateService.update(id, version, incoming,
+                    "title", "url", "explanation", "email", "dateAdded");
+            return withVersion(updated, updated.getVersion());
+        }
+
         Articles article = ArticlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
 
@@ -131,9 +211,9 @@ public class ArticlesController extends ApiController {
         article.setEmail(incoming.getEmail());
         article.setDateAdded(incoming.getDateAdded());
 
-        ArticlesRepository.save(article);
+        Articles saved = ArticlesRepository.save(article);
 
-        return article;
+        return withVersion(saved, saved.getVersion());
     }
 
     /**
@@ -147,10 +227,7 @@ public class ArticlesController extends ApiController {
     @DeleteMapping("")
     public Object deleteArticle(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles article = ArticlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        ArticlesRepository.delete(article);
+        requireDeleted(Articles.class, id, ArticlesRepository.deleteRowById(id));
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
@@ -2,10 +2,15 @@ package edu.ucsb.cs156.example.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 
+import edu.ucsb.cs156.example.services.IndexPageService;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 
 /**
@@ -24,14 +29,37 @@ public class FrontendController {
   @Autowired
   WiremockService wiremockService;
   
+  @Autowired
+  IndexPageService indexPageService;
+
   /**
-   * Serve home page of application
-   * @return the home page (via index.html)
+   * Serve home page of application, for each of the frontend's routes (see
+   * SpaFallbackHandlerMapping, which maps all but "/" here).  The page is sent from memory,
+   * precompressed if the client accepts it, with an ETag, so that a page the browser
+   * already has is a 304 (Spring compares the ETag with If-None-Match).
+   * @param acceptEncoding the request's Accept-Encoding header
+   * @return the home page (index.html), or 404 if the frontend has not been built
+   * @see edu.ucsb.cs156.example.config.SpaFallbackHandlerMapping
    */
 
-  @GetMapping("/**/{path:[^\\.]*}")
-  public String index() {
-    return "forward:/index.html";
+  // "/" is mapped here as well, so that it is not Spring Boot's welcome page, which
+  // would forward to the static index.html instead
+  @GetMapping("/")
+  public ResponseEntity<byte[]> index(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    return indexPageService.select(acceptEncoding)
+        .map(page -> {
+          ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+              .contentType(MediaType.TEXT_HTML)
+              .cacheControl(CacheControl.noCache())
+              .varyBy(HttpHeaders.ACCEPT_ENCODING)
+              .eTag(page.eTag());
+          if (page.encoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, page.encoding());
+          }
+          return response.body(page.body());
+        })
+        .orElseGet(() -> ResponseEntity.notFound().build());
   }
 
   /**
@@ -1,25 +1,52 @@
 package edu.ucsb.cs156.example.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.gateway.mvc.ProxyExchange;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.ResourceAccessException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * The FrontendProxyController is used to proxy requests to the frontend of the application.
- * 
+ *
  * This is only used in development where we have a separate frontend server process
- * listening on port 3000.
- * 
+ * listening on port 3000 (app.frontend.proxy.url).
+ *
+ * Requests are sent over one shared HTTP client, which keeps its connections to the
+ * frontend server open between requests, and the responses are streamed back as they
+ * arrive rather than read into memory first.  Assets that cannot change (those with a
+ * content hash in their name, or marked immutable by the frontend server) are also kept
+ * in memory, up to app.frontend.proxy.cache.maximum-bytes, so that reloading a page
+ * does not fetch them again.
+ *
  * For production, see the FrontendController.
- * 
+ *
  * @see edu.ucsb.cs156.example.controllers.FrontendController
  */
 
@@ -27,38 +54,155 @@ import java.net.ConnectException;
 @RestController
 public class FrontendProxyController {
 
+  /** Headers that describe a connection rather than a message, or that the HTTP client sets itself */
+  static final Set<String> REQUEST_HEADERS_NOT_FORWARDED = Set.of("connection", "content-length", "expect",
+      "host", "upgrade", "keep-alive", "te", "trailer", "transfer-encoding", "proxy-authorization",
+      "cookie", "authorization");
+
+  /** Headers of the frontend server's response that describe its connection to us */
+  static final Set<String> RESPONSE_HEADERS_NOT_RETURNED = Set.of("connection", "keep-alive", "te",
+      "trailer", "transfer-encoding", "upgrade", "proxy-authenticate");
+
+  /** A content hash in a file name, e.g. logo.6ce24c58.svg or main.1a2b3c4d5e.hot-update.js */
+  static final Pattern HASHED_NAME = Pattern.compile("\\.[0-9a-f]{8,}\\.[^/]*$");
+
+  /** The response of the frontend server for an asset that cannot change */
+  record Asset(int status, Map<String, List<String>> headers, byte[] body) {
+  }
+
   @Autowired
   WiremockService wiremockService;
-  
+
+  @Value("${app.frontend.proxy.url:http://localhost:3000}")
+  private String frontendUrl;
+
+  @Value("${app.frontend.proxy.cache.maximum-bytes:0}")
+  private long cacheMaximumBytes;
+
+  private HttpClient httpClient;
+
+  private Cache<String, Asset> assetCache;
+
+  /**
+   * This method builds the HTTP client, and the asset cache unless its size is 0.
+   */
+  @PostConstruct
+  void start() {
+    httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .build();
+    if (cacheMaximumBytes > 0) {
+      assetCache = Caffeine.newBuilder()
+          .maximumWeight(cacheMaximumBytes)
+          .weigher((String key, Asset asset) -> asset.body().length)
+          .build();
+    }
+  }
+
+  /**
+   * This method closes the HTTP client's connections.
+   */
+  @PreDestroy
+  void stop() {
+    httpClient.close();
+  }
+
   /**
    * This method proxies requests to the frontend server.  It is only used in development.
    * The regular expression is used to exclude the paths that should NOT be proxied to the
    * frontend server, such as the endpoints for the api, oauth2, and swagger-ui.
-   * 
-   * @param proxy the proxy exchange, injected by Spring automatically
-   * @return response entity with the response from the frontend server, or a response entity with instructions in case the frontend server cannot be reached.
+   *
+   * The response of the frontend server is copied to the response, or, in case the
+   * frontend server cannot be reached, instructions are sent instead.
+   *
+   * @param request the request (provided by Spring)
+   * @param response the response (provided by Spring)
+   * @throws IOException if the frontend server cannot be read, or the client cannot be written to
+   * @throws InterruptedException if the thread is interrupted while waiting for the frontend server
    */
 
   @GetMapping({"/", "/{path:^(?!api|oauth2|swagger-ui|h2-console).*}/**"})
-  public ResponseEntity<?> proxy(ProxyExchange<byte []> proxy) {
-    String path = proxy.path("/");
+  public void proxy(HttpServletRequest request, HttpServletResponse response)
+      throws IOException, InterruptedException {
+    String target = (request.getQueryString() == null) ? request.getRequestURI()
+        : request.getRequestURI() + "?" + request.getQueryString();
+    boolean cacheable = assetCache != null && request.getMethod().equals("GET");
+    String cacheKey = target + " " + request.getHeader("Accept-Encoding");
+    Asset cached = cacheable ? assetCache.getIfPresent(cacheKey) : null;
+    if (cached != null) {
+      writeHead(response, cached.status(), cached.headers());
+      response.getOutputStream().write(cached.body());
+      return;
+    }
+
+    HttpRequest.Builder upstream = HttpRequest.newBuilder(URI.create(frontendUrl + target))
+        .method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+    for (String name : Collections.list(request.getHeaderNames())) {
+      if (!REQUEST_HEADERS_NOT_FORWARDED.contains(name.toLowerCase())) {
+        for (String value : Collections.list(request.getHeaders(name))) {
+          upstream.header(name, value);
+        }
+      }
+    }
+
+    HttpResponse<InputStream> answer;
     try {
-      return proxy.uri("http://localhost:3000/" + path).get();
-    } catch (ResourceAccessException e) {
-      if (e.getCause() instanceof ConnectException) {
-        String instructions = """
-                <p>Failed to connect to the frontend server...</p>
-                <p>On Dokku, be sure that <code>PRODUCTION</code> is defined.</p>
-                <p>On localhost, open a second terminal window, cd into <code>frontend</code> and type: <code>npm install; npm start</code></p>
-                <p>Or, you may click to access: </p>
-                <ul>
-                  <li><a href='/swagger-ui/index.html'>/swagger-ui/index.html</a></li>
-                  <li><a href='/h2-console'>/h2-console</a></li>
-                </ul>""";
-
-        return ResponseEntity.ok(instructions);
+      answer = httpClient.send(upstream.build(), HttpResponse.BodyHandlers.ofInputStream());
+    } catch (ConnectException e) {
+      writeInstructions(response);
+      return;
+    }
+
+    Map<String, List<String>> headers = answer.headers().map();
+    writeHead(response, answer.statusCode(), headers);
+    try (InputStream body = answer.body()) {
+      OutputStream out = response.getOutputStream();
+      if (cacheable && answer.statusCode() == 200 && isImmutable(request.getRequestURI(), answer)) {
+        byte[] bytes = body.readAllBytes();
+        assetCache.put(cacheKey, new Asset(answer.statusCode(), headers, bytes));
+        out.write(bytes);
+      } else {
+        body.transferTo(out);
       }
-      throw e;
     }
   }
+
+  /**
+   * This method tells whether an asset cannot change: its name has a content hash, or the
+   * frontend server says so (Cache-Control: immutable).
+   * @param path the path of the asset
+   * @param answer the response of the frontend server
+   * @return whether the asset cannot change
+   */
+  static boolean isImmutable(String path, HttpResponse<?> answer) {
+    return HASHED_NAME.matcher(path).find()
+        || answer.headers().allValues("Cache-Control").stream().anyMatch(value -> value.contains("immutable"));
+  }
+
+  private static void writeHead(HttpServletResponse response, int status, Map<String, List<String>> headers) {
+    response.setStatus(status);
+    headers.forEach((name, values) -> {
+      if (!RESPONSE_HEADERS_NOT_RETURNED.contains(name.toLowerCase())) {
+        values.forEach(value -> response.addHeader(name, value));
+      }
+    });
+  }
+
+  private static void writeInstructions(HttpServletResponse response) throws IOException {
+    String instructions = """
+            <p>Failed to connect to the frontend server...</p>
+            <p>On Dokku, be sure that <code>PRODUCTION</code> is defined.</p>
+            <p>On localhost, open a second terminal window, cd into <code>frontend</code> and type: <code>npm install; npm start</code></p>
+            <p>Or, you may click to access: </p>
+            <ul>
+              <li><a href='/swagger-ui/index.html'>/swagger-ui/index.html</a></li>
+              <li><a href='/h2-console'>/h2-console</a></li>
+            </ul>""";
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(MediaType.TEXT_HTML_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.getWriter().write(instructions);
+  }
 }
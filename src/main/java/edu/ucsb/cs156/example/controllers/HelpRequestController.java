@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.events.HelpRequestChangedEvent;
+import edu.ucsb.cs156.example.events.HelpRequestsDeletedEvent;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestStreamService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +18,30 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequest")
@@ -36,6 +52,18 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    HelpRequestStreamService helpRequestStreamService;
+
+    @Autowired
+    ApplicationEventPublisher publisher;
+
     // GET (all entries) : lists all help requests
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
@@ -45,16 +73,44 @@ public class HelpRequestController extends ApiController {
         return requests;
     }
 
+    // GET (one page of entries) : lists help requests with an id greater than after, ordered by id
+    @Operation(summary= "List help requests one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<HelpRequest, Long> pageHelpRequests(
+            @Parameter(name="after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<HelpRequest> requests = helpRequestRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(requests, HelpRequest::getId);
+    }
+
+    // GET (export) : streams all help requests as newline-delimited JSON, one per line
+    @Operation(summary= "Export all help requests as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/export", produces = NdjsonExportService.NDJSON)
+    public void exportHelpRequests(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonExportService.NDJSON);
+        ndjsonExportService.export(HelpRequest.class, response.getOutputStream());
+    }
+
+    // GET (stream) : pushes help requests as server-sent events as they are created, updated, solved and deleted
+    @Operation(summary= "Stream changes to help requests as server-sent events")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHelpRequests() {
+        return helpRequestStreamService.subscribe();
+    }
+
     // GET (by ID / single entry): Gets a single help request by id
     @Operation(summary= "Get a single help request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public HelpRequest getById(
+    public ResponseEntity<HelpRequest> getById(
             @Parameter(name="id") @RequestParam Long id) {
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
-        return helpRequest;
+        return withVersion(helpRequest, helpRequest.getVersion());
     }
 
     // POST : creates a new help request entry for HelpRequest data table
@@ -85,6 +141,7 @@ public class HelpRequestController extends ApiController {
         helpRequest.setRequestTime(requestTime);
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        publisher.publishEvent(new HelpRequestChangedEvent(HelpRequestChangedEvent.Type.CREATED, savedHelpRequest));
 
         return savedHelpRequest;
     }
@@ -93,10 +150,19 @@ public class HelpRequestController extends ApiController {
     @Operation(summary= "Update a single help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public HelpRequest updateHelpRequest(
+    public ResponseEntity<HelpRequest> updateHelpRequest(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid HelpRequest incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            HelpRequest updated = optimisticUpdateService.update(id, version, incoming,
+                    "requesterEmail", "teamId", "tableOrBreakoutRoom", "explanation", "solved", "requestTime");
+            helpRequestChanged(updated);
+            return withVersion(updated, updated.getVersion());
+        }
+
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
@@ -107,9 +173,17 @@ public class HelpRequestController extends ApiController {
         helpRequest.setSolved(incoming.getSolved());
         helpRequest.setRequestTime(incoming.getRequestTime());
 
-        helpRequestRepository.save(helpRequest);
+        HelpRequest saved = helpRequestRepository.save(helpRequest);
+        helpRequestChanged(saved);
+
+        return withVersion(saved, saved.getVersion());
+    }
 
-        return helpRequest;
+    private void helpRequestChanged(HelpRequest helpRequest) {
+        HelpRequestChangedEvent.Type type = helpRequest.getSolved()
+                ? HelpRequestChangedEvent.Type.SOLVED
+                : HelpRequestChangedEvent.Type.UPDATED;
+        publisher.publishEvent(new HelpRequestChangedEvent(type, helpRequest));
     }
 
     // DELETE : deletes a single entry in the data table via ID.
@@ -118,10 +192,30 @@ public class HelpRequestController extends ApiController {
     @DeleteMapping("")
     public Object deleteHelpRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+        requireDeleted(HelpRequest.class, id, helpRequestRepository.deleteRowById(id));
+        publisher.publishEvent(new HelpRequestsDeletedEvent(List.of(id)));
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
+
+    /**
+     * Delete many help requests at once, e.g. to purge them at the end of a quarter
+     * 
+     * @param ids the ids of the help requests to delete; ids that do not exist are ignored
+     * @return a message indicating how many help requests were deleted
+     */
+    @Operation(summary= "Delete many help requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public Object deleteHelpRequests(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        List<Long> deletedIds = new ArrayList<>();
+        int deleted = bulkDelete(HelpRequest.class, ids, some -> {
+            deletedIds.addAll(helpRequestRepository.deleteRowsReturningIds(some));
+            return deletedIds.size();
+        });
+        if (deleted > 0) {
+            publisher.publishEvent(new HelpRequestsDeletedEvent(deletedIds));
+        }
+        return genericMessage("%d of %d HelpRequests deleted".formatted(deleted, ids.size()));
+    }
 }
\ No newline at end of file
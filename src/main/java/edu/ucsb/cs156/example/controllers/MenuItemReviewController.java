@@ -1,7 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewSummary;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.MenuItemReviewSummaryService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,19 +17,25 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 
 @Tag(name = "MenuItemReview")
@@ -36,6 +47,15 @@ public class MenuItemReviewController extends ApiController{
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    MenuItemReviewSummaryService menuItemReviewSummaryService;
+
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
     @Operation(summary= "List all menu item reviews")
         @PreAuthorize("hasRole('ROLE_USER')")
         @GetMapping("/all")
@@ -44,9 +64,36 @@ public class MenuItemReviewController extends ApiController{
             return reviews;
         }
 
+    @Operation(summary= "List menu item reviews one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<MenuItemReview, Long> pageMenuItemReviews(
+            @Parameter(name="after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<MenuItemReview> reviews = menuItemReviewRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(reviews, MenuItemReview::getId);
+    }
+
+    @Operation(summary= "Export all menu item reviews as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/export", produces = NdjsonExportService.NDJSON)
+    public void exportMenuItemReviews(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonExportService.NDJSON);
+        ndjsonExportService.export(MenuItemReview.class, response.getOutputStream());
+    }
+
+    @Operation(summary= "Get the rating summary (count, average, min, max and histogram of stars) for a menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summary")
+    public MenuItemReviewSummary getSummary(
+            @Parameter(name="itemId") @RequestParam long itemId) {
+        return menuItemReviewSummaryService.getSummary(itemId);
+    }
+
     @Operation(summary= "Create a new review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId") @RequestParam long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
@@ -60,6 +107,8 @@ public class MenuItemReviewController extends ApiController{
 
         //log.info("localDateTime={}", dateReviewed);
 
+        MenuItemReviewSummaryService.checkStars(stars);
+
         MenuItemReview menuItemReview = new MenuItemReview();
         menuItemReview.setItemId(itemId);
         menuItemReview.setReviewerEmail(reviewerEmail);
@@ -68,6 +117,7 @@ public class MenuItemReviewController extends ApiController{
         menuItemReview.setComments(comments);
 
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        menuItemReviewSummaryService.reviewAdded(savedMenuItemReview);
 
         return savedMenuItemReview;
     }
@@ -75,45 +125,64 @@ public class MenuItemReviewController extends ApiController{
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public MenuItemReview getById(
+    public ResponseEntity<MenuItemReview> getById(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
-        return menuItemReview;
+        return withVersion(menuItemReview, menuItemReview.getVersion());
     }
 
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object delteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
         menuItemReviewRepository.delete(menuItemReview);
+        menuItemReviewSummaryService.reviewRemoved(menuItemReview);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public MenuItemReview updateMenuItemReview(
+    @Transactional
+    public ResponseEntity<MenuItemReview> updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid MenuItemReview incoming) {
 
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
+        MenuItemReviewSummaryService.checkStars(incoming.getStars());
+        long oldItemId = menuItemReview.getItemId();
+        int oldStars = menuItemReview.getStars();
+
+        // Unlike the other entities, a review is read even with If-Match, since the
+        // rating summary needs its old item and stars
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            MenuItemReview updated = optimisticUpdateService.update(id, version, incoming,
+                    "itemId", "reviewerEmail", "stars", "dateReviewed", "comments");
+            menuItemReviewSummaryService.reviewChanged(oldItemId, oldStars, updated);
+            return withVersion(updated, updated.getVersion());
+        }
+
         menuItemReview.setItemId(incoming.getItemId());
         menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
         menuItemReview.setStars(incoming.getStars());
         menuItemReview.setDateReviewed(incoming.getDateReviewed());
         menuItemReview.setComments(incoming.getComments());
 
-        menuItemReviewRepository.save(menuItemReview);
+        MenuItemReview saved = menuItemReviewRepository.save(menuItemReview);
+        menuItemReviewSummaryService.reviewChanged(oldItemId, oldStars, saved);
 
-        return menuItemReview;
+        return withVersion(saved, saved.getVersion());
     }
 
 }
\ No newline at end of file
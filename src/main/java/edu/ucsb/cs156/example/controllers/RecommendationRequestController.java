@@ -1,7 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.repositories.UCSBRecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -14,20 +17,26 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for RecommendationRequest
@@ -43,6 +52,12 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     UCSBRecommendationRequestRepository  ucsbRecommendationRequestRepository; 
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
         /**
      * List all UCSB dates
      * 
@@ -56,6 +71,37 @@ public class RecommendationRequestController extends ApiController {
         return requests;   
     }
 
+    /**
+     * List recommendation requests one page at a time, ordered by id
+     * 
+     * @param after only requests with an id greater than this are listed
+     * @param size the maximum number of requests to return
+     * @return a page of recommendation requests, and the id to pass as after for the next page
+     */
+    @Operation(summary= "List ucsb recommendation requests one page at a time")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBRecommendationRequest, Long> pageRecommendationRequests(
+            @Parameter(name="after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<UCSBRecommendationRequest> requests = ucsbRecommendationRequestRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(requests, UCSBRecommendationRequest::getId);
+    }
+
+    /**
+     * Export all recommendation requests as newline-delimited JSON, one request per line
+     * 
+     * @param response the response to stream the requests to
+     * @throws IOException if the response cannot be written
+     */
+    @Operation(summary= "Export all ucsb recommendation requests as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(value = "/export", produces = NdjsonExportService.NDJSON)
+    public void exportRecommendationRequests(HttpServletResponse response) throws IOException {
+        response.setContentType(NdjsonExportService.NDJSON);
+        ndjsonExportService.export(UCSBRecommendationRequest.class, response.getOutputStream());
+    }
+
 
 
     /**
@@ -113,13 +159,13 @@ public class RecommendationRequestController extends ApiController {
     @Operation(summary= "Get a single recommendation by id")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBRecommendationRequest getById(
+    public ResponseEntity<UCSBRecommendationRequest> getById(
             @Parameter(name="id") @RequestParam Long id) {
                 UCSBRecommendationRequest ucsbRecommendationRequest = ucsbRecommendationRequestRepository
                 .findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBRecommendationRequest.class, id));
 
-        return ucsbRecommendationRequest;
+        return withVersion(ucsbRecommendationRequest, ucsbRecommendationRequest.getVersion());
     }
 
 
@@ -127,16 +173,25 @@ public class RecommendationRequestController extends ApiController {
      * Update a single recommendation request
      * 
      * @param id       id of the date to update
+     * @param ifMatch  optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the recommendation request
      * @return the updated recommendation request object
      */
     @Operation(summary= "Update a recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBRecommendationRequest updateRecommendationRequest(
+    public ResponseEntity<UCSBRecommendationRequest> updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBRecommendationRequest incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            UCSBRecommendationRequest updated = optimisticUpdateService.update(id, version, incoming,
+                    "requesterEmail", "professorEmail", "explanation", "dateRequested", "dateNeeded", "done");
+            return withVersion(updated, updated.getVersion());
+        }
+
         UCSBRecommendationRequest ucsbRecommendationRequest = ucsbRecommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBRecommendationRequest.class, id));
 
@@ -147,9 +202,9 @@ public class RecommendationRequestController extends ApiController {
         ucsbRecommendationRequest.setId(id);
         ucsbRecommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
         ucsbRecommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
-        ucsbRecommendationRequestRepository.save(ucsbRecommendationRequest);
+        UCSBRecommendationRequest saved = ucsbRecommendationRequestRepository.save(ucsbRecommendationRequest);
 
-        return ucsbRecommendationRequest;
+        return withVersion(saved, saved.getVersion());
     }
 
         /**
@@ -163,13 +218,25 @@ public class RecommendationRequestController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-            UCSBRecommendationRequest ucsbRecommendationRequest = ucsbRecommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBRecommendationRequest.class, id));
-
-        ucsbRecommendationRequestRepository.delete(ucsbRecommendationRequest);
+        requireDeleted(UCSBRecommendationRequest.class, id, ucsbRecommendationRequestRepository.deleteRowById(id));
         return genericMessage("UCSBRecommendationRequest with id %s deleted".formatted(id));
     }
 
+    /**
+     * Delete many recommendation requests at once, e.g. to purge them at the end of a quarter
+     * 
+     * @param ids the ids of the recommendation requests to delete; ids that do not exist are ignored
+     * @return a message indicating how many recommendation requests were deleted
+     */
+    @Operation(summary= "Delete many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public Object deleteRecommendationRequests(
+            @Parameter(name="ids") @RequestParam List<Long> ids) {
+        int deleted = bulkDelete(UCSBRecommendationRequest.class, ids, ucsbRecommendationRequestRepository::deleteRowsByIdIn);
+        return genericMessage("%d of %d UCSBRecommendationRequests deleted".formatted(deleted, ids.size()));
+    }
+
 
     
 }
\ No newline at end of file
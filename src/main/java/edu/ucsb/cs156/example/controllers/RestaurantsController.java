@@ -2,19 +2,24 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -33,6 +38,9 @@ public class RestaurantsController extends ApiController {
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
     /**
      * This method returns a list of all restaurants.
      * @return a list of all restaurants
@@ -45,6 +53,22 @@ public class RestaurantsController extends ApiController {
         return restaurants;
     }
 
+    /**
+     * This method returns one page of restaurants, ordered by id.
+     * @param after only restaurants with an id greater than this are listed
+     * @param size the maximum number of restaurants to return
+     * @return a page of restaurants, and the id to pass as after for the next page
+     */
+    @Operation(summary = "List restaurants one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Restaurant, Long> pageRestaurants(
+            @Parameter(name = "after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name = "size") @RequestParam(required = false) Integer size) {
+        Slice<Restaurant> restaurants = restaurantRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(restaurants, Restaurant::getId);
+    }
+
     /**
      * This method returns a single restaurant.
      * @param id id of the restaurant to get
@@ -53,12 +77,12 @@ public class RestaurantsController extends ApiController {
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Restaurant getById(
+    public ResponseEntity<Restaurant> getById(
             @Parameter(name = "id") @RequestParam Long id) {
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
-        return restaurant;
+        return withVersion(restaurant, restaurant.getVersion());
     }
 
     /**
@@ -92,34 +116,40 @@ public class RestaurantsController extends ApiController {
     @DeleteMapping("")
     public Object deleteRestaurant(
             @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-        restaurantRepository.delete(restaurant);
+        requireDeleted(Restaurant.class, id, restaurantRepository.deleteRowById(id));
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
     /**
      * Update a single restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param id id of the restaurant to update
+     * @param ifMatch optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the new restaurant contents
      * @return the updated restaurant object
      */
     @Operation(summary = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public Restaurant updateRestaurant(
+    public ResponseEntity<Restaurant> updateRestaurant(
             @Parameter(name = "id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid Restaurant incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            Restaurant updated = optimisticUpdateService.update(id, version, incoming,
+                    "name", "description");
+            return withVersion(updated, updated.getVersion());
+        }
+
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
         restaurant.setName(incoming.getName());
         restaurant.setDescription(incoming.getDescription());
 
-        restaurantRepository.save(restaurant);
+        Restaurant saved = restaurantRepository.save(restaurant);
 
-        return restaurant;
+        return withVersion(saved, saved.getVersion());
     }
 }
\ No newline at end of file
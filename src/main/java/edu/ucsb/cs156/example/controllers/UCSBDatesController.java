@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
+import edu.ucsb.cs156.example.services.UCSBDateCalendarService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +17,28 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * This is a REST controller for UCSBDates
@@ -37,20 +50,104 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    private static final String QUARTER_YYYYQ = "\\d{4}[1-4]";
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    UCSBDateCalendarService ucsbDateCalendarService;
+
     /**
-     * List all UCSB dates
+     * List all UCSB dates.
+     * It is answered with 304 Not Modified if the If-None-Match ETag is still current.
      * 
+     * @param request the request (injected by Spring)
      * @return an iterable of UCSBDate
      */
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<Iterable<UCSBDate>> allUCSBDates(WebRequest request) {
+        return conditionalGet(UCSBDate.class, request, ucsbDateRepository::findAll);
+    }
+
+    /**
+     * List UCSB dates one page at a time, ordered by id
+     * 
+     * @param after only dates with an id greater than this are listed
+     * @param size  the maximum number of dates to return
+     * @return a page of UCSBDate, and the id to pass as after for the next page
+     */
+    @Operation(summary= "List ucsb dates one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDate, Long> pageUCSBDates(
+            @Parameter(name="after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<UCSBDate> dates = ucsbDateRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(dates, UCSBDate::getId);
+    }
+
+    /**
+     * List the next dates after a time
+     * 
+     * @param after only dates after this time are listed; if omitted, the current time
+     * @param limit the maximum number of dates to return
+     * @return the dates, earliest first
+     */
+    @Operation(summary= "List the next ucsb dates after a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/upcoming")
+    public List<UCSBDate> upcomingUCSBDates(
+            @Parameter(name="after", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS); if omitted, now") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime after,
+            @Parameter(name="limit") @RequestParam(required = false) Integer limit) {
+        return ucsbDateCalendarService.upcoming((after == null) ? LocalDateTime.now() : after, pageSize(limit));
+    }
+
+    /**
+     * List the dates in a range of times, at most limit of them; to list more, ask again
+     * with start set to the time of the last date listed (dates at that time are listed again)
+     * 
+     * @param start the start of the range (inclusive)
+     * @param end   the end of the range (exclusive)
+     * @param limit the maximum number of dates to return
+     * @return the dates, earliest first
+     */
+    @Operation(summary= "List the ucsb dates in a range of times")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public List<UCSBDate> rangeOfUCSBDates(
+            @Parameter(name="start", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS), inclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @Parameter(name="end", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS), exclusive") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @Parameter(name="limit") @RequestParam(required = false) Integer limit) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("end %s is before start %s".formatted(end, start));
+        }
+        return ucsbDateCalendarService.range(start, end, pageSize(limit));
+    }
+
+    /**
+     * List the dates of a quarter
+     * 
+     * @param yyyyq the quarter in the format YYYYQ
+     * @return the dates, earliest first
+     */
+    @Operation(summary= "List the ucsb dates of a quarter")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter/{yyyyq}")
+    public List<UCSBDate> quarterOfUCSBDates(
+            @Parameter(name="yyyyq", description="quarter in the format YYYYQ, e.g. 20224") @PathVariable String yyyyq) {
+        if (!yyyyq.matches(QUARTER_YYYYQ)) {
+            throw new IllegalArgumentException("quarter must be a year and quarter (1-4) in the format YYYYQ, got %s".formatted(yyyyq));
+        }
+        return ucsbDateCalendarService.quarter(yyyyq);
     }
 
     /**
@@ -62,12 +159,12 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDate getById(
+    public ResponseEntity<UCSBDate> getById(
             @Parameter(name="id") @RequestParam Long id) {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
-        return ucsbDate;
+        return withVersion(ucsbDate, ucsbDate.getVersion());
     }
 
     /**
@@ -102,6 +199,34 @@ public class UCSBDatesController extends ApiController {
         return savedUcsbDate;
     }
 
+    /**
+     * Create many dates at once, e.g. to seed a new quarter
+     * 
+     * @param dates the dates to create; any ids given are ignored
+     * @return how many dates were created, and the problems with each one that was not
+     */
+    @Operation(summary= "Create many dates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public BulkInsertResult bulkUCSBDates(@RequestBody List<UCSBDate> dates) {
+        dates.stream().filter(Objects::nonNull).forEach(date -> date.setId(0));
+        return bulkInsert(dates, this::validate, bulkInsertService::insertAll);
+    }
+
+    private List<String> validate(UCSBDate date) {
+        List<String> problems = new ArrayList<>();
+        if (date.getQuarterYYYYQ() == null || !date.getQuarterYYYYQ().matches(QUARTER_YYYYQ)) {
+            problems.add("quarterYYYYQ must be a year and quarter (1-4) in the format YYYYQ, e.g. 20224");
+        }
+        if (date.getName() == null || date.getName().isBlank()) {
+            problems.add("name is required");
+        }
+        if (date.getLocalDateTime() == null) {
+            problems.add("localDateTime is required");
+        }
+        return problems;
+    }
+
     /**
      * Delete a UCSBDate
      * 
@@ -113,10 +238,7 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        requireDeleted(UCSBDate.class, id, ucsbDateRepository.deleteRowById(id));
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -124,16 +246,25 @@ public class UCSBDatesController extends ApiController {
      * Update a single date
      * 
      * @param id       id of the date to update
+     * @param ifMatch  optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the new date
      * @return the updated date object
      */
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDate updateUCSBDate(
+    public ResponseEntity<UCSBDate> updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDate incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            UCSBDate updated = optimisticUpdateService.update(id, version, incoming,
+                    "quarterYYYYQ", "name", "localDateTime");
+            return withVersion(updated, updated.getVersion());
+        }
+
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
@@ -141,8 +272,8 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setName(incoming.getName());
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
-        ucsbDateRepository.save(ucsbDate);
+        UCSBDate saved = ucsbDateRepository.save(ucsbDate);
 
-        return ucsbDate;
+        return withVersion(saved, saved.getVersion());
     }
 }
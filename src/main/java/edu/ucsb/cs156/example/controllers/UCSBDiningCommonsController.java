@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsSnapshotService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +14,24 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommons
  */
@@ -35,32 +45,79 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
+    @Autowired
+    UCSBDiningCommonsSnapshotService ucsbDiningCommonsSnapshotService;
+
     /**
-     * THis method returns a list of all ucsbdiningcommons.
+     * THis method returns a list of all ucsbdiningcommons, from the in-memory snapshot.
+     * It is answered with 304 Not Modified if the If-None-Match ETag is still current.
+     * @param request the request (injected by Spring)
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<Iterable<UCSBDiningCommons>> allCommonss(WebRequest request) {
+        return conditionalGet(UCSBDiningCommons.class, request, ucsbDiningCommonsSnapshotService::getAll);
+    }
+
+    /**
+     * This method returns one page of ucsbdiningcommons, ordered by code.
+     * @param after only commons with a code after this one are listed
+     * @param size the maximum number of commons to return
+     * @return a page of ucsbdiningcommons, and the code to pass as after for the next page
+     */
+    @Operation(summary= "List ucsb dining commons one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommons, String> pageCommons(
+            @Parameter(name="after") @RequestParam(defaultValue = "") String after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findByCodeGreaterThan(after, keysetPageable(size, "code"));
+        return keysetPage(commons, UCSBDiningCommons::getCode);
     }
 
     /**
-     * This method returns a single diningcommons.
+     * This method returns a single diningcommons, from the in-memory snapshot.
      * @param code code of the diningcommons
      * @return a single diningcommons
      */
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommons getById(
+    public ResponseEntity<UCSBDiningCommons> getById(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        UCSBDiningCommons commons = ucsbDiningCommonsSnapshotService.getByCode(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
-        return commons;
+        return withVersion(commons, commons.getVersion());
+    }
+
+    /**
+     * This method returns the diningcommons nearest to a point, nearest first.
+     * Commons without a latitude and longitude are left out.
+     * @param lat latitude of the point, in degrees
+     * @param lon longitude of the point, in degrees
+     * @param k the maximum number of commons to return
+     * @return the nearest commons, each with its distance in meters from the point
+     */
+    @Operation(summary= "List the commons nearest to a point")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<DiningCommonsDistance> nearestCommons(
+            @Parameter(name="lat") @RequestParam double lat,
+            @Parameter(name="lon") @RequestParam double lon,
+            @Parameter(name="k") @RequestParam(defaultValue = "1") int k) {
+        if (!(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            throw new IllegalArgumentException("lat must be between -90 and 90, and lon between -180 and 180");
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, got %d".formatted(k));
+        }
+        return ucsbDiningCommonsSnapshotService.nearest(lat, lon, k);
     }
 
     /**
@@ -112,26 +169,32 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        requireDeleted(UCSBDiningCommons.class, code, ucsbDiningCommonsRepository.deleteRowByCode(code));
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
     /**
      * Update a single diningcommons. Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the diningcommons
+     * @param ifMatch optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the new commons contents
      * @return the updated commons object
      */
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDiningCommons updateCommons(
+    public ResponseEntity<UCSBDiningCommons> updateCommons(
             @Parameter(name="code") @RequestParam String code,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            UCSBDiningCommons updated = optimisticUpdateService.update(code, version, incoming,
+                    "name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
+            return withVersion(updated, updated.getVersion());
+        }
+
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
@@ -143,8 +206,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLatitude(incoming.getLatitude());
         commons.setLongitude(incoming.getLongitude());
 
-        ucsbDiningCommonsRepository.save(commons);
+        UCSBDiningCommons saved = ucsbDiningCommonsRepository.save(commons);
 
-        return commons;
+        return withVersion(saved, saved.getVersion());
     }
 }
\ No newline at end of file
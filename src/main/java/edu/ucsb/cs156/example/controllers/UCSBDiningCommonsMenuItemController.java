@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.MenuItemImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +18,30 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
@@ -37,6 +53,15 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    MenuItemImportService menuItemImportService;
+
     /**
      * List all UCSB dining commons' menu items
      * 
@@ -50,6 +75,23 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         return menuitem;
     }
 
+    /**
+     * List UCSB dining commons' menu items one page at a time, ordered by id
+     * 
+     * @param after only menu items with an id greater than this are listed
+     * @param size the maximum number of menu items to return
+     * @return a page of UCSBDiningCommonsMenuItem, and the id to pass as after for the next page
+     */
+    @Operation(summary= "List UCSB dining commons' menu items one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommonsMenuItem, Long> pageUCSBDiningCommonsMenuItem(
+            @Parameter(name="after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<UCSBDiningCommonsMenuItem> menuitem = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThan(after, keysetPageable(size, "id"));
+        return keysetPage(menuitem, UCSBDiningCommonsMenuItem::getId);
+    }
+
     /**
      * Get a single item on the menu by id
      * 
@@ -59,12 +101,12 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @Operation(summary= "Get a single item on the menu")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommonsMenuItem getById(
+    public ResponseEntity<UCSBDiningCommonsMenuItem> getById(
             @Parameter(name="id") @RequestParam Long id) {
         UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
-        return ucsbDiningCommonsMenuItem;
+        return withVersion(ucsbDiningCommonsMenuItem, ucsbDiningCommonsMenuItem.getVersion());
     }
 
         /**
@@ -94,6 +136,62 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         return savedMenuItem;
     }
 
+    /**
+     * Create many menu items at once, e.g. to load a new menu
+     * 
+     * @param menuItems the menu items to create; any ids given are ignored
+     * @return how many menu items were created, and the problems with each one that was not
+     */
+    @Operation(summary= "Create many items on the menu at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public BulkInsertResult bulkMenuItems(@RequestBody List<UCSBDiningCommonsMenuItem> menuItems) {
+        menuItems.stream().filter(Objects::nonNull).forEach(menuItem -> menuItem.setId(0));
+        return bulkInsert(menuItems, this::validate, bulkInsertService::insertAll);
+    }
+
+    /**
+     * Import menu items from a CSV or newline-delimited JSON file, e.g. to load a new menu.
+     * The file is read as it arrives, and the progress is written as newline-delimited JSON,
+     * a line after each batch of rows; the last line has done set.  Rows that are already on
+     * the menu are skipped, so a file can be imported again.  A CSV file whose first line
+     * does not name the columns is a bad request.
+     *
+     * @param request  the request, whose body is the file (injected by Spring)
+     * @param response the response, to write the progress to (injected by Spring)
+     * @throws IOException if the file cannot be read, or the progress cannot be written
+     */
+    @Operation(summary= "Import items on the menu from a CSV or newline-delimited JSON file")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MenuItemImportService.CSV, NdjsonExportService.NDJSON })
+    public void importMenuItems(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MenuItemImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(MenuItemImportService.CSV))
+                ? MenuItemImportService.Format.CSV : MenuItemImportService.Format.NDJSON;
+        response.setContentType(NdjsonExportService.NDJSON);
+        try {
+            menuItemImportService.importMenuItems(request.getInputStream(), format, response.getOutputStream());
+        } catch (IllegalArgumentException e) {
+            // nothing has been written yet, so the error can still be sent as JSON
+            response.reset();
+            throw e;
+        }
+    }
+
+    private List<String> validate(UCSBDiningCommonsMenuItem menuItem) {
+        List<String> problems = new ArrayList<>();
+        if (menuItem.getDiningCommonsCode() == null || menuItem.getDiningCommonsCode().isBlank()) {
+            problems.add("diningCommonsCode is required");
+        }
+        if (menuItem.getName() == null || menuItem.getName().isBlank()) {
+            problems.add("name is required");
+        }
+        if (menuItem.getStation() == null || menuItem.getStation().isBlank()) {
+            problems.add("station is required");
+        }
+        return problems;
+    }
+
     /**
      * Delete a UCSBDiningCommonsMenuItem
      * 
@@ -105,10 +203,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonsMenuItem);
+        requireDeleted(UCSBDiningCommonsMenuItem.class, id, ucsbDiningCommonsMenuItemRepository.deleteRowById(id));
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -116,16 +211,25 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
      * Update a single menu item
      * 
      * @param id       id of the menu item to update
+     * @param ifMatch  optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the new menu item
      * @return the updated menu item object
      */
     @Operation(summary= "Update a single item on the menu")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
+    public ResponseEntity<UCSBDiningCommonsMenuItem> updateUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            UCSBDiningCommonsMenuItem updated = optimisticUpdateService.update(id, version, incoming,
+                    "diningCommonsCode", "name", "station");
+            return withVersion(updated, updated.getVersion());
+        }
+
         UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
@@ -133,8 +237,8 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         ucsbDiningCommonsMenuItem.setName(incoming.getName());
         ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
 
-        ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
+        UCSBDiningCommonsMenuItem saved = ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
 
-        return ucsbDiningCommonsMenuItem;
+        return withVersion(saved, saved.getVersion());
     }
 }
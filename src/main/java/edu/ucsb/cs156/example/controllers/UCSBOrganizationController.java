@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
+import edu.ucsb.cs156.example.services.UCSBOrganizationSuggestService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +15,28 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * This is a REST controller for UCSBOrganization
  */
@@ -35,17 +50,63 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    OptimisticUpdateService optimisticUpdateService;
+
+    @Autowired
+    BulkInsertService bulkInsertService;
+
+    @Autowired
+    UCSBOrganizationSuggestService ucsbOrganizationSuggestService;
+
     /**
      * THis method returns a list of all ucsborgnization.
+     * It is answered with 304 Not Modified if the If-None-Match ETag is still current.
+     * @param request the request (injected by Spring)
      * @return a list of all ucsborgnization
      */
 
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    public ResponseEntity<Iterable<UCSBOrganization>> allOrganizations(WebRequest request) {
+        return conditionalGet(UCSBOrganization.class, request, ucsbOrganizationRepository::findAll);
+    }
+
+    /**
+     * This method returns one page of ucsborganization, ordered by orgCode.
+     * @param after only organizations with an orgCode after this one are listed
+     * @param size the maximum number of organizations to return
+     * @return a page of ucsborganization, and the orgCode to pass as after for the next page
+     */
+    @Operation(summary= "List ucsb organizations one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBOrganization, String> pageOrganizations(
+            @Parameter(name="after") @RequestParam(defaultValue = "") String after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size) {
+        Slice<UCSBOrganization> organizations = ucsbOrganizationRepository.findByOrgCodeGreaterThan(after, keysetPageable(size, "orgCode"));
+        return keysetPage(organizations, UCSBOrganization::getOrgCode);
+    }
+
+    /**
+     * This method suggests active organizations for an organization picker, as their
+     * code or name is typed.  Organizations whose orgCode starts with the prefix come
+     * first, then those whose name does, then those with a later word of their name that does.
+     * @param prefix what has been typed so far (ignoring case)
+     * @param limit the most organizations to return; at most app.suggest.max-limit are returned
+     * @return the matching organizations, best match first
+     */
+    @Operation(summary= "Suggest active ucsb organizations whose code or name starts with a prefix")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/suggest")
+    public List<UCSBOrganization> suggestOrganizations(
+            @Parameter(name="prefix") @RequestParam(defaultValue = "") String prefix,
+            @Parameter(name="limit") @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive, got %d".formatted(limit));
+        }
+        return ucsbOrganizationSuggestService.suggest(prefix, limit);
     }
 
   /**
@@ -56,12 +117,12 @@ public class UCSBOrganizationController extends ApiController {
     @Operation(summary= "Get a single organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBOrganization getById(
+    public ResponseEntity<UCSBOrganization> getById(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
         UCSBOrganization organizations = ucsbOrganizationRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
-        return organizations;
+        return withVersion(organizations, organizations.getVersion());
     }
 
     /**
@@ -96,19 +157,72 @@ public class UCSBOrganizationController extends ApiController {
 
 
 
+    /**
+     * This method creates many organizations at once. Accessible only to users with the role "ROLE_ADMIN".
+     * An organization is rejected if its orgCode already exists or appears earlier in the request.
+     * @param organizations the organizations to create
+     * @return how many organizations were created, and the problems with each one that was not
+     */
+    @Operation(summary= "Create many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public BulkInsertResult bulkOrganizations(@RequestBody List<UCSBOrganization> organizations) {
+        List<String> orgCodes = organizations.stream().filter(Objects::nonNull)
+                .map(UCSBOrganization::getOrgCode).filter(Objects::nonNull).toList();
+        // one query for every orgCode that is already taken, rather than one per row
+        Set<String> existing = new HashSet<>();
+        ucsbOrganizationRepository.findAllById(orgCodes).forEach(organization -> existing.add(organization.getOrgCode()));
+        Set<String> claimed = new HashSet<>();
+
+        return bulkInsert(organizations, organization -> validate(organization, existing, claimed),
+                bulkInsertService::insertAll);
+    }
+
+    private List<String> validate(UCSBOrganization organization, Set<String> existing, Set<String> claimed) {
+        List<String> problems = new ArrayList<>();
+        String orgCode = organization.getOrgCode();
+        if (orgCode == null || orgCode.isBlank()) {
+            problems.add("orgCode is required");
+        }
+        if (organization.getOrgTranslationShort() == null || organization.getOrgTranslationShort().isBlank()) {
+            problems.add("orgTranslationShort is required");
+        }
+        if (organization.getOrgTranslation() == null || organization.getOrgTranslation().isBlank()) {
+            problems.add("orgTranslation is required");
+        }
+        // only a row that will be inserted claims its orgCode
+        if (problems.isEmpty()) {
+            if (existing.contains(orgCode)) {
+                problems.add("orgCode %s already exists".formatted(orgCode));
+            } else if (!claimed.add(orgCode)) {
+                problems.add("orgCode %s is repeated in this request".formatted(orgCode));
+            }
+        }
+        return problems;
+    }
+
     /**
      * Update a single organizations. Accessible only to users with the role "ROLE_ADMIN".
      * @param orgCode code of the organizations
+     * @param ifMatch optional ETag of the version being edited; if it is no longer current, the update fails with 412
      * @param incoming the new organizations contents
      * @return the updated organizations object
      */
     @Operation(summary= "Update a single organizations")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
-    public UCSBOrganization updateOrganizations(
+    public ResponseEntity<UCSBOrganization> updateOrganizations(
             @Parameter(name="orgCode") @RequestParam String orgCode,
+            @Parameter(name="If-Match", description="the ETag of the version being edited; if it is no longer current, nothing is updated") @RequestHeader(name = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBOrganization incoming) {
 
+        Long version = requiredVersion(ifMatch);
+        if (version != null) {
+            UCSBOrganization updated = optimisticUpdateService.update(orgCode, version, incoming,
+                    "orgTranslationShort", "orgTranslation", "inactive");
+            return withVersion(updated, updated.getVersion());
+        }
+
         UCSBOrganization organizations = ucsbOrganizationRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
@@ -117,9 +231,9 @@ public class UCSBOrganizationController extends ApiController {
         organizations.setOrgTranslation(incoming.getOrgTranslation());
         organizations.setInactive(incoming.getInactive());
 
-        ucsbOrganizationRepository.save(organizations);
+        UCSBOrganization saved = ucsbOrganizationRepository.save(organizations);
 
-        return organizations;
+        return withVersion(saved, saved.getVersion());
     }
 
     /**
@@ -132,10 +246,7 @@ public class UCSBOrganizationController extends ApiController {
     @DeleteMapping("")
     public Object deleteOrganizations(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization organizations = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(organizations);
+        requireDeleted(UCSBOrganization.class, orgCode, ucsbOrganizationRepository.deleteRowByOrgCode(orgCode));
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 
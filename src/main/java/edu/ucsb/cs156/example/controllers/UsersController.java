@@ -1,19 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.models.UserFilter;
+import edu.ucsb.cs156.example.services.UserListService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
 
 /**
  * This is a REST controller for getting information about the users.
@@ -26,23 +30,37 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @RestController
 public class UsersController extends ApiController {
     @Autowired
-    UserRepository userRepository;
-
-    @Autowired
-    ObjectMapper mapper;
+    UserListService userListService;
 
     /**
-     * This method returns a list of all users.  Accessible only to users with the role "ROLE_ADMIN".
-     * @return a list of all users
-     * @throws JsonProcessingException if there is an error processing the JSON
+     * This method lists the users, ordered by id.  Accessible only to users with the role "ROLE_ADMIN".
+     * The users are streamed to the response as they are read, rather than collected first,
+     * so that memory use does not grow with the number of users.
+     * Without a size, every matching user is listed; with one, pass the id of the last user
+     * listed as after to get the next page.
+     * @param admin if given, only admins (true) or only non-admins (false) are listed
+     * @param domain if given, only users of this Google hosted domain (e.g. ucsb.edu) are listed
+     * @param lastLoginFrom if given, only users who last logged in at or after this time are listed
+     * @param lastLoginTo if given, only users who last logged in before this time are listed
+     * @param after only users with an id greater than this one are listed
+     * @param size the maximum number of users to list
+     * @param response the response to write the users to (injected by Spring)
+     * @throws IOException if the response cannot be written
      */
-    @Operation(summary= "Get a list of all users")
+    @Operation(summary= "Get a list of users")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void users(
+            @Parameter(name="admin") @RequestParam(required = false) Boolean admin,
+            @Parameter(name="domain") @RequestParam(required = false) String domain,
+            @Parameter(name="lastLoginFrom", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime lastLoginFrom,
+            @Parameter(name="lastLoginTo", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime lastLoginTo,
+            @Parameter(name="after") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="size") @RequestParam(required = false) Integer size,
+            HttpServletResponse response) throws IOException {
+        UserFilter filter = UserFilter.builder().admin(admin).hostedDomain(domain)
+                .lastLoginFrom(lastLoginFrom).lastLoginTo(lastLoginTo).build();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        userListService.write(filter, after, (size == null) ? null : pageSize(size), response.getOutputStream());
     }
-}
\ No newline at end of file
+}
@@ -3,9 +3,11 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,6 +18,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "articles")
+@EntityListeners(TableVersionListener.class)
 public class Articles {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,4 +29,7 @@ public class Articles {
     private String explanation;
     private String email;
     private LocalDateTime dateAdded;
+
+    @Version
+    private long version;
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity holding the running rating totals for one menu item:
+ * the number of reviews, the sum of their stars, the lowest and highest
+ * rating, and how many reviews gave each of 0 to 5 stars.
+ *
+ * Rows are maintained incrementally by MenuItemReviewSummaryService as reviews
+ * are posted, updated and deleted, so reading one is a single primary key lookup.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemreviewsummary")
+public class MenuItemReviewSummary {
+    /** The highest rating a review can give */
+    public static final int MAX_STARS = 5;
+
+    @Id
+    private long itemId;
+
+    private long reviewCount;
+    private long starsSum;
+    private Integer minStars;
+    private Integer maxStars;
+
+    private long stars0;
+    private long stars1;
+    private long stars2;
+    private long stars3;
+    private long stars4;
+    private long stars5;
+
+    /**
+     * Returns the average rating
+     * @return the mean number of stars, or null if the item has no reviews
+     */
+    public Double getAverageStars() {
+        return reviewCount == 0 ? null : (double) starsSum / reviewCount;
+    }
+}
@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.entities;
+
+import edu.ucsb.cs156.example.services.TableVersionService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * This is a JPA entity listener that tells the TableVersionService whenever an entity
+ * is inserted, updated or deleted, so that ETags for its table change, and in-memory
+ * copies of the table can apply the write.
+ * Hibernate creates it through Spring, so it can be autowired; the service is optional
+ * so that JPA test slices without it still work.
+ */
+public class TableVersionListener {
+
+  @Autowired
+  private ObjectProvider<TableVersionService> tableVersionService;
+
+  @Autowired
+  private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+  private Object idOf(Object entity) {
+    return entityManagerFactory.getObject().getPersistenceUnitUtil().getIdentifier(entity);
+  }
+
+  /**
+   * Record that the entity was just inserted or updated
+   * @param entity the entity that was inserted or updated
+   */
+  @PostPersist
+  @PostUpdate
+  public void entityWritten(Object entity) {
+    tableVersionService.ifAvailable(service -> service.written(Hibernate.getClass(entity), idOf(entity), entity));
+  }
+
+  /**
+   * Record that the entity was just deleted
+   * @param entity the entity that was deleted
+   */
+  @PostRemove
+  public void entityDeleted(Object entity) {
+    tableVersionService.ifAvailable(service -> service.deleted(Hibernate.getClass(entity), List.of(idOf(entity))));
+  }
+}
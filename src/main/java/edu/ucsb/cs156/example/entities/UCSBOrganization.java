@@ -1,11 +1,16 @@
 package edu.ucsb.cs156.example.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /** 
  * This is a JPA entity that represents a UCSBOrganization
@@ -18,6 +23,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsborganization")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsborganization")
+@EntityListeners(TableVersionListener.class)
 
 public class UCSBOrganization {
   @Id
@@ -26,4 +34,7 @@ public class UCSBOrganization {
   private String orgTranslationShort;
   private String orgTranslation;
   private boolean inactive;
+
+  @Version
+  private long version;
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -29,5 +30,7 @@ public class UCSBRecommendationRequest {
     private LocalDateTime dateRequested;
     private LocalDateTime dateNeeded;
     @Getter private boolean done;
-    
+
+    @Version
+    private long version;
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -10,6 +11,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 /**
  * This is a JPA entity that represents a user.
  */
@@ -17,8 +20,9 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-@Builder
+@Builder(toBuilder = true)
 @Entity(name = "users")
+@EntityListeners(UserListener.class)
 public class User {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,4 +37,6 @@ public class User {
   private String locale;
   private String hostedDomain;
   private boolean admin;
+  // when the user last logged in, to within app.current-user.cache.ttl-seconds
+  private LocalDateTime lastLogin;
 }
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.entities;
+
+import edu.ucsb.cs156.example.events.UserChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * This is a JPA entity listener that publishes a UserChangedEvent after a User
+ * is inserted, updated or deleted.  Hibernate creates it through Spring, so it can be autowired.
+ */
+public class UserListener {
+
+  @Autowired
+  private ApplicationEventPublisher publisher;
+
+  /**
+   * Publish a UserChangedEvent for the user that was just written
+   * @param user the user that was inserted, updated or deleted
+   */
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void userChanged(User user) {
+    publisher.publishEvent(new UserChangedEvent(user));
+  }
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a conditional request (e.g. a PUT with If-Match) was made against a version of
+ * an entity that is not its current version.
+ */
+public class PreconditionFailedException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param message a description of the precondition that failed
+   */
+  public PreconditionFailedException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructor for the exception
+   *
+   * @param entityType The class of the entity, e.g. UCSBDate.class
+   * @param id the id of the entity
+   * @param version the version the request expected the entity to have
+   */
+  public PreconditionFailedException(Class<?> entityType, Object id, long version) {
+    super("%s with id %s has been modified since version %d"
+      .formatted(entityType.getSimpleName(), id.toString(), version));
+  }
+}
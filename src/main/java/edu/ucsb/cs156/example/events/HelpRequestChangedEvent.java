@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.events;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This is an application event published by HelpRequestController whenever a help
+ * request is created or updated, so that the live queue can be pushed to TAs instead
+ * of being polled.
+ *
+ * @see edu.ucsb.cs156.example.services.HelpRequestStreamService
+ */
+
+@Data
+@AllArgsConstructor
+public class HelpRequestChangedEvent {
+
+  /**
+   * What happened to the help request; an update that leaves the request solved is SOLVED.
+   */
+  public enum Type {
+    CREATED, UPDATED, SOLVED
+  }
+
+  private Type type;
+  private HelpRequest helpRequest;
+}
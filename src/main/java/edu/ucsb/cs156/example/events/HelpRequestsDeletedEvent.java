@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.events;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This is an application event published by HelpRequestController whenever help
+ * requests are deleted, so that TAs watching the live queue can drop them.
+ *
+ * A bulk delete ignores ids that do not exist, so ids may include some that were
+ * never in the queue.
+ *
+ * @see edu.ucsb.cs156.example.services.HelpRequestStreamService
+ */
+
+@Data
+@AllArgsConstructor
+public class HelpRequestsDeletedEvent {
+  private List<Long> ids;
+}
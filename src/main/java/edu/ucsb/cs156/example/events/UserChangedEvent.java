@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.events;
+
+import edu.ucsb.cs156.example.entities.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This is an application event published whenever a User row is inserted, updated or deleted.
+ *
+ * Anything that caches users, or facts about them such as whether they are an admin,
+ * listens for it to drop stale entries, after the transaction that wrote the user commits.
+ *
+ * @see edu.ucsb.cs156.example.entities.UserListener
+ */
+
+@Data
+@AllArgsConstructor
+public class UserChangedEvent {
+  private User user;
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that represents the progress of an /import request, one of
+ * which is sent after each batch of rows is written.
+ *
+ * The counts are for all the rows read so far; the errors are those of the rows in
+ * the latest batch, each identified by the row's position (from 0) in the file.  The
+ * last one sent has {@code done} set.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ImportProgress {
+  private long rows;
+  private long inserted;
+  private long duplicates;
+  private long rejected;
+  private List<BulkInsertError> errors;
+  private boolean done;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that represents one page of a keyset paginated listing.
+ *
+ * The {@code next} field is the key of the last entry on the page; pass it back
+ * as the {@code after} parameter to get the following page.  It is null on the last page.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T, K> {
+  private List<T> content;
+  private K next;
+}
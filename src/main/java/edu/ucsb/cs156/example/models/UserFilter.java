@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.time.LocalDateTime;
+
+/**
+ * This is a model class that represents the filters of the admin users listing.
+ * A field that is null does not filter anything.
+ *
+ * The {@code lastLoginFrom} bound is inclusive and the {@code lastLoginTo} bound exclusive;
+ * users who have never logged in since last logins were recorded match neither.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class UserFilter {
+  private Boolean admin;
+  private String hostedDomain;
+  private LocalDateTime lastLoginFrom;
+  private LocalDateTime lastLoginTo;
+}
@@ -3,13 +3,36 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.Articles;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The ArticlesRepository is a repository for Articles entities
  */
 @Repository
 public interface ArticlesRepository extends CrudRepository<Articles, Long> {
-    
-}
\ No newline at end of file
+  /**
+   * This method returns the Articles entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of Articles entities
+   */
+  Slice<Articles> findByIdGreaterThan(long id, Pageable pageable);
+
+  /**
+   * This method deletes the Articles with the given id in a single statement, without
+   * reading it first.
+   * @param id the id of the article
+   * @return the number of rows deleted, i.e. 0 if there was no such article
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM articles a WHERE a.id = :id")
+  int deleteRowById(long id);
+}
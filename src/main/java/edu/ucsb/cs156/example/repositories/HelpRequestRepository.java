@@ -2,8 +2,19 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
+import jakarta.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
@@ -11,5 +22,60 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
-  
-}
\ No newline at end of file
+  /**
+   * This method returns the HelpRequest entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of HelpRequest entities
+   */
+  Slice<HelpRequest> findByIdGreaterThan(long id, Pageable pageable);
+
+  /**
+   * This method deletes the HelpRequest with the given id in a single statement, without
+   * reading it first.
+   * @param id the id of the help request
+   * @return the number of rows deleted, i.e. 0 if there was no such help request
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM helprequest h WHERE h.id = :id")
+  int deleteRowById(long id);
+
+  /**
+   * This method deletes the HelpRequest entities with any of the given ids in a single
+   * statement; ids with no help request are ignored.
+   * @param ids the ids of the help requests
+   * @return the number of rows deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM helprequest h WHERE h.id IN :ids")
+  int deleteRowsByIdIn(Collection<Long> ids);
+
+  /**
+   * This method locks the HelpRequest entities with any of the given ids, until the end of
+   * the current transaction, and returns their ids.
+   * @param ids the ids of the help requests
+   * @return the ids that have a help request
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT h.id FROM helprequest h WHERE h.id IN :ids")
+  List<Long> lockIdsByIdIn(Collection<Long> ids);
+
+  /**
+   * This method deletes the HelpRequest entities with any of the given ids and returns
+   * the ids it deleted; ids with no help request are ignored.  The rows are locked before
+   * they are deleted, so a concurrent delete of the same ids cannot report them too.
+   * @param ids the ids of the help requests
+   * @return the ids of the help requests that were deleted
+   */
+  @Transactional
+  default List<Long> deleteRowsReturningIds(Collection<Long> ids) {
+    List<Long> existing = lockIdsByIdIn(ids);
+    if (!existing.isEmpty()) {
+      deleteRowsByIdIn(existing);
+    }
+    return existing;
+  }
+}
@@ -2,6 +2,8 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,5 +13,12 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
-  
-}
\ No newline at end of file
+  /**
+   * This method returns the MenuItemReview entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of MenuItemReview entities
+   */
+  Slice<MenuItemReview> findByIdGreaterThan(long id, Pageable pageable);
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemReviewSummary;
+
+import jakarta.persistence.LockModeType;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The MenuItemReviewSummaryRepository is a repository for MenuItemReviewSummary entities.
+ */
+
+@Repository
+public interface MenuItemReviewSummaryRepository extends CrudRepository<MenuItemReviewSummary, Long> {
+  /**
+   * This method returns the summary for a menu item, locking its row until the
+   * end of the current transaction so concurrent review writes apply in turn.
+   * @param itemId the id of the menu item
+   * @return Optional of MenuItemReviewSummary (empty if the item has no summary row)
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM menuitemreviewsummary s WHERE s.itemId = :itemId")
+  Optional<MenuItemReviewSummary> findForUpdate(long itemId);
+}
@@ -2,12 +2,36 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
 public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+  /**
+   * This method returns the Restaurant entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of Restaurant entities
+   */
+  Slice<Restaurant> findByIdGreaterThan(long id, Pageable pageable);
+
+  /**
+   * This method deletes the Restaurant with the given id in a single statement, without
+   * reading it first.
+   * @param id the id of the restaurant
+   * @return the number of rows deleted, i.e. 0 if there was no such restaurant
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM restaurants r WHERE r.id = :id")
+  int deleteRowById(long id);
 }
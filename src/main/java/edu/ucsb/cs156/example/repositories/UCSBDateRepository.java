@@ -2,8 +2,17 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
@@ -11,10 +20,40 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+  /**
+   * This method returns all UCSBDate entities.  Its results are kept in the query cache
+   * until the table is next written.
+   * @return all UCSBDate entities
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDate> findAll();
+
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring 2024, 20243 for Summer 2024, 20244 for Fall 2024)
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  /**
+   * This method returns the UCSBDate entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of UCSBDate entities
+   */
+  Slice<UCSBDate> findByIdGreaterThan(long id, Pageable pageable);
+
+  /**
+   * This method deletes the UCSBDate with the given id in a single statement, without
+   * reading it first.
+   * @param id the id of the date
+   * @return the number of rows deleted, i.e. 0 if there was no such date
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbdates d WHERE d.id = :id")
+  int deleteRowById(long id);
+}
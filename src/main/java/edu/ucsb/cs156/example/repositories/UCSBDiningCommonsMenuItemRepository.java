@@ -2,9 +2,18 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDiningCommonsMenuItemRepository is a repository for UCSBDiningCommonsMenuItem entities
@@ -12,6 +21,32 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
-}
+  /**
+   * This method returns all UCSBDiningCommonsMenuItem entities.  Its results are kept in the query cache
+   * until the table is next written.
+   * @return all UCSBDiningCommonsMenuItem entities
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDiningCommonsMenuItem> findAll();
 
+  /**
+   * This method returns the UCSBDiningCommonsMenuItem entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of UCSBDiningCommonsMenuItem entities
+   */
+  Slice<UCSBDiningCommonsMenuItem> findByIdGreaterThan(long id, Pageable pageable);
 
+  /**
+   * This method deletes the UCSBDiningCommonsMenuItem with the given id in a single statement, without
+   * reading it first.
+   * @param id the id of the menu item
+   * @return the number of rows deleted, i.e. 0 if there was no such menu item
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbdiningcommonsmenuitem m WHERE m.id = :id")
+  int deleteRowById(long id);
+}
@@ -2,14 +2,50 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
 public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+  /**
+   * This method returns all UCSBDiningCommons entities.  Its results are kept in the query cache
+   * until the table is next written.
+   * @return all UCSBDiningCommons entities
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDiningCommons> findAll();
+
+  /**
+   * This method returns the UCSBDiningCommons entities with a code greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param code the code of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of UCSBDiningCommons entities
+   */
+  Slice<UCSBDiningCommons> findByCodeGreaterThan(String code, Pageable pageable);
+
+  /**
+   * This method deletes the UCSBDiningCommons with the given code in a single statement, without
+   * reading it first.
+   * @param code the code of the commons
+   * @return the number of rows deleted, i.e. 0 if there was no such commons
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbdiningcommons c WHERE c.code = :code")
+  int deleteRowByCode(String code);
+}
@@ -2,14 +2,50 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBOrganizationRepository is a repository for UCSBOrganization entities
  */
 @Repository
 public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
- 
-}
\ No newline at end of file
+  /**
+   * This method returns all UCSBOrganization entities.  Its results are kept in the query cache
+   * until the table is next written.
+   * @return all UCSBOrganization entities
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBOrganization> findAll();
+
+  /**
+   * This method returns the UCSBOrganization entities with an orgCode greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param orgCode the orgCode of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of UCSBOrganization entities
+   */
+  Slice<UCSBOrganization> findByOrgCodeGreaterThan(String orgCode, Pageable pageable);
+
+  /**
+   * This method deletes the UCSBOrganization with the given orgCode in a single statement, without
+   * reading it first.
+   * @param orgCode the orgCode of the organization
+   * @return the number of rows deleted, i.e. 0 if there was no such organization
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsborganization o WHERE o.orgCode = :orgCode")
+  int deleteRowByOrgCode(String orgCode);
+}
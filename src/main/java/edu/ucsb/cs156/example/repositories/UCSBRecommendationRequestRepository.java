@@ -1,11 +1,47 @@
 package edu.ucsb.cs156.example.repositories;
 
+import java.util.Collection;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
 
 @Repository
 public interface UCSBRecommendationRequestRepository extends CrudRepository<UCSBRecommendationRequest, Long> {
-    
-}
\ No newline at end of file
+  /**
+   * This method returns the UCSBRecommendationRequest entities with an id greater than the given one,
+   * ordered and limited by the pageable; it is used for keyset pagination.
+   * @param id the id of the last entity on the previous page
+   * @param pageable the page size and sort order
+   * @return a slice of UCSBRecommendationRequest entities
+   */
+  Slice<UCSBRecommendationRequest> findByIdGreaterThan(long id, Pageable pageable);
+
+  /**
+   * This method deletes the UCSBRecommendationRequest with the given id in a single statement, without
+   * reading it first.
+   * @param id the id of the recommendation request
+   * @return the number of rows deleted, i.e. 0 if there was no such recommendation request
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbrecommendationrequests r WHERE r.id = :id")
+  int deleteRowById(long id);
+
+  /**
+   * This method deletes the UCSBRecommendationRequest entities with any of the given ids in a single
+   * statement; ids with no recommendation request are ignored.
+   * @param ids the ids of the recommendation requests
+   * @return the number of rows deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbrecommendationrequests r WHERE r.id IN :ids")
+  int deleteRowsByIdIn(Collection<Long> ids);
+}
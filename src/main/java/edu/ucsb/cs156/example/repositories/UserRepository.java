@@ -1,9 +1,13 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -17,4 +21,17 @@ public interface UserRepository extends CrudRepository<User, Long> {
    * @return Optional of User (empty if not found)
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * This method records when a user logged in, in a single statement.  Like other
+   * bulk updates it bypasses UserListener, so it does not evict the user from the
+   * current user cache.
+   * @param id the id of the user
+   * @param lastLogin when the user logged in
+   * @return the number of rows updated
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE users u SET u.lastLogin = :lastLogin WHERE u.id = :id")
+  int updateLastLogin(long id, LocalDateTime lastLogin);
 }
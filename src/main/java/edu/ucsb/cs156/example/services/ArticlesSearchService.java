@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.SearchPage;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that answers keyword searches over the title, explanation and url
+ * of articles from an in-memory TextIndex, so that finding an article does not mean
+ * reading every article.
+ *
+ * The index is a TableSnapshot of the articles table, so it is built from the table on
+ * first use; after that, each article that is written or deleted is put into or removed
+ * from it once the write commits.  It is built again only as a fallback, when the
+ * articles a write changed are not known, or its time to live has passed.
+ */
+@Service
+public class ArticlesSearchService {
+
+  /** The weights of an article's title, explanation and url */
+  static final float[] FIELD_WEIGHTS = { 3, 1, 1 };
+
+  @Autowired
+  private ArticlesRepository articlesRepository;
+
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  @Value("${app.snapshot.ttl-seconds}")
+  private long snapshotTtlSeconds;
+
+  private TableSnapshot<TextIndex> index;
+
+  @PostConstruct
+  void createIndex() {
+    index = new TableSnapshot<>(tableVersionService, Articles.class, snapshotTtlSeconds, this::build,
+        this::apply);
+  }
+
+  private TextIndex build() {
+    TextIndex built = new TextIndex(FIELD_WEIGHTS);
+    articlesRepository.findAll().forEach(
+        article -> built.put(article.getId(), article.getTitle(), article.getExplanation(), article.getUrl()));
+    return built;
+  }
+
+  private void apply(TextIndex built, TableVersionService.RowChange change) {
+    if (change.row() instanceof Articles article) {
+      built.put(article.getId(), article.getTitle(), article.getExplanation(), article.getUrl());
+    } else {
+      built.remove((Long) change.id());
+    }
+  }
+
+  /**
+   * This method finds the articles matching a query.
+   * @param query the words to search for; the last letters of each word may be left off
+   * @param page the number of the page, starting from 0
+   * @param size the number of articles on a page
+   * @return the page of articles, best match first, and how many articles match
+   */
+  public SearchPage<Articles> search(String query, int page, int size) {
+    int offset = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+    TextIndex.Hits hits = index.get().search(query, offset, size);
+
+    Map<Long, Articles> byId = new HashMap<>();
+    articlesRepository.findAllById(hits.ids()).forEach(article -> byId.put(article.getId(), article));
+    List<Articles> content = hits.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
+    return new SearchPage<>(content, page, hits.total());
+  }
+}
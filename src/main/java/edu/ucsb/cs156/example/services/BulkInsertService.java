@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that inserts many new entities in a single transaction.
+ *
+ * Entities are persisted (rather than saved, which merges) and the persistence
+ * context is flushed and cleared every app.bulk.batch-size rows, so Hibernate
+ * sends them as JDBC batches of that size and memory use stays flat.  Batching
+ * only happens for entities whose ids are assigned or come from a sequence;
+ * IDENTITY ids force one round trip per row.
+ *
+ * Any version the rows carry (e.g. one a client sent) is reset, so that every
+ * inserted row starts at the first version.
+ */
+
+@Slf4j
+@Service
+public class BulkInsertService {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${app.bulk.batch-size:50}")
+  private int batchSize;
+
+  /**
+   * This method inserts new entities, all or nothing.
+   * @param rows the entities to insert; they must not already exist
+   * @return the number of entities inserted
+   */
+  @Transactional
+  public <T> int insertAll(List<T> rows) {
+    int inserted = 0;
+    for (T row : rows) {
+      entityManager.getMetamodel().entity(row.getClass()).getSingularAttributes().stream()
+          .filter(SingularAttribute::isVersion)
+          .forEach(attribute -> new DirectFieldAccessor(row).setPropertyValue(attribute.getName(), 0L));
+      entityManager.persist(row);
+      if (++inserted % batchSize == 0) {
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    log.info("bulk inserted {} rows", inserted);
+    return inserted;
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * This class loads values into a Caffeine AsyncCache on the calling thread.
+ *
+ * A miss puts an incomplete future in the cache before anything is loaded, so callers
+ * that miss on the same key at the same time wait for one load rather than each running
+ * their own.  Invalidating the key while the load runs removes that future, so its result
+ * is returned to the callers that were waiting for it but is not cached; an eviction can
+ * therefore never be undone by a load that read the row before the write it reports.
+ *
+ * Unlike Cache.get(key, loader), the load does not run inside the cache's (synchronized)
+ * compute, so a virtual thread waiting on the database is not pinned to its carrier.
+ */
+public final class CacheLoads {
+
+  private CacheLoads() {
+  }
+
+  /**
+   * This method returns the cached value for a key, loading it if there is none.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @param cache the cache
+   * @param key the key
+   * @param loader loads the value for the key; if it throws, nothing is cached
+   * @return the value
+   */
+  public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+    CompletableFuture<V> loading = new CompletableFuture<>();
+    CompletableFuture<V> value = cache.get(key, (k, executor) -> loading);
+    if (value == loading) {
+      try {
+        loading.complete(loader.apply(key));
+      } catch (RuntimeException | Error e) {
+        loading.completeExceptionally(e);
+        throw e;
+      }
+    }
+    try {
+      return value.join();
+    } catch (CompletionException e) {
+      // a load on another thread failed; its exception is rethrown, as it was there
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw (RuntimeException) e.getCause();
+    }
+  }
+}
@@ -1,14 +1,25 @@
 package edu.ucsb.cs156.example.services;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.events.UserChangedEvent;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,11 +31,21 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 /**
  * This is a service that provides information about the current user.
  * 
  * This is the version of the service used in production.
+ *
+ * Resolved users are kept in a bounded cache keyed by Google sub (or email,
+ * when there is no sub) so that repeat requests from the same session do not
+ * query the users table.  Entries expire after app.current-user.cache.ttl-seconds, and
+ * are evicted once a transaction that updates or deletes a User row commits (see
+ * UserChangedEvent), so a change to the admin flag is picked up on the next request.
+ * The cache holds copies of the users it loads, and each caller gets its own copy,
+ * so no two requests share a User, and none shares one with a persistence context.
  */
 
 @Slf4j
@@ -40,6 +61,33 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Value("${app.admin.emails}")
   final private List<String> adminEmails = new ArrayList<String>();
 
+  @Value("${app.current-user.cache.maximum-size:10000}")
+  private long cacheMaximumSize;
+
+  @Value("${app.current-user.cache.ttl-seconds:300}")
+  private long cacheTtlSeconds;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  private AsyncCache<String, User> userCache;
+
+  /**
+   * This method builds the cache of resolved users, and registers its hit/miss
+   * metrics (as cache.gets{cache=currentUser}) when a meter registry is available.
+   */
+  @PostConstruct
+  void buildUserCache() {
+    userCache = Caffeine.newBuilder()
+        .maximumSize(cacheMaximumSize)
+        .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+        .recordStats()
+        .buildAsync();
+    if (meterRegistry != null) {
+      CaffeineCacheMetrics.monitor(meterRegistry, userCache.synchronous(), "currentUser");
+    }
+  }
+
   /**
    * This method returns the current user as a User object.
    * @return the current user
@@ -49,7 +97,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       .user(this.getUser())
       .roles(this.getRoles())
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    log.debug("getCurrentUser returns {}",cu);
     return cu;
   }
 
@@ -58,6 +106,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * The parameters are automatically injected by Spring.
    * 
    * This method also has a side effect of storing the user in the database if they are not already there.
+   * The result is cached; only a cache miss reads (and possibly writes) the database.
    * 
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -66,6 +115,23 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
+    String sub = oAuthUser.getAttribute("sub");
+    String key = (sub != null) ? sub : oAuthUser.getAttribute("email");
+    // Creating or promoting the user commits a UserChangedEvent that evicts this
+    // same key, so that load is not cached, and the next request loads the user again
+    return CacheLoads.get(userCache, key, k -> loadOrCreateUser(oAuthUser).toBuilder().build())
+        .toBuilder().build();
+  }
+
+  /**
+   * This method looks up the user with the OAuth2 user's email, creating it
+   * (or promoting it to admin, if it is listed in app.admin.emails) as needed.
+   * It is only called on a cache miss, so it also records the user's last login then.
+   *
+   * @param oAuthUser the OAuth2 principal
+   * @return the User object representing that principal
+   */
+  private User loadOrCreateUser(OAuth2User oAuthUser) {
     String email = oAuthUser.getAttribute("email");
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
@@ -76,12 +142,14 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}", oAuthUser.getAttributes());
 
+    LocalDateTime now = LocalDateTime.now();
     Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
       User u = ou.get();
+      userRepository.updateLastLogin(u.getId(), now);
+      u.setLastLogin(now);
       if (adminEmails.contains(email) && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
@@ -100,11 +168,32 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .locale(locale)
         .hostedDomain(hostedDomain)
         .admin(adminEmails.contains(email))
+        .lastLogin(now)
         .build();
     userRepository.save(u);
     return u;
   }
 
+  /**
+   * This method drops any cached entry for the given user, whether it was cached
+   * under the user's Google sub or email.
+   * @param user the user to evict
+   */
+  public void evictUser(User user) {
+    userCache.synchronous().invalidateAll(
+        Stream.of(user.getGoogleSub(), user.getEmail()).filter(Objects::nonNull).toList());
+  }
+
+  /**
+   * This method evicts a user from the cache once a transaction that updates or deletes
+   * that user's row has committed.
+   * @param event the event published by UserListener
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    evictUser(event.getUser());
+  }
+
   /**
    * This method returns the current user as a User object.
    * @return the current user
@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * This is an immutable k-d tree of items at points on the earth's surface, that answers
+ * k-nearest-neighbour queries by great-circle distance.
+ *
+ * Each point is stored as a unit vector.  The straight-line (chord) distance between two
+ * unit vectors grows with the great-circle distance between them, so the ordinary
+ * Euclidean k-d tree search, with its pruning, finds exactly the nearest points on the sphere.
+ *
+ * @param <T> the type of the items
+ */
+public class GeoIndex<T> {
+
+  /** The mean radius of the earth, in meters */
+  public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  /**
+   * An item found by a query, and how far it is from the query point.
+   * @param <T> the type of the item
+   * @param item the item
+   * @param distanceMeters the great-circle distance from the query point, in meters
+   */
+  public record Neighbour<T>(T item, double distanceMeters) {
+  }
+
+  private record Node<T>(T item, double[] point, int axis, Node<T> left, Node<T> right) {
+  }
+
+  private record Candidate<T>(T item, double chordSquared) {
+  }
+
+  private final Node<T> root;
+
+  private final int size;
+
+  /**
+   * This constructor builds the index.
+   * @param items the items to index
+   * @param latitude function returning the latitude of an item, in degrees
+   * @param longitude function returning the longitude of an item, in degrees
+   */
+  public GeoIndex(List<T> items, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude) {
+    List<Node<T>> leaves = new ArrayList<>(items.size());
+    for (T item : items) {
+      leaves.add(new Node<>(item, toUnitVector(latitude.applyAsDouble(item), longitude.applyAsDouble(item)), 0,
+          null, null));
+    }
+    this.size = leaves.size();
+    this.root = build(leaves, 0);
+  }
+
+  private static <T> Node<T> build(List<Node<T>> nodes, int depth) {
+    if (nodes.isEmpty()) {
+      return null;
+    }
+    int axis = depth % 3;
+    nodes.sort(Comparator.comparingDouble(n -> n.point()[axis]));
+    int median = nodes.size() / 2;
+    Node<T> split = nodes.get(median);
+    return new Node<>(split.item(), split.point(), axis,
+        build(new ArrayList<>(nodes.subList(0, median)), depth + 1),
+        build(new ArrayList<>(nodes.subList(median + 1, nodes.size())), depth + 1));
+  }
+
+  /**
+   * This method returns the number of items in the index.
+   * @return the number of items
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * This method finds the items nearest to a point.
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param k the maximum number of items to return
+   * @return the (at most k) nearest items, nearest first
+   */
+  public List<Neighbour<T>> nearest(double latitude, double longitude, int k) {
+    double[] query = toUnitVector(latitude, longitude);
+    PriorityQueue<Candidate<T>> best = new PriorityQueue<>(
+        Comparator.comparingDouble((Candidate<T> c) -> c.chordSquared()).reversed());
+    search(root, query, k, best);
+
+    List<Neighbour<T>> result = new ArrayList<>(best.size());
+    while (!best.isEmpty()) {
+      Candidate<T> c = best.poll();
+      result.add(new Neighbour<>(c.item(), 2 * Math.asin(Math.sqrt(c.chordSquared()) / 2) * EARTH_RADIUS_METERS));
+    }
+    return result.reversed();
+  }
+
+  private static <T> void search(Node<T> node, double[] query, int k, PriorityQueue<Candidate<T>> best) {
+    if (node == null) {
+      return;
+    }
+    double chordSquared = distanceSquared(node.point(), query);
+    if (best.size() < k) {
+      best.add(new Candidate<>(node.item(), chordSquared));
+    } else if (chordSquared < best.peek().chordSquared()) {
+      best.poll();
+      best.add(new Candidate<>(node.item(), chordSquared));
+    }
+
+    double diff = query[node.axis()] - node.point()[node.axis()];
+    Node<T> near = (diff < 0) ? node.left() : node.right();
+    Node<T> far = (diff < 0) ? node.right() : node.left();
+    search(near, query, k, best);
+    if (best.size() < k || diff * diff < best.peek().chordSquared()) {
+      search(far, query, k, best);
+    }
+  }
+
+  private static double[] toUnitVector(double latitude, double longitude) {
+    double lat = Math.toRadians(latitude);
+    double lon = Math.toRadians(longitude);
+    return new double[] { Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat) };
+  }
+
+  private static double distanceSquared(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+}
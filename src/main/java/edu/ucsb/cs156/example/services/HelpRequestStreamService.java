@@ -0,0 +1,152 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.events.HelpRequestChangedEvent;
+import edu.ucsb.cs156.example.events.HelpRequestsDeletedEvent;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * This is a service that pushes HelpRequestChangedEvents and HelpRequestsDeletedEvents
+ * to clients subscribed to /api/helprequest/stream as server-sent events.  A deletion
+ * is sent as a deleted event whose data is the deleted ids, e.g. {"ids":[1,2]}.
+ *
+ * A subscriber holds no thread while it is idle: the request is asynchronous, so its
+ * servlet thread goes straight back to the pool, and events are only written, on a
+ * virtual thread, while some are queued for it.  Each subscriber's queue holds at most
+ * app.stream.buffer-size events; a subscriber that falls that far behind is disconnected
+ * rather than buffered without bound, and its EventSource reconnects and reloads the queue.
+ */
+@Service
+@Slf4j
+public class HelpRequestStreamService {
+
+  @Value("${app.stream.buffer-size}")
+  private int bufferSize;
+
+  @Value("${app.stream.timeout-ms}")
+  private long timeoutMillis;
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final AtomicLong eventIds = new AtomicLong();
+
+  /**
+   * This method subscribes a new client to help request events.
+   * @return the emitter to return from the controller
+   */
+  public SseEmitter subscribe() {
+    Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), bufferSize);
+    // Called however the request ends, including by timeout or by the client going away
+    subscriber.emitter.onCompletion(subscriber::remove);
+    subscribers.add(subscriber);
+    return subscriber.emitter;
+  }
+
+  /**
+   * This method returns the number of clients currently subscribed.
+   * @return the number of subscribers
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  /**
+   * This method queues an event for every subscriber.
+   * @param event the event published by HelpRequestController
+   */
+  @EventListener
+  public void onHelpRequestChanged(HelpRequestChangedEvent event) {
+    broadcast(event.getType().name().toLowerCase(Locale.ROOT), event.getHelpRequest());
+  }
+
+  /**
+   * This method queues a deleted event for every subscriber.
+   * @param event the event published by HelpRequestController
+   */
+  @EventListener
+  public void onHelpRequestsDeleted(HelpRequestsDeletedEvent event) {
+    broadcast("deleted", Map.of("ids", event.getIds()));
+  }
+
+  private void broadcast(String name, Object data) {
+    Set<SseEmitter.DataWithMediaType> message = SseEmitter.event()
+        .id(Long.toString(eventIds.incrementAndGet()))
+        .name(name)
+        .data(data)
+        .build();
+    subscribers.forEach(subscriber -> subscriber.offer(message));
+  }
+
+  /**
+   * This method closes every subscriber's stream when the application shuts down.
+   */
+  @PreDestroy
+  public void shutdown() {
+    subscribers.forEach(Subscriber::close);
+    senders.shutdownNow();
+  }
+
+  private class Subscriber {
+    private final SseEmitter emitter;
+    private final BlockingQueue<Set<SseEmitter.DataWithMediaType>> queue;
+    // Events queued but not yet sent; whoever takes it from 0 to 1 starts the sender
+    private final AtomicInteger pending = new AtomicInteger();
+
+    Subscriber(SseEmitter emitter, int bufferSize) {
+      this.emitter = emitter;
+      this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    void offer(Set<SseEmitter.DataWithMediaType> message) {
+      if (!queue.offer(message)) {
+        log.warn("Disconnecting a help request stream subscriber that is {} events behind", bufferSize);
+        close();
+        return;
+      }
+      if (pending.getAndIncrement() == 0) {
+        senders.execute(this::send);
+      }
+    }
+
+    private void send() {
+      do {
+        try {
+          emitter.send(queue.poll());
+        } catch (IOException | IllegalStateException e) {
+          close();
+          return;
+        }
+      } while (pending.decrementAndGet() != 0);
+    }
+
+    void remove() {
+      subscribers.remove(this);
+    }
+
+    void close() {
+      remove();
+      emitter.complete();
+    }
+  }
+}
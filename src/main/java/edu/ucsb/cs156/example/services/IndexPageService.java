@@ -0,0 +1,132 @@
+package edu.ucsb.cs156.example.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is a service that holds the frontend's index.html in memory, so that each page
+ * load is answered without reading the jar, and with a strong ETag, so that a browser
+ * that already has the page gets a 304.
+ *
+ * The build (see frontend/scripts/compress.js) may leave index.html.br and index.html.gz
+ * next to index.html; those are held too, and sent to clients that accept them.  Each
+ * variant has an ETag of its own, since its bytes differ.
+ */
+
+@Slf4j
+@Service
+public class IndexPageService {
+
+  /**
+   * One representation of the page.
+   * @param body the bytes to send
+   * @param encoding the Content-Encoding of the bytes, or null if they are not encoded
+   * @param eTag the strong ETag of the bytes, without quotes
+   */
+  public record Variant(byte[] body, String encoding, String eTag) {
+  }
+
+  // the suffixes of the precompressed siblings, and their encodings, preferred first
+  private static final Map<String, String> SUFFIXES = Map.of("br", ".br", "gzip", ".gz");
+  private static final String[] PREFERENCE = { "br", "gzip" };
+
+  @Value("${app.frontend.index:classpath:/public/index.html}")
+  private Resource index;
+
+  // by encoding, with null for the original; empty when there is no index.html
+  private volatile Map<String, Variant> variants;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * This method chooses the variant of the page to send for an Accept-Encoding header.
+   * @param acceptEncoding the request's Accept-Encoding header, or null if there was none
+   * @return the variant, or empty if the frontend has not been built into the jar
+   */
+  public Optional<Variant> select(String acceptEncoding) {
+    Map<String, Variant> current = current();
+    for (String encoding : PREFERENCE) {
+      if (current.containsKey(encoding) && accepts(acceptEncoding, encoding)) {
+        return Optional.of(current.get(encoding));
+      }
+    }
+    return Optional.ofNullable(current.get(null));
+  }
+
+  // The variants are read once, when the first page is loaded; the frontend only
+  // changes with a new build, i.e. a new deployment.  Only the loads that find them
+  // unread take the lock, a ReentrantLock so that a virtual thread waiting on the
+  // read of the jar does not pin its carrier.
+  private Map<String, Variant> current() {
+    Map<String, Variant> current = variants;
+    if (current == null) {
+      lock.lock();
+      try {
+        current = variants;
+        if (current == null) {
+          current = read();
+          variants = current;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return current;
+  }
+
+  private Map<String, Variant> read() {
+    Map<String, Variant> read = new LinkedHashMap<>();
+    try {
+      if (!index.exists()) {
+        log.warn("{} does not exist, so pages will not be found; is the frontend built?", index);
+        return read;
+      }
+      read.put(null, variant(index.getContentAsByteArray(), null));
+      for (Map.Entry<String, String> suffix : SUFFIXES.entrySet()) {
+        Resource sibling = index.createRelative(index.getFilename() + suffix.getValue());
+        if (sibling.exists()) {
+          read.put(suffix.getKey(), variant(sibling.getContentAsByteArray(), suffix.getKey()));
+        }
+      }
+      return read;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // the ETag only has to tell versions of the page apart, as with ShallowEtagHeaderFilter
+  private static Variant variant(byte[] body, String encoding) {
+    return new Variant(body, encoding, DigestUtils.md5DigestAsHex(body));
+  }
+
+  /**
+   * This method tells whether an Accept-Encoding header accepts an encoding, either by
+   * name or as *, with a quality other than 0.
+   * @param acceptEncoding the header, or null if there was none
+   * @param encoding the encoding, e.g. br
+   * @return whether the encoding is accepted
+   */
+  static boolean accepts(String acceptEncoding, String encoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      String name = parameters[0].trim();
+      if (name.equalsIgnoreCase(encoding) || name.equals("*")) {
+        return parameters.length == 1 || !parameters[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,322 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.BulkInsertError;
+import edu.ucsb.cs156.example.models.ImportProgress;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SequenceGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This is a service that imports menu items from a CSV or newline-delimited JSON (NDJSON)
+ * file, reading it as it arrives, so that a quarter's menu can be loaded in one request.
+ *
+ * The file is read a row at a time, and written in batches of app.import.batch-size rows,
+ * each in its own transaction, so memory use stays flat however many rows the file has.
+ * After each batch, a line of progress (an ImportProgress) is written as NDJSON.
+ *
+ * A row is rejected if a field is missing or too long, or if its diningCommonsCode is not
+ * the code of a dining commons; the codes are read once per import.  A row is a duplicate,
+ * and is skipped, if a menu item with the same diningCommonsCode, name and station is
+ * already in the table or earlier in its batch.  So importing a file again inserts nothing,
+ * and an import that fails part way through (one whose progress never has done set),
+ * having committed the batches it reported, can simply be run again.
+ *
+ * Rows are inserted with JDBC batches rather than JPA, taking their ids from the entity's
+ * sequence in the same blocks as Hibernate does.  Hibernate's query cache does not see
+ * those inserts, so it is cleared after each batch.
+ */
+
+@Slf4j
+@Service
+public class MenuItemImportService {
+
+  /**
+   * The media type of a CSV request
+   */
+  public static final String CSV = "text/csv";
+
+  /**
+   * The formats a file to import can be in
+   */
+  public enum Format {
+    /** Comma-separated values, with a header naming the columns diningCommonsCode, name and station */
+    CSV,
+    /** One JSON object per line, with the properties diningCommonsCode, name and station */
+    NDJSON
+  }
+
+  private static final int MAX_FIELD_LENGTH = 255;
+
+  private static final String INSERT = """
+      INSERT INTO ucsbdiningcommonsmenuitem (id, dining_commons_code, name, station, version)
+      SELECT ?, ?, ?, ?, 0
+      WHERE NOT EXISTS (SELECT 1 FROM ucsbdiningcommonsmenuitem
+                        WHERE dining_commons_code = ? AND name = ? AND station = ?)""";
+
+  // A row of the file; rows with equal fields are duplicates
+  record Row(String diningCommonsCode, String name, String station) {
+  }
+
+  // A record of the file: a line, or for CSV, as many lines as a quoted field spans.
+  // Its text is null if it was longer than app.import.max-line-length.
+  private record Record(String text) {
+  }
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Value("${app.import.batch-size:1000}")
+  private int batchSize;
+
+  @Value("${app.import.max-line-length:8192}")
+  private int maxLineLength;
+
+  /**
+   * This method imports the menu items in a file, writing its progress as it goes.
+   *
+   * @param in the file
+   * @param format the format of the file
+   * @param out the stream to write the progress to; it is flushed after each line, but not closed
+   * @return the progress at the end, i.e. the last line written
+   * @throws IOException if the file cannot be read, or the progress cannot be written
+   * @throws IllegalArgumentException if the header of a CSV file does not name the columns
+   */
+  public ImportProgress importMenuItems(InputStream in, Format format, OutputStream out) throws IOException {
+    Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    boolean csv = format == Format.CSV;
+    int[] columns = csv ? csvColumns(reader) : null;
+
+    Set<String> codes = new HashSet<>();
+    ucsbDiningCommonsRepository.findAll().forEach(commons -> codes.add(commons.getCode()));
+    SequenceGenerator sequence = ReflectionUtils.findField(UCSBDiningCommonsMenuItem.class, "id")
+        .getAnnotation(SequenceGenerator.class);
+    String nextValue = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices()
+        .getDialect().getSequenceSupport().getSequenceNextValString(sequence.sequenceName());
+
+    ImportProgress progress = ImportProgress.builder().errors(List.of()).build();
+    List<Row> batch = new ArrayList<>();
+    List<BulkInsertError> errors = new ArrayList<>();
+    for (Record record = next(reader, csv); record != null; record = next(reader, csv)) {
+      int index = (int) progress.getRows();
+      progress.setRows(index + 1L);
+      List<String> problems = new ArrayList<>();
+      Row row = (record.text() == null) ? null : parse(record.text(), columns, problems);
+      if (record.text() == null) {
+        problems.add("row is longer than %d characters".formatted(maxLineLength));
+      } else if (row != null) {
+        validate(row, codes, problems);
+      }
+      if (problems.isEmpty()) {
+        batch.add(row);
+      } else {
+        errors.add(new BulkInsertError(index, problems));
+      }
+      if (batch.size() + errors.size() == batchSize) {
+        write(batch, errors, nextValue, sequence.allocationSize(), progress, out);
+        batch.clear();
+        errors.clear();
+      }
+    }
+    progress.setDone(true);
+    write(batch, errors, nextValue, sequence.allocationSize(), progress, out);
+
+    log.info("imported {} menu item rows: {} inserted, {} duplicates, {} rejected", progress.getRows(),
+        progress.getInserted(), progress.getDuplicates(), progress.getRejected());
+    return progress;
+  }
+
+  // Reads the header of a CSV file, returning the positions of diningCommonsCode, name and station
+  private int[] csvColumns(Reader reader) throws IOException {
+    Record header = next(reader, true);
+    List<String> names = new ArrayList<>();
+    if (header != null && header.text() != null) {
+      csvFields(header.text()).forEach(name -> names.add(name.strip().toLowerCase(Locale.ROOT)));
+    }
+    int[] columns = { names.indexOf("diningcommonscode"), names.indexOf("name"), names.indexOf("station") };
+    for (int column : columns) {
+      if (column < 0) {
+        throw new IllegalArgumentException(
+            "the first line of a CSV file must name the columns diningCommonsCode, name and station");
+      }
+    }
+    return columns;
+  }
+
+  // Reads the next record that is not blank, or returns null at the end of the file
+  private Record next(Reader reader, boolean csv) throws IOException {
+    StringBuilder text = new StringBuilder();
+    boolean quoted = false;
+    boolean tooLong = false;
+    for (int c = reader.read(); c != -1; c = reader.read()) {
+      if (csv && c == '"') {
+        quoted = !quoted;
+      } else if (c == '\n' && !quoted) {
+        if (tooLong || !isBlank(text)) {
+          return record(text, tooLong);
+        }
+        text.setLength(0);
+        continue;
+      }
+      if (text.length() < maxLineLength) {
+        text.append((char) c);
+      } else {
+        tooLong = true;
+      }
+    }
+    return (tooLong || !isBlank(text)) ? record(text, tooLong) : null;
+  }
+
+  private static boolean isBlank(CharSequence text) {
+    return text.chars().allMatch(Character::isWhitespace);
+  }
+
+  private static Record record(StringBuilder text, boolean tooLong) {
+    if (tooLong) {
+      return new Record(null);
+    }
+    if (text.charAt(text.length() - 1) == '\r') {
+      text.setLength(text.length() - 1);
+    }
+    return new Record(text.toString());
+  }
+
+  private Row parse(String text, int[] columns, List<String> problems) {
+    if (columns != null) {
+      List<String> fields = csvFields(text);
+      String[] values = new String[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        values[i] = (columns[i] < fields.size()) ? fields.get(columns[i]) : null;
+      }
+      return new Row(values[0], values[1], values[2]);
+    }
+    try {
+      Row row = mapper.readValue(text, Row.class);
+      if (row == null) {
+        problems.add("row is not a JSON object");
+      }
+      return row;
+    } catch (JsonProcessingException e) {
+      problems.add("row is not a JSON object: " + e.getOriginalMessage());
+      return null;
+    }
+  }
+
+  // Splits a CSV record into its fields: fields are separated by commas, and a field in
+  // double quotes may contain commas, line breaks, and double quotes written twice
+  static List<String> csvFields(String text) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"') {
+        if (quoted && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = !quoted;
+        }
+      } else if (c == ',' && !quoted) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private static void validate(Row row, Set<String> codes, List<String> problems) {
+    String[][] fields = { { "diningCommonsCode", row.diningCommonsCode() }, { "name", row.name() },
+        { "station", row.station() } };
+    for (String[] field : fields) {
+      if (field[1] == null || field[1].isBlank()) {
+        problems.add(field[0] + " is required");
+      } else if (field[1].strip().length() > MAX_FIELD_LENGTH) {
+        problems.add("%s is longer than %d characters".formatted(field[0], MAX_FIELD_LENGTH));
+      }
+    }
+    if (problems.isEmpty() && !codes.contains(row.diningCommonsCode().strip())) {
+      problems.add("diningCommonsCode %s is not the code of a dining commons".formatted(row.diningCommonsCode().strip()));
+    }
+  }
+
+  // Inserts a batch of valid rows in one transaction, and writes the progress
+  private void write(List<Row> batch, List<BulkInsertError> errors, String nextValue, int allocationSize,
+      ImportProgress progress, OutputStream out) throws IOException {
+    Set<Row> unique = new LinkedHashSet<>();
+    batch.forEach(row -> unique.add(new Row(row.diningCommonsCode().strip(), row.name().strip(), row.station().strip())));
+    long inserted = 0;
+    if (!unique.isEmpty()) {
+      int[] counts = new TransactionTemplate(transactionManager).execute(status -> {
+        List<Object[]> args = new ArrayList<>();
+        long id = 0;
+        long lastId = -1;
+        for (Row row : unique) {
+          // a block of ids runs up to the value taken from the sequence, as with Hibernate's pooled optimizer
+          if (id > lastId) {
+            lastId = jdbcTemplate.queryForObject(nextValue, Long.class);
+            id = Math.max(1, lastId - allocationSize + 1);
+          }
+          args.add(new Object[] { id++, row.diningCommonsCode(), row.name(), row.station(),
+              row.diningCommonsCode(), row.name(), row.station() });
+        }
+        return jdbcTemplate.batchUpdate(INSERT, args);
+      });
+      for (int count : counts) {
+        inserted += (count == 0) ? 0 : 1;
+      }
+      entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+    progress.setInserted(progress.getInserted() + inserted);
+    progress.setDuplicates(progress.getDuplicates() + batch.size() - inserted);
+    progress.setRejected(progress.getRejected() + errors.size());
+    progress.setErrors(List.copyOf(errors));
+    out.write(mapper.writeValueAsBytes(progress));
+    out.write('\n');
+    out.flush();
+  }
+}
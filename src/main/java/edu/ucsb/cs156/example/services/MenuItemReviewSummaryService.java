@@ -0,0 +1,181 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewSummary;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.function.Consumer;
+
+/**
+ * This is a service that keeps the per-item rating summaries in step with the
+ * menu item reviews.
+ *
+ * Each method applies the change one review makes to its item's totals, so the
+ * cost of a review write does not grow with the number of reviews.  Callers
+ * should invoke it in the same transaction as the review write.
+ *
+ * Concurrent writes to one item's reviews apply in turn, as each locks the item's
+ * summary row.  An item's first review has no row to lock yet, so it inserts an empty
+ * one first; if another review's transaction inserted it at the same time, the insert
+ * waits for that transaction and fails, and is rolled back to a savepoint, leaving the
+ * other transaction's row to lock.
+ */
+
+@Slf4j
+@Service
+public class MenuItemReviewSummaryService {
+
+  private static final String INSERT_EMPTY = """
+      INSERT INTO menuitemreviewsummary (item_id, review_count, stars_sum,
+                                         stars0, stars1, stars2, stars3, stars4, stars5)
+      VALUES (?, 0, 0, 0, 0, 0, 0, 0, 0)""";
+
+  // The SQLSTATE of a unique constraint violation
+  private static final String UNIQUE_VIOLATION = "23505";
+
+  @Autowired
+  MenuItemReviewSummaryRepository menuItemReviewSummaryRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  /**
+   * This method returns the summary for a menu item.
+   * @param itemId the id of the menu item
+   * @return the summary, with a review count of zero if the item has no reviews
+   */
+  public MenuItemReviewSummary getSummary(long itemId) {
+    return menuItemReviewSummaryRepository.findById(itemId)
+        .orElseGet(() -> MenuItemReviewSummary.builder().itemId(itemId).build());
+  }
+
+  /**
+   * This method adds a newly posted review to its item's summary.
+   * @param review the review that was posted
+   */
+  @Transactional
+  public void reviewAdded(MenuItemReview review) {
+    checkStars(review.getStars());
+    apply(review.getItemId(), summary -> count(summary, review.getStars(), 1));
+  }
+
+  /**
+   * This method removes a deleted review from its item's summary.
+   * @param review the review that was deleted
+   */
+  @Transactional
+  public void reviewRemoved(MenuItemReview review) {
+    checkStars(review.getStars());
+    apply(review.getItemId(), summary -> count(summary, review.getStars(), -1));
+  }
+
+  /**
+   * This method moves an updated review's rating from its old item and stars to its new ones.
+   * @param oldItemId the item the review was for before the update
+   * @param oldStars the stars the review gave before the update
+   * @param review the review after the update
+   */
+  @Transactional
+  public void reviewChanged(long oldItemId, int oldStars, MenuItemReview review) {
+    if (oldItemId == review.getItemId() && oldStars == review.getStars()) {
+      return;
+    }
+    checkStars(oldStars);
+    checkStars(review.getStars());
+    if (oldItemId == review.getItemId()) {
+      // one update of the row, which is never left without reviews in between
+      apply(oldItemId, summary -> {
+        count(summary, oldStars, -1);
+        count(summary, review.getStars(), 1);
+      });
+      return;
+    }
+    apply(oldItemId, summary -> count(summary, oldStars, -1));
+    apply(review.getItemId(), summary -> count(summary, review.getStars(), 1));
+  }
+
+  /**
+   * This method checks that a rating is one the summary has a histogram bucket for.
+   * @param stars the number of stars
+   * @throws IllegalArgumentException if stars is not between 0 and MenuItemReviewSummary.MAX_STARS
+   */
+  public static void checkStars(int stars) {
+    if (stars < 0 || stars > MenuItemReviewSummary.MAX_STARS) {
+      throw new IllegalArgumentException(
+          "stars must be between 0 and %d, was %d".formatted(MenuItemReviewSummary.MAX_STARS, stars));
+    }
+  }
+
+  // Returns the item's summary row, locked, inserting an empty one if there is none
+  private MenuItemReviewSummary lockedSummary(long itemId) {
+    return menuItemReviewSummaryRepository.findForUpdate(itemId).orElseGet(() -> {
+      // a JDBC savepoint, as Hibernate's JpaDialect does not support nested transactions
+      jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_EMPTY)) {
+          insert.setLong(1, itemId);
+          insert.executeUpdate();
+          connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+          connection.rollback(savepoint);
+          if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+            throw e;
+          }
+        }
+        return null;
+      });
+      return menuItemReviewSummaryRepository.findForUpdate(itemId).orElseThrow();
+    });
+  }
+
+  // Adds delta reviews of the given stars to a summary
+  private static void count(MenuItemReviewSummary summary, int stars, int delta) {
+    summary.setReviewCount(summary.getReviewCount() + delta);
+    summary.setStarsSum(summary.getStarsSum() + (long) stars * delta);
+    switch (stars) {
+      case 0 -> summary.setStars0(summary.getStars0() + delta);
+      case 1 -> summary.setStars1(summary.getStars1() + delta);
+      case 2 -> summary.setStars2(summary.getStars2() + delta);
+      case 3 -> summary.setStars3(summary.getStars3() + delta);
+      case 4 -> summary.setStars4(summary.getStars4() + delta);
+      default -> summary.setStars5(summary.getStars5() + delta);
+    }
+  }
+
+  private void apply(long itemId, Consumer<MenuItemReviewSummary> change) {
+    MenuItemReviewSummary summary = lockedSummary(itemId);
+    change.accept(summary);
+
+    // min and max come straight from the histogram, so removing the lowest
+    // or highest review never needs a rescan of the reviews
+    long[] histogram = { summary.getStars0(), summary.getStars1(), summary.getStars2(),
+        summary.getStars3(), summary.getStars4(), summary.getStars5() };
+    Integer min = null;
+    Integer max = null;
+    for (int i = 0; i < histogram.length; i++) {
+      if (histogram[i] > 0) {
+        min = (min == null) ? i : min;
+        max = i;
+      }
+    }
+    summary.setMinStars(min);
+    summary.setMaxStars(max);
+
+    if (summary.getReviewCount() <= 0) {
+      menuItemReviewSummaryRepository.delete(summary);
+    } else {
+      menuItemReviewSummaryRepository.save(summary);
+    }
+    log.debug("summary for item {} is now {}", itemId, summary);
+  }
+}
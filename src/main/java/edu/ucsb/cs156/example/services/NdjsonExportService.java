@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.Entity;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * This is a service that exports a whole table as newline-delimited JSON (NDJSON),
+ * one entity per line, in the same JSON format the API uses for that entity.
+ *
+ * Rows are read through a forward-only JDBC cursor and written one at a time through
+ * a Jackson JsonGenerator, so memory use stays flat however many rows the table has.
+ */
+
+@Slf4j
+@Service("ndjsonExport")
+public class NdjsonExportService {
+
+  /**
+   * The media type of a newline-delimited JSON response
+   */
+  public static final String NDJSON = "application/x-ndjson";
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Value("${app.export.fetch-size:1000}")
+  private int fetchSize;
+
+  /**
+   * This method writes every row of an entity's table to the output stream, ordered by id.
+   * The transaction is needed so that PostgreSQL honours the fetch size instead of
+   * reading the whole result set into memory.
+   *
+   * @param entityType the entity class, e.g. Articles.class; its table must have an id column
+   * @param out the stream to write to; it is flushed but not closed
+   * @return the number of rows written
+   * @throws IOException if the output stream cannot be written
+   */
+  @Transactional(readOnly = true)
+  public <T> long export(Class<T> entityType, OutputStream out) throws IOException {
+    String sql = "SELECT * FROM %s ORDER BY id".formatted(entityType.getAnnotation(Entity.class).name());
+    RowMapper<T> rowMapper = new BeanPropertyRowMapper<>(entityType);
+    long[] count = { 0 };
+
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+      }, (RowCallbackHandler) rs -> {
+        T row = rowMapper.mapRow(rs, (int) count[0]);
+        try {
+          generator.writeObject(row);
+          generator.writeRaw('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        count[0]++;
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    log.info("exported {} rows of {}", count[0], entityType.getSimpleName());
+    return count[0];
+  }
+}
@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that updates an entity only if it still has the version the
+ * client last read (i.e. the version in a PUT's If-Match header).
+ *
+ * The update is a single UPDATE ... SET ..., version = version + 1 WHERE id = ? AND
+ * version = ?, with no SELECT before it; only when no row is updated is the row read,
+ * to tell a missing entity (404) from a stale version (412).  Being a bulk update, it
+ * bypasses entity listeners, so the TableVersionService is told about the change here.
+ * The row is read back afterwards, so the caller gets every field as it is stored.
+ */
+@Service
+public class OptimisticUpdateService {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  /**
+   * This method copies the given attributes of an incoming entity onto the stored entity
+   * with the given id, provided the stored entity is still at the given version.
+   * @param id the id of the entity to update
+   * @param version the version the entity must have
+   * @param incoming the new values for the entity
+   * @param attributes the names of the attributes to copy from incoming
+   * @return the entity as stored after the update
+   * @throws EntityNotFoundException if there is no entity with the id
+   * @throws PreconditionFailedException if the entity is not at the given version
+   */
+  @Transactional
+  public <T> T update(Object id, long version, T incoming, String... attributes) {
+    @SuppressWarnings("unchecked")
+    Class<T> type = (Class<T>) incoming.getClass();
+    EntityType<T> entity = entityManager.getMetamodel().entity(type);
+    String idName = attributeName(entity, true);
+    String versionName = attributeName(entity, false);
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<T> update = cb.createCriteriaUpdate(type);
+    Root<T> root = update.from(type);
+    DirectFieldAccessor fields = new DirectFieldAccessor(incoming);
+    for (String attribute : attributes) {
+      update.set(root.get(attribute), fields.getPropertyValue(attribute));
+    }
+    Path<Long> versionPath = root.get(versionName);
+    update.set(versionPath, cb.sum(versionPath, 1L));
+    update.where(cb.equal(root.get(idName), id), cb.equal(versionPath, version));
+
+    if (entityManager.createQuery(update).executeUpdate() == 0) {
+      if (entityManager.find(type, id) == null) {
+        throw new EntityNotFoundException(type, id);
+      }
+      throw new PreconditionFailedException(type, id, version);
+    }
+
+    T stored = entityManager.find(type, id);
+    // a copy read earlier in this persistence context does not see the bulk update
+    if (!Long.valueOf(version + 1).equals(new DirectFieldAccessor(stored).getPropertyValue(versionName))) {
+      entityManager.refresh(stored);
+    }
+    tableVersionService.written(type, id, stored);
+    return stored;
+  }
+
+  private static String attributeName(EntityType<?> entity, boolean id) {
+    return entity.getSingularAttributes().stream()
+        .filter(attribute -> id ? attribute.isId() : attribute.isVersion())
+        .map(SingularAttribute::getName)
+        .findFirst()
+        .orElseThrow();
+  }
+}
@@ -0,0 +1,260 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is an in-memory trie over the keys of items identified by a string id, that
+ * answers typeahead queries: the best items with a key starting with a prefix.
+ *
+ * Keys and prefixes are compared ignoring case, and with each run of whitespace
+ * counting as one space, so that "associated  stu" finds "Associated Students".  Each
+ * key has a rank, lower being better; an item is suggested for a prefix at the best
+ * rank of its keys that start with it, and items of the same rank are ordered by the
+ * comparator the index was built with.
+ *
+ * Every node of the trie keeps the best maxSuggestions items below it, so a query is a
+ * walk down the trie followed by (a view of) a list that was built when the index was
+ * written, and allocates nothing else.  Writing an item rebuilds those lists only along
+ * the paths of its keys.  Writes are exclusive; queries take no lock, and see each node
+ * either before or after a write.
+ *
+ * @param <T> the type of the items
+ */
+public class PrefixIndex<T> {
+
+  /**
+   * A key under which an item is found.
+   * @param text the key; queries match its prefixes
+   * @param rank how good a match on this key is, lower being better
+   */
+  public record Key(String text, int rank) {
+  }
+
+  private record Entry<T>(String id, T item, int rank) {
+  }
+
+  // A node's children, sorted by label.  It is replaced rather than changed, so that
+  // queries can read it while a write is going on.
+  private record Children<T>(char[] labels, Node<T>[] nodes) {
+    Node<T> get(char label) {
+      int i = Arrays.binarySearch(labels, label);
+      return (i >= 0) ? nodes[i] : null;
+    }
+  }
+
+  private static class Node<T> {
+    private volatile Children<T> children = emptyChildren();
+    // the entries whose keys end here, and the best entries below here
+    private final List<Entry<T>> ending = new ArrayList<>();
+    private List<Entry<T>> best = List.of();
+    private volatile List<T> suggestions = List.of();
+  }
+
+  private final int maxSuggestions;
+
+  private final Comparator<Entry<T>> order;
+
+  private final Node<T> root = new Node<>();
+
+  private final Map<String, List<String>> keysById = new HashMap<>();
+
+  /**
+   * This constructor makes an empty index.
+   * @param maxSuggestions the most items a query can return
+   * @param order the order of items whose keys have the same rank
+   */
+  public PrefixIndex(int maxSuggestions, Comparator<T> order) {
+    this.maxSuggestions = maxSuggestions;
+    this.order = Comparator.<Entry<T>>comparingInt(Entry::rank).thenComparing(Entry::item, order);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Children<T> emptyChildren() {
+    return new Children<>(new char[0], new Node[0]);
+  }
+
+  // Folds a character of a key or prefix: whitespace becomes a space, and letters
+  // become lower case
+  private static char fold(char c) {
+    return Character.isWhitespace(c) ? ' ' : Character.toLowerCase(c);
+  }
+
+  /**
+   * This method normalizes a key the way queries are matched against it: folding each
+   * character, collapsing runs of spaces and leaving out leading and trailing ones.
+   * @param text the key
+   * @return the normalized key
+   */
+  static String normalize(String text) {
+    StringBuilder normalized = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = fold(text.charAt(i));
+      if (c != ' ' || (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ')) {
+        normalized.append(c);
+      }
+    }
+    int end = normalized.length();
+    return normalized.substring(0, (end > 0 && normalized.charAt(end - 1) == ' ') ? end - 1 : end);
+  }
+
+  /**
+   * This method returns the number of items in the index.
+   * @return the number of items
+   */
+  public synchronized int size() {
+    return keysById.size();
+  }
+
+  /**
+   * This method adds an item to the index, replacing any item with the same id.
+   * @param id the id of the item
+   * @param item the item
+   * @param keys the keys to find the item under; blank keys are left out
+   */
+  public synchronized void put(String id, T item, List<Key> keys) {
+    remove(id);
+    Map<String, Integer> ranks = new HashMap<>();
+    for (Key key : keys) {
+      String text = normalize(key.text());
+      if (!text.isEmpty()) {
+        ranks.merge(text, key.rank(), Math::min);
+      }
+    }
+    for (Map.Entry<String, Integer> key : ranks.entrySet()) {
+      List<Node<T>> path = path(key.getKey());
+      path.get(path.size() - 1).ending.add(new Entry<>(id, item, key.getValue()));
+      update(path, key.getKey());
+    }
+    keysById.put(id, List.copyOf(ranks.keySet()));
+  }
+
+  /**
+   * This method removes an item from the index.
+   * @param id the id of the item
+   * @return whether there was an item with that id
+   */
+  public synchronized boolean remove(String id) {
+    List<String> keys = keysById.remove(id);
+    if (keys == null) {
+      return false;
+    }
+    for (String key : keys) {
+      List<Node<T>> path = path(key);
+      path.get(path.size() - 1).ending.removeIf(entry -> entry.id().equals(id));
+      update(path, key);
+    }
+    return true;
+  }
+
+  // The nodes from the root to the end of a key, adding any that are missing
+  private List<Node<T>> path(String key) {
+    List<Node<T>> path = new ArrayList<>(key.length() + 1);
+    Node<T> node = root;
+    path.add(node);
+    for (int i = 0; i < key.length(); i++) {
+      char label = key.charAt(i);
+      Node<T> child = node.children.get(label);
+      if (child == null) {
+        child = new Node<>();
+        node.children = with(node.children, label, child);
+      }
+      node = child;
+      path.add(node);
+    }
+    return path;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Children<T> with(Children<T> children, char label, Node<T> node) {
+    int at = -Arrays.binarySearch(children.labels(), label) - 1;
+    int n = children.labels().length;
+    char[] labels = new char[n + 1];
+    Node<T>[] nodes = new Node[n + 1];
+    System.arraycopy(children.labels(), 0, labels, 0, at);
+    System.arraycopy(children.nodes(), 0, nodes, 0, at);
+    labels[at] = label;
+    nodes[at] = node;
+    System.arraycopy(children.labels(), at, labels, at + 1, n - at);
+    System.arraycopy(children.nodes(), at, nodes, at + 1, n - at);
+    return new Children<>(labels, nodes);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Children<T> without(Children<T> children, char label) {
+    int at = Arrays.binarySearch(children.labels(), label);
+    int n = children.labels().length;
+    char[] labels = new char[n - 1];
+    Node<T>[] nodes = new Node[n - 1];
+    System.arraycopy(children.labels(), 0, labels, 0, at);
+    System.arraycopy(children.nodes(), 0, nodes, 0, at);
+    System.arraycopy(children.labels(), at + 1, labels, at, n - at - 1);
+    System.arraycopy(children.nodes(), at + 1, nodes, at, n - at - 1);
+    return new Children<>(labels, nodes);
+  }
+
+  // Rebuilds the best entries of the nodes on a path, deepest first, and drops nodes
+  // left with nothing below them
+  private void update(List<Node<T>> path, String key) {
+    for (int depth = path.size() - 1; depth >= 0; depth--) {
+      Node<T> node = path.get(depth);
+      Node<T>[] children = node.children.nodes();
+      if (depth > 0 && node.ending.isEmpty() && children.length == 0) {
+        Node<T> parent = path.get(depth - 1);
+        parent.children = without(parent.children, key.charAt(depth - 1));
+        continue;
+      }
+      if (node.ending.isEmpty() && children.length == 1) {
+        // a node on a chain suggests the same items as the node below it
+        node.best = children[0].best;
+        node.suggestions = children[0].suggestions;
+        continue;
+      }
+      Map<String, Entry<T>> byId = new HashMap<>();
+      for (Entry<T> entry : node.ending) {
+        byId.merge(entry.id(), entry, this::better);
+      }
+      for (Node<T> child : children) {
+        for (Entry<T> entry : child.best) {
+          byId.merge(entry.id(), entry, this::better);
+        }
+      }
+      List<Entry<T>> best = new ArrayList<>(byId.values());
+      best.sort(order);
+      node.best = List.copyOf(best.subList(0, Math.min(best.size(), maxSuggestions)));
+      node.suggestions = node.best.stream().map(Entry::item).toList();
+    }
+  }
+
+  private Entry<T> better(Entry<T> a, Entry<T> b) {
+    return (order.compare(a, b) <= 0) ? a : b;
+  }
+
+  /**
+   * This method finds the best items with a key starting with a prefix.
+   * @param prefix the start of the key; an empty prefix matches every item
+   * @param limit the most items to return; at most maxSuggestions are ever returned
+   * @return the items, best first; the list must not be modified
+   */
+  public List<T> suggest(String prefix, int limit) {
+    Node<T> node = root;
+    // leading spaces are skipped, as if the prefix followed one
+    char previous = ' ';
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      char c = fold(prefix.charAt(i));
+      if (c != ' ' || previous != ' ') {
+        node = node.children.get(c);
+      }
+      previous = c;
+    }
+    if (node == null || limit <= 0) {
+      return List.of();
+    }
+    List<T> suggestions = node.suggestions;
+    return (limit >= suggestions.size()) ? suggestions : suggestions.subList(0, limit);
+  }
+}
@@ -0,0 +1,169 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.services.TableVersionService.RowChange;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * This class holds a value built from the whole of a table, e.g. an in-memory index of
+ * it, for services that answer queries from memory.
+ *
+ * The value is built on first use.  A snapshot made with a function to apply rows keeps
+ * the value up to date by applying each committed change that TableVersionService tells
+ * it about, row by row, without reading the table.  The value is built again only on
+ * the first use after a change whose rows are not known (or, for a snapshot without
+ * such a function, after any change), and once it is older than its time to live, to
+ * pick up writes that TableVersionService does not see: those made by other instances,
+ * or by SQL run outside the application, such as a Liquibase load.
+ *
+ * Reads take no lock while the value is current.  Builds take a ReentrantLock, which
+ * (unlike synchronized) does not pin a virtual thread to its carrier while it reads the
+ * table, so only one build runs at a time.  Callers that find no value wait for it;
+ * callers that find it out of date while another caller is building it are given the
+ * out of date value rather than waiting.  Changes are applied under the same lock; a
+ * change that commits during a build is queued, and applied once the build is done.
+ * Queries may read the value while a change is applied to it, so it must be safe for
+ * that; a value that is never applied to must not be modified once it is built.
+ *
+ * @param <S> the type of the value
+ */
+public class TableSnapshot<S> {
+
+  private record Snapshot<S>(long version, long builtAt, S value) {
+  }
+
+  private record Change(long version, List<RowChange> rows) {
+  }
+
+  private final TableVersionService tableVersionService;
+
+  private final Class<?> table;
+
+  private final long ttlNanos;
+
+  private final Supplier<S> build;
+
+  private final BiConsumer<S, RowChange> apply;
+
+  private final LongSupplier nanoTime;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+
+  private volatile Snapshot<S> snapshot;
+
+  /**
+   * This constructor makes a snapshot of a table that is built again after every change
+   * to the table; it is not built until it is used.
+   * @param tableVersionService the service that keeps the versions of tables
+   * @param table the entity class of the table
+   * @param ttlSeconds seconds after which the value is built again even if the table's
+   *   version has not moved on (0 for never)
+   * @param build builds the value by reading the table
+   */
+  public TableSnapshot(TableVersionService tableVersionService, Class<?> table, long ttlSeconds, Supplier<S> build) {
+    this(tableVersionService, table, ttlSeconds, build, null, System::nanoTime);
+  }
+
+  /**
+   * This constructor makes a snapshot of a table that applies each change to the table
+   * to its value; it is not built until it is used.
+   * @param tableVersionService the service that keeps the versions of tables
+   * @param table the entity class of the table
+   * @param ttlSeconds seconds after which the value is built again even if the table's
+   *   version has not moved on (0 for never)
+   * @param build builds the value by reading the table
+   * @param apply applies a row that was written or deleted to the value
+   */
+  public TableSnapshot(TableVersionService tableVersionService, Class<?> table, long ttlSeconds, Supplier<S> build,
+      BiConsumer<S, RowChange> apply) {
+    this(tableVersionService, table, ttlSeconds, build, apply, System::nanoTime);
+  }
+
+  TableSnapshot(TableVersionService tableVersionService, Class<?> table, long ttlSeconds, Supplier<S> build,
+      BiConsumer<S, RowChange> apply, LongSupplier nanoTime) {
+    this.tableVersionService = tableVersionService;
+    this.table = table;
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.build = build;
+    this.apply = apply;
+    this.nanoTime = nanoTime;
+    if (apply != null) {
+      tableVersionService.addListener(table, this::changed);
+    }
+  }
+
+  /**
+   * This method returns the value, building it first if it is out of date.
+   * @return the value
+   */
+  public S get() {
+    Snapshot<S> s = snapshot;
+    if (isCurrent(s)) {
+      return s.value();
+    }
+    if (s == null) {
+      lock.lock();
+    } else if (!lock.tryLock()) {
+      return s.value();
+    }
+    try {
+      s = snapshot;
+      if (!isCurrent(s)) {
+        // the version is read before the table, so that a write committing in between
+        // leaves the snapshot looking out of date rather than up to date
+        long version = tableVersionService.getVersion(table);
+        long builtAt = nanoTime.getAsLong();
+        s = new Snapshot<>(version, builtAt, build.get());
+        snapshot = s;
+      }
+    } finally {
+      lock.unlock();
+    }
+    applyChanges();
+    return s.value();
+  }
+
+  // Listeners are told about a change before the table's version moves on to it, so a
+  // snapshot that has applied it may briefly be ahead of the version
+  private boolean isCurrent(Snapshot<S> s) {
+    return s != null && s.version() >= tableVersionService.getVersion(table)
+        && (ttlNanos == 0 || nanoTime.getAsLong() - s.builtAt() < ttlNanos);
+  }
+
+  private void changed(long version, List<RowChange> rows) {
+    changes.add(new Change(version, rows));
+    applyChanges();
+  }
+
+  // Applies the queued changes, unless another thread holds the lock; every thread
+  // that holds it calls this once it lets go, so no change is left in the queue
+  private void applyChanges() {
+    while (!changes.isEmpty() && lock.tryLock()) {
+      try {
+        Snapshot<S> s = snapshot;
+        for (Change change = changes.poll(); change != null; change = changes.poll()) {
+          // a change at or before the version of a build was read from the table by it;
+          // after a change that cannot be applied, the value is left behind to be built again
+          if (s != null && change.version() == s.version() + 1 && change.rows() != null) {
+            for (RowChange row : change.rows()) {
+              apply.accept(s.value(), row);
+            }
+            s = new Snapshot<>(change.version(), s.builtAt(), s.value());
+          }
+        }
+        snapshot = s;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
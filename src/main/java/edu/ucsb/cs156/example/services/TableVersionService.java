@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * This is a service that keeps a version counter for each table (identified by its
+ * entity class), so that a listing of a whole table can be given an ETag and
+ * answered with 304 Not Modified while the table has not been written.
+ *
+ * Counters are bumped by TableVersionListener whenever an entity is written, but only
+ * once the transaction that wrote it has committed, so that a request that reads a
+ * new version number also reads the data that goes with it, and a rolled back write
+ * bumps nothing.  ETags include an epoch chosen at startup, so that they are not reused
+ * after a restart.
+ *
+ * Each bump is a change, which listeners added with addListener are told about, with
+ * the rows it wrote and deleted when they are known, so that an in-memory copy of a
+ * table (see TableSnapshot) can apply the change rather than read the table again.
+ * Listeners are told about a table's changes one at a time, in version order, just
+ * before the version moves on.
+ *
+ * Counters are kept in memory, so an instance sees only the writes made through it.
+ * When several instances share the database, a client could otherwise be told that a
+ * table is unchanged for as long as the instance that answers it sees no write; ETags
+ * therefore also include the number of the app.etag.ttl-seconds period they were
+ * issued in, so that such a client reads the table again within that time.
+ */
+@Service
+public class TableVersionService {
+
+  /**
+   * A row that a change wrote or deleted.
+   * @param id the id of the row
+   * @param row the entity as it was written, or null if the row was deleted
+   */
+  public record RowChange(Object id, Object row) {
+  }
+
+  /**
+   * A listener to the changes of a table.
+   */
+  public interface ChangeListener {
+    /**
+     * This method is called once a change to the table has committed.
+     * @param version the version of the table with the change
+     * @param rows the rows the change wrote or deleted, in order, or null if they are not known
+     */
+    void changed(long version, List<RowChange> rows);
+  }
+
+  private static class Table {
+    private volatile long version;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+  }
+
+  private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+  private final Map<Class<?>, Table> tables = new ConcurrentHashMap<>();
+
+  @Value("${app.etag.ttl-seconds}")
+  long eTagTtlSeconds;
+
+  LongSupplier currentTimeMillis = System::currentTimeMillis;
+
+  private Table table(Class<?> table) {
+    return tables.computeIfAbsent(table, t -> new Table());
+  }
+
+  /**
+   * This method returns the current version of a table.
+   * @param table the entity class of the table
+   * @return the number of times the table has been changed since startup
+   */
+  public long getVersion(Class<?> table) {
+    Table t = tables.get(table);
+    return (t == null) ? 0 : t.version;
+  }
+
+  /**
+   * This method returns a strong ETag for the current contents of a table.
+   * @param table the entity class of the table
+   * @return the ETag, including its quotes
+   */
+  public String getETag(Class<?> table) {
+    long period = (eTagTtlSeconds == 0) ? 0
+        : currentTimeMillis.getAsLong() / TimeUnit.SECONDS.toMillis(eTagTtlSeconds);
+    return "\"%s-%s-%d-%d\"".formatted(table.getSimpleName(), epoch, getVersion(table), period);
+  }
+
+  /**
+   * This method adds a listener to the changes of a table.
+   * @param table the entity class of the table
+   * @param listener the listener
+   */
+  public void addListener(Class<?> table, ChangeListener listener) {
+    table(table).listeners.add(listener);
+  }
+
+  /**
+   * This method records that a table has been changed in a way that does not say which
+   * rows were written.  Inside a transaction, the version is bumped when the
+   * transaction commits (once per table, however many rows were written), and not at
+   * all if it rolls back; otherwise it is bumped straight away.
+   * @param table the entity class of the table
+   */
+  public void changed(Class<?> table) {
+    record(table, null);
+  }
+
+  /**
+   * This method records that a row of a table has been inserted or updated; see changed.
+   * @param table the entity class of the table
+   * @param id the id of the row
+   * @param row the entity as it was written
+   */
+  public void written(Class<?> table, Object id, Object row) {
+    record(table, List.of(new RowChange(id, row)));
+  }
+
+  /**
+   * This method records that rows of a table have been deleted; see changed.
+   * @param table the entity class of the table
+   * @param ids the ids of the rows, which may include ids of rows that did not exist
+   */
+  public void deleted(Class<?> table, Collection<?> ids) {
+    record(table, ids.stream().map(id -> new RowChange(id, null)).toList());
+  }
+
+  // A table's rows are kept in the order they were written; null stands for rows that
+  // are not known
+  private void record(Class<?> table, List<RowChange> rows) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      commit(table, rows);
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Map<Class<?>, List<RowChange>> pending =
+        (Map<Class<?>, List<RowChange>>) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      Map<Class<?>, List<RowChange>> changes = new LinkedHashMap<>();
+      TransactionSynchronizationManager.bindResource(this, changes);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResource(TableVersionService.this);
+          if (status == STATUS_COMMITTED) {
+            changes.forEach(TableVersionService.this::commit);
+          }
+        }
+      });
+      pending = changes;
+    }
+    if (rows == null) {
+      pending.put(table, null);
+    } else if (!pending.containsKey(table)) {
+      pending.put(table, new ArrayList<>(rows));
+    } else if (pending.get(table) != null) {
+      pending.get(table).addAll(rows);
+    }
+  }
+
+  private void commit(Class<?> table, List<RowChange> rows) {
+    Table t = table(table);
+    t.lock.lock();
+    try {
+      long version = t.version + 1;
+      try {
+        for (ChangeListener listener : t.listeners) {
+          listener.changed(version, rows);
+        }
+      } finally {
+        t.version = version;
+      }
+    } finally {
+      t.lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,432 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This is an in-memory inverted index over the text fields of documents identified by
+ * a long id, that answers ranked, paginated keyword queries.
+ *
+ * Text is split into lower-case terms at anything that is not a letter or digit.  A
+ * document matches a query if every query term is a term, or the prefix of a term, of
+ * the document.  Documents are ranked by the sum, over the query terms, of
+ * idf * tf / (tf + 1.2) for the best of the document's terms that the query term matches,
+ * where tf adds up each field's weight for every occurrence, and a term that only
+ * matches as a prefix counts for half.
+ *
+ * Documents are numbered in the order they are put, so each term's postings are kept
+ * as arrays sorted by document number, which can be appended to cheaply.  Putting a
+ * document again or removing it only marks its old number dead; once dead numbers
+ * outnumber live ones, the postings are compacted.  Reads share a lock; writes are exclusive.
+ */
+public class TextIndex {
+
+  /**
+   * One page of the ids of the documents matching a query.
+   * @param ids the ids of the documents on the page, best match first
+   * @param total the number of documents matching the query
+   */
+  public record Hits(List<Long> ids, int total) {
+  }
+
+  /** The most terms a query term is expanded to as a prefix */
+  static final int MAX_PREFIX_EXPANSIONS = 64;
+
+  private static final float PREFIX_WEIGHT = 0.5f;
+
+  private static final float K1 = 1.2f;
+
+  private static class Postings {
+    private int[] docs = new int[2];
+    private float[] tfs = new float[2];
+    private int size;
+
+    void add(int doc, float tf) {
+      if (size == docs.length) {
+        docs = Arrays.copyOf(docs, size * 2);
+        tfs = Arrays.copyOf(tfs, size * 2);
+      }
+      docs[size] = doc;
+      tfs[size] = tf;
+      size++;
+    }
+  }
+
+  private final float[] fieldWeights;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+  private final Map<Long, Integer> docById = new HashMap<>();
+
+  private long[] ids = new long[16];
+
+  private final BitSet dead = new BitSet();
+
+  private int docCount;
+
+  private int deadCount;
+
+  /**
+   * This constructor creates an empty index.
+   * @param fieldWeights the weight of each field of a document, in the order they are passed to put
+   */
+  public TextIndex(float... fieldWeights) {
+    this.fieldWeights = fieldWeights.clone();
+  }
+
+  /**
+   * This method splits text into the terms it is indexed by.
+   * @param text the text, which may be null
+   * @return the lower-case terms, in order
+   */
+  public static List<String> terms(String text) {
+    List<String> result = new ArrayList<>();
+    if (text == null) {
+      return result;
+    }
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        result.add(lower.substring(start, i));
+        start = -1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * This method returns the number of documents in the index.
+   * @return the number of documents
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return docById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * This method adds a document to the index, replacing any document with the same id.
+   * @param id the id of the document
+   * @param fields the text of each field, in the order of the field weights; null fields are empty
+   */
+  public void put(long id, String... fields) {
+    Map<String, Float> tfs = new HashMap<>();
+    for (int f = 0; f < fields.length; f++) {
+      float weight = fieldWeights[f];
+      for (String term : terms(fields[f])) {
+        tfs.merge(term, weight, Float::sum);
+      }
+    }
+
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (docCount == ids.length) {
+        ids = Arrays.copyOf(ids, docCount * 2);
+      }
+      int doc = docCount++;
+      ids[doc] = id;
+      docById.put(id, doc);
+      tfs.forEach((term, tf) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, tf));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * This method removes a document from the index.
+   * @param id the id of the document
+   * @return true if the document was in the index
+   */
+  public boolean remove(long id) {
+    lock.writeLock().lock();
+    try {
+      return removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private boolean removeLocked(long id) {
+    Integer doc = docById.remove(id);
+    if (doc == null) {
+      return false;
+    }
+    dead.set(doc);
+    deadCount++;
+    if (deadCount > docById.size()) {
+      compact();
+    }
+    return true;
+  }
+
+  // Renumbers the live documents from 0, dropping dead documents from every postings
+  // list and dropping terms left with no postings
+  private void compact() {
+    int[] renumbered = new int[docCount];
+    int live = 0;
+    for (int doc = 0; doc < docCount; doc++) {
+      if (!dead.get(doc)) {
+        renumbered[doc] = live;
+        ids[live] = ids[doc];
+        docById.put(ids[live], live);
+        live++;
+      }
+    }
+    Iterator<Postings> it = terms.values().iterator();
+    while (it.hasNext()) {
+      Postings postings = it.next();
+      int kept = 0;
+      for (int i = 0; i < postings.size; i++) {
+        int doc = postings.docs[i];
+        if (!dead.get(doc)) {
+          postings.docs[kept] = renumbered[doc];
+          postings.tfs[kept] = postings.tfs[i];
+          kept++;
+        }
+      }
+      postings.size = kept;
+      if (kept == 0) {
+        it.remove();
+      }
+    }
+    dead.clear();
+    deadCount = 0;
+    docCount = live;
+  }
+
+  /**
+   * This method finds the documents matching a query.
+   * @param query the query text
+   * @param offset the number of best matches to skip
+   * @param limit the maximum number of ids to return
+   * @return the ids of the matching documents, best match first (ties by id), and how many match
+   */
+  public Hits search(String query, int offset, int limit) {
+    List<String> queryTerms = terms(query).stream().distinct().toList();
+    if (queryTerms.isEmpty()) {
+      return new Hits(List.of(), 0);
+    }
+
+    lock.readLock().lock();
+    try {
+      List<List<Matches>> expanded = new ArrayList<>(queryTerms.size());
+      for (String queryTerm : queryTerms) {
+        List<Matches> expansions = expansions(queryTerm);
+        if (expansions.isEmpty()) {
+          return new Hits(List.of(), 0);
+        }
+        expanded.add(expansions);
+      }
+      // Walk the documents of the rarest query term, and skip ahead through the
+      // others' documents to each of them
+      expanded.sort(Comparator.comparingLong(TextIndex::count));
+      Matches lead = merge(expanded.get(0));
+      List<Cursor> others = new ArrayList<>(expanded.size() - 1);
+      for (List<Matches> expansions : expanded.subList(1, expanded.size())) {
+        // merging a prefix's terms costs about as much as reading them; skipping through
+        // each of them costs a few steps per lead document
+        boolean merge = mergeCost(expansions) < (long) lead.size * expansions.size() * 4;
+        others.add(new Cursor(merge ? List.of(merge(expansions)) : expansions));
+      }
+
+      int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+      PriorityQueue<Hit> best = new PriorityQueue<>();
+      int total = 0;
+      for (int i = 0; i < lead.size; i++) {
+        int doc = lead.docs[i];
+        if (deadCount > 0 && dead.get(doc)) {
+          continue;
+        }
+        float score = lead.score(i);
+        for (int t = 0; t < others.size() && score >= 0; t++) {
+          float termScore = others.get(t).seek(doc);
+          score = (termScore < 0) ? -1 : score + termScore;
+        }
+        if (score < 0) {
+          continue;
+        }
+        total++;
+        if (best.size() < wanted) {
+          best.add(new Hit(ids[doc], score));
+        } else if (wanted > 0 && best.peek().isWorseThan(ids[doc], score)) {
+          best.poll();
+          best.add(new Hit(ids[doc], score));
+        }
+      }
+
+      List<Long> page = new ArrayList<>(limit);
+      while (best.size() > offset) {
+        page.add(best.poll().id());
+      }
+      return new Hits(page.reversed(), total);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // The postings of the terms a query term matches, as the term itself or as a prefix
+  private List<Matches> expansions(String queryTerm) {
+    NavigableMap<String, Postings> terms = this.terms.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+    List<Matches> expansions = new ArrayList<>();
+    for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+      if (expansions.size() == MAX_PREFIX_EXPANSIONS) {
+        break;
+      }
+      Postings p = entry.getValue();
+      float idf = (float) Math.log(1 + (double) docById.size() / p.size);
+      float weight = entry.getKey().equals(queryTerm) ? idf : idf * PREFIX_WEIGHT;
+      expansions.add(new Matches(p.docs, p.tfs, p.size, weight, false));
+    }
+    return expansions;
+  }
+
+  private static long count(List<Matches> expansions) {
+    return expansions.stream().mapToLong(Matches::size).sum();
+  }
+
+  private long mergeCost(List<Matches> expansions) {
+    long count = count(expansions);
+    return (count * 8 < docCount) ? count : count + docCount;
+  }
+
+  // Merges the postings of the terms a query term matches into one list in document
+  // order, scoring each document by the best of its terms
+  private Matches merge(List<Matches> expansions) {
+    if (expansions.size() == 1) {
+      return expansions.get(0);
+    }
+
+    long count = count(expansions);
+    if (count * 8 < docCount) {
+      // Few documents: sort (document, score) pairs; scores are not negative, so their
+      // bits sort in the same order as they do, and the last pair for each document is its best
+      long[] pairs = new long[(int) count];
+      int n = 0;
+      for (Matches expansion : expansions) {
+        for (int i = 0; i < expansion.size; i++) {
+          pairs[n++] = ((long) expansion.docs[i] << 32) | Float.floatToIntBits(expansion.score(i));
+        }
+      }
+      Arrays.sort(pairs);
+      int[] docs = new int[pairs.length];
+      float[] scores = new float[pairs.length];
+      int size = 0;
+      for (int i = 0; i < pairs.length; i++) {
+        if (i + 1 < pairs.length && (pairs[i + 1] >>> 32) == (pairs[i] >>> 32)) {
+          continue;
+        }
+        docs[size] = (int) (pairs[i] >>> 32);
+        scores[size] = Float.intBitsToFloat((int) pairs[i]);
+        size++;
+      }
+      return new Matches(docs, scores, size, 0, true);
+    }
+
+    // Many documents: take the best score for each document in an array indexed by document
+    float[] byDoc = new float[docCount];
+    BitSet found = new BitSet(docCount);
+    for (Matches expansion : expansions) {
+      for (int i = 0; i < expansion.size; i++) {
+        int doc = expansion.docs[i];
+        byDoc[doc] = Math.max(byDoc[doc], expansion.score(i));
+        found.set(doc);
+      }
+    }
+    int[] docs = new int[found.cardinality()];
+    float[] scores = new float[docs.length];
+    int size = 0;
+    for (int doc = found.nextSetBit(0); doc >= 0; doc = found.nextSetBit(doc + 1)) {
+      docs[size] = doc;
+      scores[size] = byDoc[doc];
+      size++;
+    }
+    return new Matches(docs, scores, size, 0, true);
+  }
+
+  // The documents matching a term, in document order, with either their scores or
+  // (if not scored) their term frequencies, to be scored with the weight
+  private record Matches(int[] docs, float[] values, int size, float weight, boolean scored) {
+    float score(int i) {
+      if (scored) {
+        return values[i];
+      }
+      float tf = values[i];
+      return weight * tf / (tf + K1);
+    }
+
+    // Returns the first position at or after from whose document is not before doc,
+    // galloping and then binary searching
+    int seek(int from, int doc) {
+      if (from >= size || docs[from] >= doc) {
+        return from;
+      }
+      int low = from;
+      int step = 1;
+      while (low + step < size && docs[low + step] < doc) {
+        low += step;
+        step *= 2;
+      }
+      int found = Arrays.binarySearch(docs, low + 1, Math.min(low + step + 1, size), doc);
+      return (found >= 0) ? found : -found - 1;
+    }
+  }
+
+  // A position in each of the lists of documents a query term matches
+  private static class Cursor {
+    private final List<Matches> parts;
+    private final int[] positions;
+
+    Cursor(List<Matches> parts) {
+      this.parts = parts;
+      this.positions = new int[parts.size()];
+    }
+
+    // Moves past the documents before doc, and returns doc's best score, or -1 if no list has doc
+    float seek(int doc) {
+      float best = -1;
+      for (int p = 0; p < positions.length; p++) {
+        Matches part = parts.get(p);
+        int i = part.seek(positions[p], doc);
+        positions[p] = i;
+        if (i < part.size && part.docs[i] == doc) {
+          best = Math.max(best, part.score(i));
+        }
+      }
+      return best;
+    }
+  }
+
+  // A candidate for a page of results; the natural order puts the worst candidate first
+  private record Hit(long id, float score) implements Comparable<Hit> {
+    boolean isWorseThan(long otherId, float otherScore) {
+      return score < otherScore || (score == otherScore && id > otherId);
+    }
+
+    @Override
+    public int compareTo(Hit other) {
+      return isWorseThan(other.id, other.score) ? -1 : 1;
+    }
+  }
+}
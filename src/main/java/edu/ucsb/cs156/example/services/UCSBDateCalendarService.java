@@ -0,0 +1,161 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that answers calendar queries about UCSB dates (the next dates after
+ * a time, the dates in a range of times, the dates of a quarter) from an in-memory index,
+ * so that a calendar view does not read every date and search them itself.
+ *
+ * The index is a NavigableMap of all dates in time order, and one per quarter, so each
+ * query is a O(log n) search followed by a walk over the dates it returns.  Dates at the
+ * same time are ordered by id.
+ *
+ * The index is a TableSnapshot of the ucsbdates table, so it is built from the table on
+ * first use; after that, each date that is written or deleted is moved in or removed from
+ * the maps once the write commits, so the maps are concurrent ones that queries can walk
+ * meanwhile.  Where a date was is looked up by id, not read from the date, since the
+ * written date has already moved.  The index is built again only as a fallback, when the
+ * dates a write changed are not known, or its time to live has passed.  The dates in the
+ * index are shared, and must not be modified, so a written one is copied before it is put.
+ */
+@Service
+public class UCSBDateCalendarService {
+
+  // The position of a date in the maps: dates at the same time are told apart by id
+  private record Key(LocalDateTime localDateTime, long id) implements Comparable<Key> {
+    private static final Comparator<Key> ORDER = Comparator.comparing(Key::localDateTime)
+        .thenComparingLong(Key::id);
+
+    static Key of(UCSBDate date) {
+      return new Key(date.getLocalDateTime(), date.getId());
+    }
+
+    // before every date at the time
+    static Key first(LocalDateTime localDateTime) {
+      return new Key(localDateTime, Long.MIN_VALUE);
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      return ORDER.compare(this, other);
+    }
+  }
+
+  // Where a date is in the maps
+  private record Entry(Key key, String quarterYYYYQ) {
+  }
+
+  private record Index(NavigableMap<Key, UCSBDate> byTime, Map<String, NavigableMap<Key, UCSBDate>> byQuarter,
+      Map<Long, Entry> byId) {
+
+    void put(UCSBDate date) {
+      if (date.getLocalDateTime() == null) {
+        return;
+      }
+      Key key = Key.of(date);
+      byTime.put(key, date);
+      if (date.getQuarterYYYYQ() != null) {
+        byQuarter.computeIfAbsent(date.getQuarterYYYYQ(), q -> new ConcurrentSkipListMap<>()).put(key, date);
+      }
+      byId.put(date.getId(), new Entry(key, date.getQuarterYYYYQ()));
+    }
+
+    void remove(long id) {
+      Entry entry = byId.remove(id);
+      if (entry == null) {
+        return;
+      }
+      byTime.remove(entry.key());
+      if (entry.quarterYYYYQ() != null) {
+        byQuarter.computeIfPresent(entry.quarterYYYYQ(), (q, dates) -> {
+          dates.remove(entry.key());
+          return dates.isEmpty() ? null : dates;
+        });
+      }
+    }
+  }
+
+  @Autowired
+  private UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  @Value("${app.snapshot.ttl-seconds}")
+  private long snapshotTtlSeconds;
+
+  private TableSnapshot<Index> index;
+
+  @PostConstruct
+  void createIndex() {
+    index = new TableSnapshot<>(tableVersionService, UCSBDate.class, snapshotTtlSeconds, this::build,
+        this::apply);
+  }
+
+  // dates without a time are not on the calendar, and dates without a quarter are only
+  // on the timeline
+  private Index build() {
+    Index built = new Index(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    ucsbDateRepository.findAll().forEach(built::put);
+    return built;
+  }
+
+  private void apply(Index built, TableVersionService.RowChange change) {
+    built.remove((Long) change.id());
+    if (change.row() instanceof UCSBDate date) {
+      built.put(new UCSBDate(date.getId(), date.getQuarterYYYYQ(), date.getName(), date.getLocalDateTime(),
+          date.getVersion()));
+    }
+  }
+
+  /**
+   * This method returns the next dates after a time.
+   * @param after the time; only dates strictly after it are returned
+   * @param limit the most dates to return
+   * @return the dates, earliest first
+   */
+  public List<UCSBDate> upcoming(LocalDateTime after, int limit) {
+    return index.get().byTime().tailMap(new Key(after, Long.MAX_VALUE), false).values().stream()
+        .limit(limit)
+        .toList();
+  }
+
+  /**
+   * This method returns the first dates in a range of times.
+   * @param start the start of the range (inclusive)
+   * @param end the end of the range (exclusive)
+   * @param limit the most dates to return
+   * @return the dates, earliest first
+   */
+  public List<UCSBDate> range(LocalDateTime start, LocalDateTime end, int limit) {
+    return index.get().byTime().subMap(Key.first(start), Key.first(end)).values().stream()
+        .limit(limit)
+        .toList();
+  }
+
+  /**
+   * This method returns the dates of a quarter.
+   * @param quarterYYYYQ the quarter in the format YYYYQ, e.g. 20244
+   * @return the dates, earliest first
+   */
+  public List<UCSBDate> quarter(String quarterYYYYQ) {
+    NavigableMap<Key, UCSBDate> dates = index.get().byQuarter().get(quarterYYYYQ);
+    return (dates == null) ? List.of() : List.copyOf(dates.values());
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.StreamSupport;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that keeps an in-memory snapshot of the (small, read-mostly)
+ * ucsbdiningcommons table, with the commons indexed by code and by location.
+ *
+ * The snapshot is a TableSnapshot, so it is loaded on first use, and loaded again
+ * after the table is written.  The commons in the snapshot are shared, and must not be
+ * modified.
+ */
+@Service
+public class UCSBDiningCommonsSnapshotService {
+
+  @Autowired
+  private UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  @Value("${app.snapshot.ttl-seconds}")
+  private long snapshotTtlSeconds;
+
+  private record Snapshot(List<UCSBDiningCommons> all, Map<String, UCSBDiningCommons> byCode,
+      GeoIndex<UCSBDiningCommons> byLocation) {
+  }
+
+  private TableSnapshot<Snapshot> snapshot;
+
+  @PostConstruct
+  void createSnapshot() {
+    snapshot = new TableSnapshot<>(tableVersionService, UCSBDiningCommons.class, snapshotTtlSeconds, this::load);
+  }
+
+  private Snapshot load() {
+    List<UCSBDiningCommons> all = StreamSupport.stream(ucsbDiningCommonsRepository.findAll().spliterator(), false)
+        .toList();
+    Map<String, UCSBDiningCommons> byCode = new LinkedHashMap<>();
+    all.forEach(c -> byCode.put(c.getCode(), c));
+    GeoIndex<UCSBDiningCommons> byLocation = new GeoIndex<>(
+        all.stream().filter(c -> c.getLatitude() != null && c.getLongitude() != null).toList(),
+        UCSBDiningCommons::getLatitude, UCSBDiningCommons::getLongitude);
+    return new Snapshot(all, Map.copyOf(byCode), byLocation);
+  }
+
+  /**
+   * This method returns all of the dining commons.
+   * @return all of the dining commons
+   */
+  public List<UCSBDiningCommons> getAll() {
+    return snapshot.get().all();
+  }
+
+  /**
+   * This method returns the dining commons with the given code.
+   * @param code the code of the commons
+   * @return the commons, if there is one with that code
+   */
+  public Optional<UCSBDiningCommons> getByCode(String code) {
+    return Optional.ofNullable(snapshot.get().byCode().get(code));
+  }
+
+  /**
+   * This method returns the dining commons nearest to a point.  Commons without
+   * a latitude and longitude are left out.
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param k the maximum number of commons to return
+   * @return the (at most k) nearest commons, nearest first, with their distances
+   */
+  public List<DiningCommonsDistance> nearest(double latitude, double longitude, int k) {
+    return snapshot.get().byLocation().nearest(latitude, longitude, k).stream()
+        .map(n -> new DiningCommonsDistance(n.item(), n.distanceMeters()))
+        .toList();
+  }
+}
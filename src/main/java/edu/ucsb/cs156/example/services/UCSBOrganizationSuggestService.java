@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that suggests organizations as their code or name is typed, from an
+ * in-memory PrefixIndex, so that an organization picker does not read every organization
+ * on each keystroke.
+ *
+ * An organization is suggested for a prefix of its orgCode first, then of its
+ * orgTranslationShort or orgTranslation, then of a later word of either name; ties are
+ * broken by orgCode.  Inactive organizations are never indexed.
+ *
+ * The index is a TableSnapshot of the ucsborganization table, so it is built from the
+ * table on first use; after that, each organization that is written or deleted is put
+ * into or removed from it once the write commits, which rebuilds the index only along the
+ * paths of that organization's keys.  It is built again only as a fallback, when the
+ * organizations a write changed are not known, or its time to live has passed.  The
+ * organizations in the index are shared, and must not be modified, so a written one is
+ * copied before it is put.
+ */
+@Service
+public class UCSBOrganizationSuggestService {
+
+  @Autowired
+  private UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  @Value("${app.suggest.max-limit:20}")
+  private int maxLimit;
+
+  @Value("${app.snapshot.ttl-seconds}")
+  private long snapshotTtlSeconds;
+
+  private TableSnapshot<PrefixIndex<UCSBOrganization>> index;
+
+  @PostConstruct
+  void createIndex() {
+    index = new TableSnapshot<>(tableVersionService, UCSBOrganization.class, snapshotTtlSeconds, this::build,
+        this::apply);
+  }
+
+  private PrefixIndex<UCSBOrganization> build() {
+    PrefixIndex<UCSBOrganization> built = new PrefixIndex<>(maxLimit,
+        Comparator.comparing(UCSBOrganization::getOrgCode));
+    ucsbOrganizationRepository.findAll().forEach(organization -> put(built, organization));
+    return built;
+  }
+
+  private void apply(PrefixIndex<UCSBOrganization> built, TableVersionService.RowChange change) {
+    if (change.row() instanceof UCSBOrganization organization) {
+      put(built, new UCSBOrganization(organization.getOrgCode(), organization.getOrgTranslationShort(),
+          organization.getOrgTranslation(), organization.getInactive(), organization.getVersion()));
+    } else {
+      built.remove((String) change.id());
+    }
+  }
+
+  private static void put(PrefixIndex<UCSBOrganization> index, UCSBOrganization organization) {
+    if (organization.getInactive()) {
+      index.remove(organization.getOrgCode());
+      return;
+    }
+    List<PrefixIndex.Key> keys = new ArrayList<>();
+    keys.add(new PrefixIndex.Key(organization.getOrgCode(), 0));
+    for (String name : new String[] { organization.getOrgTranslationShort(), organization.getOrgTranslation() }) {
+      keys.add(new PrefixIndex.Key(name, 1));
+      for (int i = 1; i < name.length(); i++) {
+        if (Character.isLetterOrDigit(name.charAt(i)) && !Character.isLetterOrDigit(name.charAt(i - 1))) {
+          keys.add(new PrefixIndex.Key(name.substring(i), 2));
+        }
+      }
+    }
+    index.put(organization.getOrgCode(), organization, keys);
+  }
+
+  /**
+   * This method suggests the active organizations whose code or name starts with a prefix.
+   * @param prefix what has been typed so far
+   * @param limit the most organizations to return; no more than app.suggest.max-limit are returned
+   * @return the organizations, best match first; the list must not be modified
+   */
+  public List<UCSBOrganization> suggest(String prefix, int limit) {
+    return index.get().suggest(prefix, limit);
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.UserFilter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a service that writes the users matching a UserFilter as a JSON array,
+ * in the same JSON format the API uses for users, ordered by id.
+ *
+ * Like NdjsonExportService, rows are read through a forward-only JDBC cursor and
+ * written one at a time through a Jackson JsonGenerator, so memory use stays flat
+ * however many users there are.
+ */
+@Service
+public class UserListService {
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Value("${app.export.fetch-size:1000}")
+  private int fetchSize;
+
+  /**
+   * This method writes the users matching a filter to the output stream.
+   * The transaction is needed so that PostgreSQL honours the fetch size instead of
+   * reading the whole result set into memory.
+   *
+   * @param filter which users to write
+   * @param after only users with an id greater than this one are written
+   * @param limit the most users to write, or null to write every matching user
+   * @param out the stream to write to; it is flushed but not closed
+   * @return the number of users written
+   * @throws IOException if the output stream cannot be written
+   */
+  @Transactional(readOnly = true)
+  public long write(UserFilter filter, long after, Integer limit, OutputStream out) throws IOException {
+    StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE id > ?");
+    List<Object> args = new ArrayList<>(List.of(after));
+    if (filter.getAdmin() != null) {
+      sql.append(" AND admin = ?");
+      args.add(filter.getAdmin());
+    }
+    if (filter.getHostedDomain() != null) {
+      sql.append(" AND hosted_domain = ?");
+      args.add(filter.getHostedDomain());
+    }
+    if (filter.getLastLoginFrom() != null) {
+      sql.append(" AND last_login >= ?");
+      args.add(filter.getLastLoginFrom());
+    }
+    if (filter.getLastLoginTo() != null) {
+      sql.append(" AND last_login < ?");
+      args.add(filter.getLastLoginTo());
+    }
+    sql.append(" ORDER BY id");
+    if (limit != null) {
+      sql.append(" LIMIT ?");
+      args.add(limit);
+    }
+
+    RowMapper<User> rowMapper = new BeanPropertyRowMapper<>(User.class);
+    long[] count = { 0 };
+    try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.writeStartArray();
+      jdbcTemplate.query(connection -> {
+        PreparedStatement statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        for (int i = 0; i < args.size(); i++) {
+          statement.setObject(i + 1, args.get(i));
+        }
+        return statement;
+      }, (RowCallbackHandler) rs -> {
+        User user = rowMapper.mapRow(rs, (int) count[0]);
+        try {
+          generator.writeObject(user);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        count[0]++;
+      });
+      generator.writeEndArray();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return count[0];
+  }
+}
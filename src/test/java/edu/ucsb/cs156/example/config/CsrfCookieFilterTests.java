@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.csrf.CsrfToken;
+
+public class CsrfCookieFilterTests {
+
+  private static final String HTML = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+
+  private final CsrfCookieFilter filter = new CsrfCookieFilter();
+
+  private CsrfToken filter(String method, String path, String accept) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    if (accept != null) {
+      request.addHeader("Accept", accept);
+    }
+    CsrfToken token = mock(CsrfToken.class);
+    request.setAttribute("_csrf", token);
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    assertSame(request, chain.getRequest());
+    return token;
+  }
+
+  @Test
+  public void page_loads_load_the_token() throws Exception {
+    verify(filter("GET", "/", HTML), times(1)).getToken();
+    verify(filter("GET", "/ucsbdates/edit/1", HTML), times(1)).getToken();
+    verify(filter("GET", "/v1.2/page", HTML), times(1)).getToken();
+  }
+
+  @Test
+  public void state_changing_calls_load_the_token() throws Exception {
+    verify(filter("POST", "/api/ucsbdates/post", null), times(1)).getToken();
+    verify(filter("PUT", "/api/ucsbdates", "application/json"), times(1)).getToken();
+    verify(filter("PATCH", "/api/ucsbdates", null), times(1)).getToken();
+    verify(filter("DELETE", "/api/ucsbdates", null), times(1)).getToken();
+  }
+
+  @Test
+  public void static_assets_leave_the_token_alone() throws Exception {
+    verify(filter("GET", "/static/js/main.3f2a1b.js", "*/*"), never()).getToken();
+    verify(filter("GET", "/favicon.ico", HTML), never()).getToken();
+    verify(filter("GET", "/static/css/main.css", null), never()).getToken();
+  }
+
+  @Test
+  public void api_reads_leave_the_token_alone() throws Exception {
+    verify(filter("GET", "/api/ucsbdates/all", "application/json"), never()).getToken();
+    verify(filter("GET", "/api/currentUser", null), never()).getToken();
+    verify(filter("HEAD", "/", HTML), never()).getToken();
+    verify(filter("OPTIONS", "/api/ucsbdates", null), never()).getToken();
+  }
+}
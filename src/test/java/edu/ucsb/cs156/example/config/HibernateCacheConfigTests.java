@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ HibernateCacheConfig.class, TableVersionService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+    "app.hibernate.cache.ucsbdates.maximum-size=2",
+    "app.hibernate.cache.ucsbdates.ttl-seconds=5" })
+public class HibernateCacheConfigTests {
+
+  @Autowired
+  CacheManager hibernateCacheManager;
+
+  @Autowired
+  MeterBinder hibernateCacheMetrics;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  // The cache outlives each test, so it is emptied along with the tables
+  @AfterEach
+  public void deleteAll() {
+    ucsbOrganizationRepository.deleteAll();
+    ucsbDateRepository.deleteAll();
+    articlesRepository.deleteAll();
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Cache<Object, Object> region(String name) {
+    return hibernateCacheManager.getCache(name).unwrap(Cache.class);
+  }
+
+  private UCSBOrganization organization(String orgCode) {
+    return ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode(orgCode)
+        .orgTranslationShort(orgCode).orgTranslation(orgCode).build());
+  }
+
+  private UCSBDate date(String quarterYYYYQ, String name) {
+    return ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ(quarterYYYYQ).name(name)
+        .localDateTime(LocalDateTime.parse("2024-01-03T00:00:00")).build());
+  }
+
+  @Test
+  public void reference_entities_are_read_from_the_cache_in_later_transactions() {
+    organization("KRC");
+    long hits = region("ucsborganization").stats().hitCount();
+
+    Optional<UCSBOrganization> first = ucsbOrganizationRepository.findById("KRC");
+    Optional<UCSBOrganization> second = ucsbOrganizationRepository.findById("KRC");
+
+    assertEquals("KRC", first.get().getOrgCode());
+    assertEquals(first, second);
+    assertEquals(hits + 2, region("ucsborganization").stats().hitCount());
+    assertTrue(entityManagerFactory.getCache().contains(UCSBOrganization.class, "KRC"));
+  }
+
+  @Test
+  public void transactional_entities_are_not_cached() {
+    Articles article = articlesRepository.save(Articles.builder().title("JPA tips").url("https://spring.io/jpa")
+        .explanation("Entities").email("cgaucho@ucsb.edu").dateAdded(LocalDateTime.parse("2024-10-23T00:00:00"))
+        .build());
+
+    articlesRepository.findById(article.getId());
+
+    assertFalse(entityManagerFactory.getCache().contains(Articles.class, article.getId()));
+  }
+
+  @Test
+  public void dates_of_a_quarter_are_read_from_the_query_cache_until_the_table_is_written() {
+    UCSBDate start = date("20241", "start");
+    long hits = region("default-query-results-region").stats().hitCount();
+
+    assertEquals(List.of(start), ucsbDateRepository.findAllByQuarterYYYYQ("20241"));
+    assertEquals(List.of(start), ucsbDateRepository.findAllByQuarterYYYYQ("20241"));
+    assertEquals(hits + 1, region("default-query-results-region").stats().hitCount());
+
+    UCSBDate end = date("20241", "end");
+
+    assertEquals(List.of(start, end), ucsbDateRepository.findAllByQuarterYYYYQ("20241"));
+  }
+
+  @Test
+  public void deleting_a_row_with_a_statement_evicts_it() {
+    UCSBDate start = date("20241", "start");
+    assertEquals(List.of(start), ucsbDateRepository.findAll());
+    ucsbDateRepository.findById(start.getId());
+
+    assertEquals(1, ucsbDateRepository.deleteRowById(start.getId()));
+
+    assertEquals(Optional.empty(), ucsbDateRepository.findById(start.getId()));
+    assertEquals(List.of(), ucsbDateRepository.findAll());
+  }
+
+  @Test
+  public void regions_are_sized_from_the_properties() {
+    CaffeineConfiguration<?, ?> dates = hibernateCacheManager.getCache("ucsbdates")
+        .getConfiguration(CaffeineConfiguration.class);
+    CaffeineConfiguration<?, ?> timestamps = hibernateCacheManager.getCache("default-update-timestamps-region")
+        .getConfiguration(CaffeineConfiguration.class);
+
+    assertEquals(OptionalLong.of(2), dates.getMaximumSize());
+    assertEquals(OptionalLong.of(TimeUnit.SECONDS.toNanos(5)), dates.getExpireAfterWrite());
+    // the timestamps region has no properties, and its entries must never expire
+    assertEquals(OptionalLong.of(10_000), timestamps.getMaximumSize());
+    assertEquals(OptionalLong.empty(), timestamps.getExpireAfterWrite());
+  }
+
+  @Test
+  public void each_region_publishes_its_hit_ratio() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    organization("KRC");
+    ucsbOrganizationRepository.findById("KRC");
+    region("ucsborganization").getIfPresent("no such key");
+
+    hibernateCacheMetrics.bindTo(registry);
+
+    for (String region : HibernateCacheConfig.REGIONS) {
+      assertNotNull(registry.find("cache.hit.ratio").tag("cache", region).gauge(), region);
+      assertNotNull(registry.find("cache.gets").tag("cache", region).tag("result", "hit").functionCounter(), region);
+    }
+    double ratio = registry.get("cache.hit.ratio").tag("cache", "ucsborganization").gauge().value();
+    assertTrue(ratio > 0 && ratio < 1, "hit ratio " + ratio);
+  }
+}
@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.UserInfoController;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.events.UserChangedEvent;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@WebMvcTest(controllers = UserInfoController.class)
+@Import({ TestConfig.class, TransactionalEventListenerFactory.class })
+@TestPropertySource(properties = "app.admin.emails=admingaucho@ucsb.edu,phtcon@ucsb.edu")
+public class SecurityConfigTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  SecurityConfig securityConfig;
+
+  @Autowired
+  ApplicationEventPublisher publisher;
+
+  @Test
+  public void listed_admin_emails_never_query_the_database() {
+    assertTrue(securityConfig.getAdmin("admingaucho@ucsb.edu"));
+    assertTrue(securityConfig.getAdmin("phtcon@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  public void database_admin_flag_is_read_once_and_then_cached() {
+    User user = User.builder().email("dbadmin@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("dbadmin@ucsb.edu")).thenReturn(Optional.of(user));
+
+    assertTrue(securityConfig.getAdmin("dbadmin@ucsb.edu"));
+    assertTrue(securityConfig.getAdmin("dbadmin@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("dbadmin@ucsb.edu");
+  }
+
+  @Test
+  public void unknown_users_are_not_admins_and_the_answer_is_cached() {
+    when(userRepository.findByEmail("nobody@ucsb.edu")).thenReturn(Optional.empty());
+
+    assertFalse(securityConfig.getAdmin("nobody@ucsb.edu"));
+    assertFalse(securityConfig.getAdmin("nobody@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("nobody@ucsb.edu");
+  }
+
+  @Test
+  public void writing_a_user_evicts_the_cached_admin_flag() {
+    User before = User.builder().email("cgaucho@ucsb.edu").admin(false).build();
+    User after = User.builder().email("cgaucho@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(before), Optional.of(after));
+
+    assertFalse(securityConfig.getAdmin("cgaucho@ucsb.edu"));
+    publisher.publishEvent(new UserChangedEvent(after));
+    assertTrue(securityConfig.getAdmin("cgaucho@ucsb.edu"));
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  public void a_revoked_admin_flag_read_before_the_revocation_commits_is_not_kept() {
+    User before = User.builder().email("revoked@ucsb.edu").admin(true).build();
+    User after = User.builder().email("revoked@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmail("revoked@ucsb.edu")).thenReturn(Optional.of(before), Optional.of(after));
+
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      publisher.publishEvent(new UserChangedEvent(after));
+      // a login in between still sees the committed row
+      assertTrue(securityConfig.getAdmin("revoked@ucsb.edu"));
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertFalse(securityConfig.getAdmin("revoked@ucsb.edu"));
+    verify(userRepository, times(2)).findByEmail("revoked@ucsb.edu");
+  }
+
+  @Test
+  public void events_for_users_without_an_email_are_ignored() {
+    publisher.publishEvent(new UserChangedEvent(User.builder().build()));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  public void null_email_is_not_an_admin() {
+    assertFalse(securityConfig.getAdmin(null));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  public void loading_the_admin_flag_does_not_pin_virtual_threads() throws Exception {
+    when(userRepository.findByEmail("slow@ucsb.edu")).thenAnswer(invocation -> {
+      Thread.sleep(100);
+      return Optional.empty();
+    });
+
+    Path file = Files.createTempFile("pinning", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(20));
+      recording.start();
+      Thread.ofVirtual().start(() -> securityConfig.getAdmin("slow@ucsb.edu")).join();
+      recording.stop();
+      recording.dump(file);
+    }
+    List<RecordedEvent> pinned = RecordingFile.readAllEvents(file);
+    Files.delete(file);
+
+    assertEquals(List.of(), pinned);
+    verify(userRepository, times(1)).findByEmail("slow@ucsb.edu");
+  }
+}
@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class SpaFallbackHandlerMappingTests {
+
+  @Test
+  public void routes_of_the_frontend_are_pages() {
+    assertTrue(SpaFallbackHandlerMapping.isPage("/"));
+    assertTrue(SpaFallbackHandlerMapping.isPage("/ucsbdates"));
+    assertTrue(SpaFallbackHandlerMapping.isPage("/ucsbdates/edit/7"));
+    assertTrue(SpaFallbackHandlerMapping.isPage("/v1.2/ucsbdates/"));
+    // only whole first segments belong to the server
+    assertTrue(SpaFallbackHandlerMapping.isPage("/apis"));
+    assertTrue(SpaFallbackHandlerMapping.isPage("/admin/api"));
+  }
+
+  @Test
+  public void assets_are_not_pages() {
+    assertFalse(SpaFallbackHandlerMapping.isPage("/favicon.ico"));
+    assertFalse(SpaFallbackHandlerMapping.isPage("/static/js/main.0123abcd.js"));
+    assertFalse(SpaFallbackHandlerMapping.isPage("/.well-known"));
+  }
+
+  @Test
+  public void paths_of_the_server_are_not_pages() {
+    for (String segment : SpaFallbackHandlerMapping.SERVER_SEGMENTS) {
+      assertFalse(SpaFallbackHandlerMapping.isPage("/" + segment), segment);
+      assertFalse(SpaFallbackHandlerMapping.isPage("/" + segment + "/anything/else"), segment);
+    }
+  }
+}
@@ -3,16 +3,27 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.SearchPage;
+import edu.ucsb.cs156.example.services.ArticlesSearchService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -21,6 +32,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -37,6 +49,15 @@ public class ArticlesControllerTests extends ControllerTestCase {
     @MockBean
     ArticlesRepository articleRepository;  // Use the correct field name
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    OptimisticUpdateService optimisticUpdateService;
+
+    @MockBean
+    ArticlesSearchService articlesSearchService;
+
     @MockBean
     UserRepository userRepository;
 
@@ -219,6 +240,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
         String requestBody = mapper.writeValueAsString(editedArticle);
 
         when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(originalArticle));
+        when(articleRepository.save(any(Articles.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // act
         MvcResult response = mockMvc.perform(
@@ -227,7 +249,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .characterEncoding("utf-8")
                                 .content(requestBody)
                                 .with(csrf()))
-                .andExpect(status().isOk()).andReturn();
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
         // assert
         verify(articleRepository, times(1)).findById(67L);
@@ -278,17 +301,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
     public void admin_can_delete_an_article() throws Exception {
             // arrange
 
-            LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-            Articles article = Articles.builder()
-                            .title("First Article")
-                            .url("https://first.com")
-                            .explanation("This is the first article.")
-                            .email("first@example.com")
-                            .dateAdded(ldt1)
-                            .build();
-
-            when(articleRepository.findById(eq(15L))).thenReturn(Optional.of(article));
+            when(articleRepository.deleteRowById(eq(15L))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -297,8 +310,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(articleRepository, times(1)).findById(15L);
-            verify(articleRepository, times(1)).delete(any());
+            verify(articleRepository, times(1)).deleteRowById(15L);
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("Article with id 15 deleted", json.get("message"));
@@ -310,7 +322,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                     throws Exception {
             // arrange
 
-            when(articleRepository.findById(eq(15L))).thenReturn(Optional.empty());
+            when(articleRepository.deleteRowById(eq(15L))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -319,9 +331,213 @@ public class ArticlesControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(articleRepository, times(1)).findById(15L);
+            verify(articleRepository, times(1)).deleteRowById(15L);
             Map<String, Object> json = responseToJson(response);
             assertEquals("Articles with id 15 not found", json.get("message"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+            mockMvc.perform(get("/api/articles/page"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+            // arrange
+            Articles first = Articles.builder().id(1L).title("First Article").build();
+            Articles second = Articles.builder().id(2L).title("Second Article").build();
+            List<Articles> content = List.of(first, second);
+            PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+            when(articleRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/page?size=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(0L, pageable);
+            String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+            // arrange
+            List<Articles> content = List.of();
+            PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+            when(articleRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/page?after=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(2L, pageable);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(List.of(), json.get("content"));
+            assertEquals(null, json.get("next"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void page_size_is_capped_at_the_configured_maximum() throws Exception {
+            // arrange
+            PageRequest pageable = PageRequest.of(0, 500, Sort.by("id"));
+            when(articleRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(List.of(), pageable, false));
+
+            // act
+            mockMvc.perform(get("/api/articles/page?size=100000"))
+                            .andExpect(status().isOk());
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(0L, pageable);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void page_size_is_at_least_one() throws Exception {
+            // arrange
+            PageRequest pageable = PageRequest.of(0, 1, Sort.by("id"));
+            when(articleRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(List.of(), pageable, false));
+
+            // act
+            mockMvc.perform(get("/api/articles/page?size=0"))
+                            .andExpect(status().isOk());
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(0L, pageable);
+    }
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+            mockMvc.perform(get("/api/articles/export"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_export_as_ndjson() throws Exception {
+            // arrange
+            Articles row = Articles.builder().id(1L).title("First Article").build();
+            String line = mapper.writeValueAsString(row) + "\n";
+            when(ndjsonExportService.export(eq(Articles.class), any())).thenAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(1);
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+            });
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/export"))
+                            .andExpect(status().isOk())
+                            .andExpect(content().contentType(NdjsonExportService.NDJSON)).andReturn();
+
+            // assert
+            verify(ndjsonExportService, times(1)).export(eq(Articles.class), any());
+            assertEquals(line, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_article_with_if_match_in_a_single_update() throws Exception {
+        // arrange
+
+        Articles articlesEdited = Articles.builder()
+                .title("Using git")
+                .url("https://git-scm.com")
+                .explanation("the git book")
+                .email("phtcon@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+
+        Articles articlesUpdated = Articles.builder()
+                .title("Using git")
+                .url("https://git-scm.com")
+                .explanation("the git book")
+                .email("phtcon@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .id(67L).version(4)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(articlesEdited);
+
+        when(optimisticUpdateService.update(eq(67L), eq(3L), eq(articlesEdited),
+                eq("title"), eq("url"), eq("explanation"), eq("email"), eq("dateAdded"))).thenReturn(articlesUpdated);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/articles?id=67")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andReturn();
+
+        // assert
+        verify(articleRepository, times(0)).findById(67L);
+        verify(articleRepository, times(0)).save(any());
+        assertEquals(mapper.writeValueAsString(articlesUpdated), response.getResponse().getContentAsString());
+    }
+
+    // Tests for GET /api/articles/search
+
+    @Test
+    public void logged_out_users_cannot_search() throws Exception {
+        mockMvc.perform(get("/api/articles/search?q=git"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_search_articles() throws Exception {
+        // arrange
+
+        Articles article = Articles.builder()
+                .id(3L)
+                .title("Using git")
+                .url("https://git-scm.com")
+                .explanation("the git book")
+                .email("phtcon@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        SearchPage<Articles> expected = new SearchPage<>(List.of(article), 2, 11);
+        when(articlesSearchService.search("git bo", 2, 5)).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/search?q=git bo&page=2&size=5"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(articlesSearchService, times(1)).search("git bo", 2, 5);
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void search_defaults_to_the_first_page_of_the_default_size() throws Exception {
+        when(articlesSearchService.search("git", 0, 50)).thenReturn(new SearchPage<>(List.of(), 0, 0));
+
+        mockMvc.perform(get("/api/articles/search?q=git"))
+                .andExpect(status().isOk());
+
+        verify(articlesSearchService, times(1)).search("git", 0, 50);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void search_rejects_a_negative_page() throws Exception {
+        MvcResult response = mockMvc.perform(get("/api/articles/search?q=git&page=-1"))
+                .andExpect(status().isBadRequest()).andReturn();
+
+        verify(articlesSearchService, never()).search(any(), anyInt(), anyInt());
+        assertEquals("page must not be negative, got -1", responseToJson(response).get("message"));
+    }
+}
@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.SpaFallbackHandlerMapping;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.IndexPageService;
+
+@WebMvcTest(controllers = FrontendController.class)
+@Import({ IndexPageService.class, SpaFallbackHandlerMapping.class })
+@TestPropertySource(properties = "app.frontend.index=classpath:/frontend/index.html")
+public class FrontendControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Test
+  public void pages_are_index_html_precompressed_with_an_etag() throws Exception {
+    MvcResult response = mockMvc.perform(get("/ucsbdates/edit/1").header("Accept-Encoding", "gzip, br"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("text/html"))
+        .andExpect(header().string("Content-Encoding", "br"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(header().string("Cache-Control", "no-cache"))
+        .andExpect(header().exists("ETag"))
+        .andReturn();
+
+    byte[] br = new ClassPathResource("frontend/index.html.br").getContentAsByteArray();
+    assertArrayEquals(br, response.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void a_page_the_browser_already_has_is_not_modified() throws Exception {
+    String eTag = mockMvc.perform(get("/")).andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(get("/ucsbdates").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+    // a different encoding is a different representation, so it is sent again
+    mockMvc.perform(get("/ucsbdates").header("If-None-Match", eTag).header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"));
+  }
+
+  @Test
+  public void hashed_assets_are_immutable_and_precompressed() throws Exception {
+    MvcResult response = mockMvc.perform(get("/static/js/main.0123abcd.js").header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+        .andExpect(header().doesNotExist("Last-Modified"))
+        .andReturn();
+
+    byte[] gzip = new ClassPathResource("public/static/js/main.0123abcd.js.gz").getContentAsByteArray();
+    assertArrayEquals(gzip, response.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void only_gets_of_frontend_routes_are_pages() throws Exception {
+    mockMvc.perform(get("/ucsbdates/create")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/nothing/here")).andExpect(status().isNotFound());
+    mockMvc.perform(get("/static/js/missing.0123abcd.js")).andExpect(status().isNotFound());
+    mockMvc.perform(post("/ucsbdates/create").with(csrf())).andExpect(status().isNotFound());
+  }
+}
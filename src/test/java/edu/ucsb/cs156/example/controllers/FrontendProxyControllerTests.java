@@ -0,0 +1,202 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * These tests run FrontendProxyController against a WireMock server standing in for the
+ * frontend's development server.
+ */
+@Slf4j
+@WebMvcTest(controllers = FrontendProxyController.class)
+@ActiveProfiles("development")
+@TestPropertySource(properties = "app.frontend.proxy.cache.maximum-bytes=16777216")
+public class FrontendProxyControllerTests extends ControllerTestCase {
+
+  static WireMockServer frontend = new WireMockServer(options().dynamicPort());
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  FrontendProxyController frontendProxyController;
+
+  @DynamicPropertySource
+  static void frontendUrl(DynamicPropertyRegistry registry) {
+    registry.add("app.frontend.proxy.url", frontend::baseUrl);
+  }
+
+  @BeforeAll
+  static void startFrontend() {
+    frontend.start();
+  }
+
+  @AfterAll
+  static void stopFrontend() {
+    frontend.stop();
+  }
+
+  @BeforeEach
+  void reset() {
+    frontend.resetAll();
+    assetCache().invalidateAll();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Cache<String, ?> assetCache() {
+    return (Cache<String, ?>) ReflectionTestUtils.getField(frontendProxyController, "assetCache");
+  }
+
+  private static byte[] bytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void responses_of_the_frontend_server_are_passed_through() throws Exception {
+    byte[] bundle = bytes(3 * 1024 * 1024);
+    frontend.stubFor(get("/ucsbdates/edit/1").willReturn(aResponse()
+        .withHeader("Content-Type", "text/html").withHeader("X-Dev-Server", "yes").withBody("<html></html>")));
+    frontend.stubFor(get("/static/js/bundle.js?v=2").willReturn(aResponse()
+        .withHeader("Content-Type", "application/javascript").withBody(bundle)));
+    frontend.stubFor(get("/missing").willReturn(aResponse().withStatus(404).withBody("Cannot GET /missing")));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/ucsbdates/edit/1")
+        .header("Accept", "text/html").header("Cookie", "JSESSIONID=secret"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "text/html"))
+        .andExpect(header().string("X-Dev-Server", "yes"))
+        .andExpect(content().string("<html></html>"));
+    MvcResult response = mockMvc.perform(MockMvcRequestBuilders.get("/static/js/bundle.js?v=2"))
+        .andExpect(status().isOk())
+        .andReturn();
+    assertArrayEquals(bundle, response.getResponse().getContentAsByteArray());
+    mockMvc.perform(MockMvcRequestBuilders.get("/missing"))
+        .andExpect(status().isNotFound())
+        .andExpect(content().string("Cannot GET /missing"));
+
+    frontend.verify(getRequestedFor(urlEqualTo("/ucsbdates/edit/1"))
+        .withHeader("Accept", equalTo("text/html"))
+        .withoutHeader("Cookie"));
+  }
+
+  @Test
+  public void only_hashed_or_immutable_assets_are_fetched_once() throws Exception {
+    frontend.stubFor(get(urlPathMatching("/static/.*")).willReturn(aResponse().withBody("asset")));
+    frontend.stubFor(get("/static/js/vendor.js").willReturn(aResponse()
+        .withHeader("Cache-Control", "max-age=31536000, immutable").withBody("vendor")));
+    frontend.stubFor(get("/static/media/gone.0123abcd.svg").willReturn(aResponse().withStatus(404)));
+
+    for (int i = 0; i < 3; i++) {
+      mockMvc.perform(MockMvcRequestBuilders.get("/static/media/logo.6ce24c58.svg")).andExpect(content().string("asset"));
+      mockMvc.perform(MockMvcRequestBuilders.get("/static/js/vendor.js")).andExpect(content().string("vendor"));
+      mockMvc.perform(MockMvcRequestBuilders.get("/static/js/bundle.js")).andExpect(content().string("asset"));
+      mockMvc.perform(MockMvcRequestBuilders.get("/static/media/gone.0123abcd.svg")).andExpect(status().isNotFound());
+    }
+    // a different encoding is a different response, and is passed through as it is
+    mockMvc.perform(MockMvcRequestBuilders.get("/static/media/logo.6ce24c58.svg").header("Accept-Encoding", "gzip"))
+        .andExpect(header().string("Content-Encoding", "gzip"));
+
+    frontend.verify(2, getRequestedFor(urlEqualTo("/static/media/logo.6ce24c58.svg")));
+    frontend.verify(1, getRequestedFor(urlEqualTo("/static/js/vendor.js")));
+    frontend.verify(3, getRequestedFor(urlEqualTo("/static/js/bundle.js")));
+    frontend.verify(3, getRequestedFor(urlEqualTo("/static/media/gone.0123abcd.svg")));
+  }
+
+  @Test
+  public void instructions_are_sent_when_the_frontend_server_is_not_running() throws Exception {
+    String frontendUrl = (String) ReflectionTestUtils.getField(frontendProxyController, "frontendUrl");
+    ReflectionTestUtils.setField(frontendProxyController, "frontendUrl", "http://localhost:1");
+    try {
+      mockMvc.perform(MockMvcRequestBuilders.get("/"))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType("text/html;charset=UTF-8"))
+          .andExpect(content().string(containsString("npm install; npm start")));
+    } finally {
+      ReflectionTestUtils.setField(frontendProxyController, "frontendUrl", frontendUrl);
+    }
+  }
+
+  /**
+   * This test times loading the same page repeatedly through the proxy, as a browser test
+   * suite does, without and with the asset cache.  The frontend server answers after 2ms,
+   * as a development server does at best.  The times are logged rather than compared,
+   * since they depend on the machine; what is compared is how often the frontend server
+   * is asked.
+   */
+  @Test
+  public void page_loads_through_the_proxy_are_timed() throws Exception {
+    int assets = 20;
+    int loads = 10;
+    frontend.stubFor(get("/").willReturn(aResponse().withFixedDelay(2).withBody("<html></html>")));
+    frontend.stubFor(get("/static/js/bundle.js").willReturn(aResponse().withFixedDelay(2).withBody(bytes(256 * 1024))));
+    frontend.stubFor(get(urlPathMatching("/static/media/.*")).willReturn(aResponse().withFixedDelay(2).withBody(bytes(16 * 1024))));
+
+    Cache<String, ?> assetCache = assetCache();
+    ReflectionTestUtils.setField(frontendProxyController, "assetCache", null);
+    long uncached;
+    try {
+      uncached = loadPage(assets, loads);
+    } finally {
+      ReflectionTestUtils.setField(frontendProxyController, "assetCache", assetCache);
+    }
+    int uncachedRequests = frontend.getAllServeEvents().size();
+    frontend.resetRequests();
+    long cached = loadPage(assets, loads);
+    int cachedRequests = frontend.getAllServeEvents().size();
+
+    log.info("{} page loads of {} assets through the proxy: {}ms without the asset cache, {}ms with it",
+        loads, assets + 2, uncached / 1_000_000, cached / 1_000_000);
+    assertEquals(loads * (assets + 2), uncachedRequests);
+    assertEquals(loads * 2 + assets, cachedRequests);
+  }
+
+  private long loadPage(int assets, int loads) throws Exception {
+    long start = System.nanoTime();
+    for (int load = 0; load < loads; load++) {
+      mockMvc.perform(MockMvcRequestBuilders.get("/")).andExpect(status().isOk());
+      mockMvc.perform(MockMvcRequestBuilders.get("/static/js/bundle.js")).andExpect(status().isOk());
+      for (int asset = 0; asset < assets; asset++) {
+        mockMvc.perform(MockMvcRequestBuilders.get("/static/media/image%d.%08x.png".formatted(asset, asset)))
+            .andExpect(status().isOk());
+      }
+    }
+    return System.nanoTime() - start;
+  }
+}
@@ -3,18 +3,33 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.events.HelpRequestChangedEvent;
+import edu.ucsb.cs156.example.events.HelpRequestsDeletedEvent;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestStreamService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -26,19 +41,31 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = HelpRequestController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, HelpRequestStreamService.class })
+@RecordApplicationEvents
 public class HelpRequestControllerTests extends ControllerTestCase {
 
+        @Autowired
+        ApplicationEvents events;
+
         @MockBean
         HelpRequestRepository helpRequestRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        OptimisticUpdateService optimisticUpdateService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -138,6 +165,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(helpRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(List.of(new HelpRequestChangedEvent(HelpRequestChangedEvent.Type.CREATED, helpRequest1)),
+                                events.stream(HelpRequestChangedEvent.class).toList());
         }
 
         // Authorization tests for GET
@@ -253,6 +282,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
                 when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.of(helpRequestOrig));
+                when(helpRequestRepository.save(any(HelpRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -261,13 +291,16 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(helpRequestRepository, times(1)).findById(123L);
                 verify(helpRequestRepository, times(1)).save(helpRequestEdited); // should be saved with correct user
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(List.of(new HelpRequestChangedEvent(HelpRequestChangedEvent.Type.SOLVED, helpRequestOrig)),
+                                events.stream(HelpRequestChangedEvent.class).toList());
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -312,18 +345,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_help_request() throws Exception {
                 // arrange
 
-                LocalDateTime reqTime1 = LocalDateTime.parse("2024-02-13T00:00:00");
-
-                HelpRequest helpRequest1 = HelpRequest.builder()
-                                .requesterEmail("ttnguyen@ucsb.edu")
-                                .teamId("F24-16")
-                                .tableOrBreakoutRoom("Table_16")
-                                .explanation("Needs_help_with_jpa03")
-                                .solved(true)
-                                .requestTime(reqTime1)
-                                .build();
-
-                when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.of(helpRequest1));
+                when(helpRequestRepository.deleteRowById(eq(123L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -332,11 +354,12 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(123L);
-                verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestRepository, times(1)).deleteRowById(123L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 123 deleted", json.get("message"));
+                assertEquals(List.of(new HelpRequestsDeletedEvent(List.of(123L))),
+                                events.stream(HelpRequestsDeletedEvent.class).toList());
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -345,7 +368,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.deleteRowById(eq(123L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -354,8 +377,264 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(123L);
+                verify(helpRequestRepository, times(1)).deleteRowById(123L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 123 not found", json.get("message"));
+                assertEquals(0, events.stream(HelpRequestsDeletedEvent.class).count());
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/helprequest/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder().id(1L).teamId("s22-5pm-3").build();
+                HelpRequest second = HelpRequest.builder().id(2L).teamId("s22-6pm-4").build();
+                List<HelpRequest> content = List.of(first, second);
+                PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+                when(helpRequestRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findByIdGreaterThan(0L, pageable);
+                String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+                // arrange
+                List<HelpRequest> content = List.of();
+                PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+                when(helpRequestRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findByIdGreaterThan(2L, pageable);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(), json.get("content"));
+                assertEquals(null, json.get("next"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/helprequest/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_as_ndjson() throws Exception {
+                // arrange
+                HelpRequest row = HelpRequest.builder().id(1L).teamId("s22-5pm-3").build();
+                String line = mapper.writeValueAsString(row) + "\n";
+                when(ndjsonExportService.export(eq(HelpRequest.class), any())).thenAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(1);
+                        out.write(line.getBytes(StandardCharsets.UTF_8));
+                        return 1L;
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/export"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.NDJSON)).andReturn();
+
+                // assert
+                verify(ndjsonExportService, times(1)).export(eq(HelpRequest.class), any());
+                assertEquals(line, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_helprequest_with_if_match_in_a_single_update() throws Exception {
+                // arrange
+
+                HelpRequest helpRequestEdited = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(true)
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                HelpRequest helpRequestUpdated = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(true)
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .id(123L).version(4)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(helpRequestEdited);
+
+                when(optimisticUpdateService.update(eq(123L), eq(3L), eq(helpRequestEdited),
+                                eq("requesterEmail"), eq("teamId"), eq("tableOrBreakoutRoom"), eq("explanation"), eq("solved"), eq("requestTime"))).thenReturn(helpRequestUpdated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequest?id=123")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).findById(123L);
+                verify(helpRequestRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(helpRequestUpdated), response.getResponse().getContentAsString());
+                assertEquals(List.of(new HelpRequestChangedEvent(HelpRequestChangedEvent.Type.SOLVED, helpRequestUpdated)),
+                                events.stream(HelpRequestChangedEvent.class).toList());
+        }
+
+        // Tests for bulk DELETE /api/helprequest?ids=
+
+        @Test
+        public void logged_out_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/helprequest?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/helprequest?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                verify(helpRequestRepository, never()).deleteRowsReturningIds(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_in_one_statement() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.deleteRowsReturningIds(eq(List.of(1L, 2L, 3L)))).thenReturn(List.of(1L, 3L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequest?ids=1,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).deleteRowsReturningIds(List.of(1L, 2L, 3L));
+                verify(helpRequestRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 of 3 HelpRequests deleted", json.get("message"));
+                assertEquals(List.of(new HelpRequestsDeletedEvent(List.of(1L, 3L))),
+                                events.stream(HelpRequestsDeletedEvent.class).toList());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_delete_of_no_ids_deletes_nothing() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequest?ids=")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).deleteRowsReturningIds(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("0 of 0 HelpRequests deleted", json.get("message"));
+                assertEquals(0, events.stream(HelpRequestsDeletedEvent.class).count());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_delete_of_too_many_ids_is_rejected() throws Exception {
+                // arrange
+                String ids = String.join(",", java.util.Collections.nCopies(10001, "7"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequest").param("ids", ids)
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).deleteRowsReturningIds(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("at most 10000 rows can be deleted at once, got 10001", json.get("message"));
+        }
+
+        // Tests for GET /api/helprequest/stream
+
+        @Test
+        public void logged_out_users_cannot_stream() throws Exception {
+                mockMvc.perform(get("/api/helprequest/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void subscribers_receive_created_and_updated_help_requests_as_server_sent_events() throws Exception {
+                // arrange
+
+                HelpRequest helpRequest = HelpRequest.builder()
+                                .id(17L)
+                                .requesterEmail("ttnguyen@ucsb.edu")
+                                .teamId("F24-16")
+                                .tableOrBreakoutRoom("Table_16")
+                                .explanation("Needs_help_with_jpa03")
+                                .solved(false)
+                                .requestTime(LocalDateTime.parse("2024-10-02T00:00:00"))
+                                .build();
+
+                when(helpRequestRepository.save(any())).thenReturn(helpRequest);
+                when(helpRequestRepository.findById(eq(17L))).thenReturn(Optional.of(helpRequest));
+
+                // act
+
+                MvcResult stream = mockMvc.perform(get("/api/helprequest/stream"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(
+                                post("/api/helprequest/post?requesterEmail=ttnguyen@ucsb.edu&teamId=F24-16&tableOrBreakoutRoom=Table_16&explanation=Needs_help_with_jpa03&solved=false&requestTime=2024-10-02T00:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(
+                                put("/api/helprequest?id=17")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(helpRequest))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+
+                String json = mapper.writeValueAsString(helpRequest);
+                String content = "";
+                for (int attempt = 0; attempt < 100 && !content.contains("event:updated"); attempt++) {
+                        Thread.sleep(50);
+                        content = stream.getResponse().getContentAsString();
+                }
+                assertEquals("text/event-stream", stream.getResponse().getContentType());
+                assertTrue(content.matches(
+                                "(?s)id:\\d+\nevent:created\ndata:\\Q" + json + "\\E\n\n"
+                                                + "id:\\d+\nevent:updated\ndata:\\Q" + json + "\\E\n\n"),
+                                content);
         }
-}
\ No newline at end of file
+}
@@ -3,13 +3,24 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.MenuItemReviewSummaryService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewSummary;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -27,6 +38,7 @@ import java.time.LocalDateTime;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +51,15 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     @MockBean
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    MenuItemReviewSummaryService menuItemReviewSummaryService;
+
+    @MockBean
+    OptimisticUpdateService optimisticUpdateService;
+
     @MockBean
     UserRepository userRepository;
 
@@ -209,6 +230,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(review_1);
+                verify(menuItemReviewSummaryService, times(1)).reviewAdded(review_1);
                 String expectedJson = mapper.writeValueAsString(review_1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -241,6 +263,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(15L);
                 verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewSummaryService, times(1)).reviewRemoved(review_1);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -293,6 +316,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(review_1_Edited);
 
                 when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(review_1_Original));
+                when(menuItemReviewRepository.save(any(MenuItemReview.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -301,11 +325,13 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(67L);
                 verify(menuItemReviewRepository, times(1)).save(review_1_Edited); // should be saved with correct user
+                verify(menuItemReviewSummaryService, times(1)).reviewChanged(5L, 4, review_1_Edited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -345,4 +371,204 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
         }
 
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+            mockMvc.perform(get("/api/menuitemreview/page"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+            // arrange
+            MenuItemReview first = MenuItemReview.builder().id(1L).itemId(27L).stars(5).build();
+            MenuItemReview second = MenuItemReview.builder().id(2L).itemId(29L).stars(3).build();
+            List<MenuItemReview> content = List.of(first, second);
+            PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+            when(menuItemReviewRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?size=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).findByIdGreaterThan(0L, pageable);
+            String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+            // arrange
+            List<MenuItemReview> content = List.of();
+            PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+            when(menuItemReviewRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?after=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, times(1)).findByIdGreaterThan(2L, pageable);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(List.of(), json.get("content"));
+            assertEquals(null, json.get("next"));
+    }
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+            mockMvc.perform(get("/api/menuitemreview/export"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_export_as_ndjson() throws Exception {
+            // arrange
+            MenuItemReview row = MenuItemReview.builder().id(1L).itemId(27L).stars(5).build();
+            String line = mapper.writeValueAsString(row) + "\n";
+            when(ndjsonExportService.export(eq(MenuItemReview.class), any())).thenAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(1);
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+            });
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/menuitemreview/export"))
+                            .andExpect(status().isOk())
+                            .andExpect(content().contentType(NdjsonExportService.NDJSON)).andReturn();
+
+            // assert
+            verify(ndjsonExportService, times(1)).export(eq(MenuItemReview.class), any());
+            assertEquals(line, response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_get_summary() throws Exception {
+            mockMvc.perform(get("/api/menuitemreview/summary?itemId=27"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_summary() throws Exception {
+            // arrange
+            MenuItemReviewSummary summary = MenuItemReviewSummary.builder()
+                            .itemId(27L).reviewCount(3).starsSum(12).minStars(3).maxStars(5)
+                            .stars3(1).stars4(1).stars5(1).build();
+            when(menuItemReviewSummaryService.getSummary(27L)).thenReturn(summary);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/menuitemreview/summary?itemId=27"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(menuItemReviewSummaryService, times(1)).getSummary(27L);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(mapper.writeValueAsString(summary), response.getResponse().getContentAsString());
+            assertEquals(4.0, json.get("averageStars"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_post_a_review_with_too_many_stars() throws Exception {
+            // act
+            MvcResult response = mockMvc.perform(
+                            post("/api/menuitemreview/post")
+                                .param("itemId", "2")
+                                .param("reviewerEmail","rohanpreetam21@gmail.com")
+                                .param("stars", "6")
+                                .param("dateReviewed", "2022-01-03T00:00:00")
+                                .param("comments", "It was very good")
+                                .with(csrf()))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, never()).save(any());
+            verify(menuItemReviewSummaryService, never()).reviewAdded(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("IllegalArgumentException", json.get("type"));
+            assertEquals("stars must be between 0 and 5, was 6", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_edit_a_review_to_have_negative_stars() throws Exception {
+            // arrange
+            MenuItemReview original = MenuItemReview.builder().id(67L).itemId(5).stars(4).build();
+            MenuItemReview edited = MenuItemReview.builder().id(67L).itemId(5).stars(-1).build();
+            when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(original));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            put("/api/menuitemreview?id=67")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .characterEncoding("utf-8")
+                                            .content(mapper.writeValueAsString(edited))
+                                            .with(csrf()))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            verify(menuItemReviewRepository, never()).save(any());
+            verify(menuItemReviewSummaryService, never()).reviewChanged(eq(5L), eq(4), any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("stars must be between 0 and 5, was -1", json.get("message"));
+            assertEquals(4, original.getStars());
+    }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_menuitemreview_with_if_match() throws Exception {
+                // arrange
+
+                MenuItemReview review_1_Original = MenuItemReview.builder()
+                                .itemId(5)
+                                .reviewerEmail("rohanpreetam21@gmail.com")
+                                .stars(4)
+                                .comments("It was very good")
+                                .version(3)
+                                .build();
+
+                MenuItemReview review_1_Edited = MenuItemReview.builder()
+                                .itemId(6)
+                                .reviewerEmail("rohanpreetam21@hotmail.com")
+                                .stars(3)
+                                .comments("It was very average")
+                                .build();
+
+                MenuItemReview review_1_Updated = MenuItemReview.builder()
+                                .id(67L)
+                                .itemId(6)
+                                .reviewerEmail("rohanpreetam21@hotmail.com")
+                                .stars(3)
+                                .comments("It was very average")
+                                .version(4)
+                                .build();
+
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(review_1_Original));
+                when(optimisticUpdateService.update(eq(67L), eq(3L), eq(review_1_Edited),
+                                eq("itemId"), eq("reviewerEmail"), eq("stars"), eq("dateReviewed"), eq("comments")))
+                                .thenReturn(review_1_Updated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(review_1_Edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).save(any());
+                verify(menuItemReviewSummaryService, times(1)).reviewChanged(5L, 4, review_1_Updated);
+                assertEquals(mapper.writeValueAsString(review_1_Updated), response.getResponse().getContentAsString());
+        }
 }
@@ -3,13 +3,22 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
 import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
 import edu.ucsb.cs156.example.repositories.UCSBRecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -30,6 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,6 +51,12 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @MockBean
         UCSBRecommendationRequestRepository ucsbRecommendationRequestRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        OptimisticUpdateService optimisticUpdateService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -226,6 +242,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 when(ucsbRecommendationRequestRepository.findById(eq(67L)))
                                 .thenReturn(Optional.of(recommendationRequest));
+                when(ucsbRecommendationRequestRepository.save(any(UCSBRecommendationRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -234,7 +251,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(ucsbRecommendationRequestRepository, times(1)).findById(67L);
@@ -285,17 +303,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_recommendationRequest() throws Exception {
                 // arrange
 
-                UCSBRecommendationRequest ucsbRecommendationRequest = UCSBRecommendationRequest.builder()
-                                .requesterEmail("John@example.com")
-                                .professorEmail("Zuckerberg@example.com")
-                                .explanation("Need this for Stanford application.")
-                                .dateRequested(LocalDateTime.now())
-                                .dateNeeded(LocalDateTime.now().plusDays(31))
-                                .done(true)
-                                //.id(15) // might need for testing
-                                .build();
-
-                when(ucsbRecommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbRecommendationRequest));
+                when(ucsbRecommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -304,8 +312,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbRecommendationRequestRepository, times(1)).findById(15L);
-                verify(ucsbRecommendationRequestRepository, times(1)).delete(any());
+                verify(ucsbRecommendationRequestRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBRecommendationRequest with id 15 deleted", json.get("message"));
@@ -317,7 +324,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbRecommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbRecommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -326,7 +333,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbRecommendationRequestRepository, times(1)).findById(15L);
+                verify(ucsbRecommendationRequestRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBRecommendationRequest with id 15 not found", json.get("message"));
         }
@@ -376,4 +383,202 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         // verify(ucsbRecommendationRequestRepository, times(1)).save(newRequest);
         // }
 
-}
\ No newline at end of file
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/recommendationRequest/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/recommendationRequest/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+                // arrange
+                UCSBRecommendationRequest first = UCSBRecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").build();
+                UCSBRecommendationRequest second = UCSBRecommendationRequest.builder().id(2L).requesterEmail("ldelplaya@ucsb.edu").build();
+                List<UCSBRecommendationRequest> content = List.of(first, second);
+                PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+                when(ucsbRecommendationRequestRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationRequest/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbRecommendationRequestRepository, times(1)).findByIdGreaterThan(0L, pageable);
+                String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+                // arrange
+                List<UCSBRecommendationRequest> content = List.of();
+                PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+                when(ucsbRecommendationRequestRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationRequest/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbRecommendationRequestRepository, times(1)).findByIdGreaterThan(2L, pageable);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(), json.get("content"));
+                assertEquals(null, json.get("next"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/recommendationRequest/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void logged_in_user_can_export_as_ndjson() throws Exception {
+                // arrange
+                UCSBRecommendationRequest row = UCSBRecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").build();
+                String line = mapper.writeValueAsString(row) + "\n";
+                when(ndjsonExportService.export(eq(UCSBRecommendationRequest.class), any())).thenAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(1);
+                        out.write(line.getBytes(StandardCharsets.UTF_8));
+                        return 1L;
+                });
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationRequest/export"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(NdjsonExportService.NDJSON)).andReturn();
+
+                // assert
+                verify(ndjsonExportService, times(1)).export(eq(UCSBRecommendationRequest.class), any());
+                assertEquals(line, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_recommendation_request_with_if_match_in_a_single_update() throws Exception {
+                // arrange
+
+                UCSBRecommendationRequest ucsbRecommendationRequestEdited = UCSBRecommendationRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .professorEmail("phtcon@ucsb.edu")
+                                .explanation("BS/MS program")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(true)
+                                .build();
+
+                UCSBRecommendationRequest ucsbRecommendationRequestUpdated = UCSBRecommendationRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .professorEmail("phtcon@ucsb.edu")
+                                .explanation("BS/MS program")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(true)
+                                .id(67L).version(4)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbRecommendationRequestEdited);
+
+                when(optimisticUpdateService.update(eq(67L), eq(3L), eq(ucsbRecommendationRequestEdited),
+                                eq("requesterEmail"), eq("professorEmail"), eq("explanation"), eq("dateRequested"), eq("dateNeeded"), eq("done"))).thenReturn(ucsbRecommendationRequestUpdated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationRequest?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbRecommendationRequestRepository, times(0)).findById(67L);
+                verify(ucsbRecommendationRequestRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(ucsbRecommendationRequestUpdated), response.getResponse().getContentAsString());
+        }
+
+        // Tests for bulk DELETE /api/recommendationRequest?ids=
+
+        @Test
+        public void logged_out_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/recommendationRequest?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_delete() throws Exception {
+                mockMvc.perform(delete("/api/recommendationRequest?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                verify(ucsbRecommendationRequestRepository, never()).deleteRowsByIdIn(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_bulk_delete_in_one_statement() throws Exception {
+                // arrange
+
+                when(ucsbRecommendationRequestRepository.deleteRowsByIdIn(eq(List.of(1L, 2L, 3L)))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationRequest?ids=1,2,3")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbRecommendationRequestRepository, times(1)).deleteRowsByIdIn(List.of(1L, 2L, 3L));
+                verify(ucsbRecommendationRequestRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("2 of 3 UCSBRecommendationRequests deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_delete_of_no_ids_deletes_nothing() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationRequest?ids=")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbRecommendationRequestRepository, never()).deleteRowsByIdIn(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("0 of 0 UCSBRecommendationRequests deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_delete_of_too_many_ids_is_rejected() throws Exception {
+                // arrange
+                String ids = String.join(",", java.util.Collections.nCopies(10001, "7"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationRequest").param("ids", ids)
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbRecommendationRequestRepository, never()).deleteRowsByIdIn(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("at most 10000 rows can be deleted at once, got 10001", json.get("message"));
+        }
+}
@@ -3,13 +3,19 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -37,6 +43,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         @MockBean
         RestaurantRepository restaurantRepository;
 
+        @MockBean
+        OptimisticUpdateService optimisticUpdateService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -187,12 +196,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_restaurant() throws Exception {
                 // arrange
 
-                Restaurant restaurant = Restaurant.builder()
-                                .name("Taco Bell")
-                                .description("Mexican")
-                                .build();
-
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+                when(restaurantRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -201,8 +205,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
-                verify(restaurantRepository, times(1)).delete(any());
+                verify(restaurantRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -214,7 +217,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(restaurantRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,7 +226,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
+                verify(restaurantRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 not found", json.get("message"));
         }
@@ -246,6 +249,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(restaurantEdited);
 
                 when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+                when(restaurantRepository.save(any(Restaurant.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -254,7 +258,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(restaurantRepository, times(1)).findById(67L);
@@ -294,4 +299,91 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/restaurants/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+                // arrange
+                Restaurant first = Restaurant.builder().id(1L).name("Freebirds").build();
+                Restaurant second = Restaurant.builder().id(2L).name("Chipotle").build();
+                List<Restaurant> content = List.of(first, second);
+                PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+                when(restaurantRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findByIdGreaterThan(0L, pageable);
+                String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+                // arrange
+                List<Restaurant> content = List.of();
+                PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+                when(restaurantRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findByIdGreaterThan(2L, pageable);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(), json.get("content"));
+                assertEquals(null, json.get("next"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_restaurant_with_if_match_in_a_single_update() throws Exception {
+                // arrange
+
+                Restaurant restaurantEdited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+
+                Restaurant restaurantUpdated = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .id(67L).version(4)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(restaurantEdited);
+
+                when(optimisticUpdateService.update(eq(67L), eq(3L), eq(restaurantEdited),
+                                eq("name"), eq("description"))).thenReturn(restaurantUpdated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(restaurantRepository, times(0)).findById(67L);
+                verify(restaurantRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(restaurantUpdated), response.getResponse().getContentAsString());
+        }
 }
@@ -3,17 +3,30 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
+import edu.ucsb.cs156.example.services.UCSBDateCalendarService;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -27,7 +40,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,9 +55,21 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDateRepository ucsbDateRepository;
 
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        OptimisticUpdateService optimisticUpdateService;
+
+        @MockBean
+        UCSBDateCalendarService ucsbDateCalendarService;
+
         @MockBean
         UserRepository userRepository;
 
+        @Autowired
+        TableVersionService tableVersionService;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -199,15 +227,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
+                long version = tableVersionService.getVersion(UCSBDate.class);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,11 +237,11 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
+                assertEquals(version + 1, tableVersionService.getVersion(UCSBDate.class));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -229,7 +250,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +259,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -266,6 +287,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
                 when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(any(UCSBDate.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -274,7 +296,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(67L);
@@ -315,4 +338,432 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for the calendar queries
+
+        @Test
+        public void logged_out_users_cannot_get_calendar_queries() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/upcoming")).andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/range?start=2022-01-01T00:00:00&end=2022-02-01T00:00:00"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/quarter/20222")).andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_upcoming_dates() throws Exception {
+                // arrange
+                LocalDateTime after = LocalDateTime.parse("2022-01-03T00:00:00");
+                UCSBDate finals = UCSBDate.builder().id(7L).quarterYYYYQ("20222").name("finals")
+                                .localDateTime(LocalDateTime.parse("2022-03-14T08:00:00")).build();
+                when(ucsbDateCalendarService.upcoming(after, 3)).thenReturn(List.of(finals));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming?after=2022-01-03T00:00:00&limit=3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(List.of(finals)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void upcoming_dates_are_after_now_by_default() throws Exception {
+                // arrange
+                LocalDateTime before = LocalDateTime.now();
+                when(ucsbDateCalendarService.upcoming(any(), eq(50))).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/upcoming")).andExpect(status().isOk());
+
+                // assert
+                verify(ucsbDateCalendarService, times(1)).upcoming(
+                                argThat(after -> !after.isBefore(before)), eq(50));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_range_of_dates() throws Exception {
+                // arrange
+                LocalDateTime start = LocalDateTime.parse("2022-01-01T00:00:00");
+                LocalDateTime end = LocalDateTime.parse("2022-02-01T00:00:00");
+                UCSBDate first = UCSBDate.builder().id(7L).quarterYYYYQ("20222").name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                when(ucsbDateCalendarService.range(start, end, 50)).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?start=2022-01-01T00:00:00&end=2022-02-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(List.of(first)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_range_is_limited_to_the_maximum_page_size() throws Exception {
+                // arrange
+                LocalDateTime start = LocalDateTime.parse("2022-01-01T00:00:00");
+                LocalDateTime end = LocalDateTime.parse("2023-01-01T00:00:00");
+                when(ucsbDateCalendarService.range(start, end, 500)).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/range?start=2022-01-01T00:00:00&end=2023-01-01T00:00:00&limit=100000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(ucsbDateCalendarService, times(1)).range(start, end, 500);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_range_that_ends_before_it_starts_is_rejected() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?start=2022-02-01T00:00:00&end=2022-01-01T00:00:00"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendarService, never()).range(any(), any(), anyInt());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("end 2022-01-01T00:00 is before start 2022-02-01T00:00", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_dates_of_a_quarter() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder().id(7L).quarterYYYYQ("20222").name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                when(ucsbDateCalendarService.quarter("20222")).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter/20222"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(List.of(first)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_quarter_not_in_the_format_yyyyq_is_rejected() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter/2022W"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendarService, never()).quarter(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("quarter must be a year and quarter (1-4) in the format YYYYQ, got 2022W", json.get("message"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder().id(1L).name("firstDayOfClasses").quarterYYYYQ("20222").build();
+                UCSBDate second = UCSBDate.builder().id(2L).name("lastDayOfClasses").quarterYYYYQ("20222").build();
+                List<UCSBDate> content = List.of(first, second);
+                PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+                when(ucsbDateRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThan(0L, pageable);
+                String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+                // arrange
+                List<UCSBDate> content = List.of();
+                PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+                when(ucsbDateRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThan(2L, pageable);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(), json.get("content"));
+                assertEquals(null, json.get("next"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_insert_inserts_valid_rows_and_reports_the_others() throws Exception {
+                // arrange
+                LocalDateTime ldt = LocalDateTime.parse("2022-01-03T00:00:00");
+                UCSBDate good1 = UCSBDate.builder().id(99L).quarterYYYYQ("20222").name("firstDayOfClasses").localDateTime(ldt).build();
+                UCSBDate badQuarter = UCSBDate.builder().quarterYYYYQ("2022W").name("lastDayOfClasses").localDateTime(ldt).build();
+                UCSBDate empty = UCSBDate.builder().build();
+                UCSBDate good2 = UCSBDate.builder().quarterYYYYQ("20224").name("finals").localDateTime(ldt).build();
+                String requestBody = "[" + mapper.writeValueAsString(good1) + "," + mapper.writeValueAsString(badQuarter)
+                                + ",null," + mapper.writeValueAsString(empty) + "," + mapper.writeValueAsString(good2) + "]";
+
+                when(bulkInsertService.insertAll(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(requestBody).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                good1.setId(0);
+                verify(bulkInsertService, times(1)).insertAll(List.of(good1, good2));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(2, json.get("inserted"));
+                assertEquals(List.of(
+                                Map.of("index", 1, "messages", List.of(
+                                                "quarterYYYYQ must be a year and quarter (1-4) in the format YYYYQ, e.g. 20224")),
+                                Map.of("index", 2, "messages", List.of("row is null")),
+                                Map.of("index", 3, "messages", List.of(
+                                                "quarterYYYYQ must be a year and quarter (1-4) in the format YYYYQ, e.g. 20224",
+                                                "name is required",
+                                                "localDateTime is required"))),
+                                json.get("errors"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_insert_with_no_valid_rows_inserts_nothing() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[{\"name\": \"  \"}]").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkInsertService, never()).insertAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(0, json.get("inserted"));
+                assertEquals(1, ((List<?>) json.get("errors")).size());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_insert_of_too_many_rows_is_rejected() throws Exception {
+                // arrange
+                String requestBody = "[" + String.join(",", java.util.Collections.nCopies(10001, "{}")) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(requestBody).with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(bulkInsertService, never()).insertAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("at most 10000 rows can be inserted at once, got 10001", json.get("message"));
+        }
+
+        // Tests for conditional GET of /api/ucsbdates/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_while_the_etag_is_current() throws Exception {
+                String eTag = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", eTag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", eTag))
+                                .andExpect(content().string(""));
+
+                verify(ucsbDateRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_read_again_once_the_table_changes() throws Exception {
+                String eTag = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                tableVersionService.changed(UCSBDate.class);
+
+                String newETag = mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", eTag))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                assertNotEquals(eTag, newETag);
+                verify(ucsbDateRepository, times(2)).findAll();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_ucsbdate_with_if_match_in_a_single_update() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .quarterYYYYQ("20232")
+                                .name("firstDayOfFestivus")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                UCSBDate ucsbDateUpdated = UCSBDate.builder()
+                                .quarterYYYYQ("20232")
+                                .name("firstDayOfFestivus")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .id(67L).version(4)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbDateEdited);
+
+                when(optimisticUpdateService.update(eq(67L), eq(3L), eq(ucsbDateEdited),
+                                eq("quarterYYYYQ"), eq("name"), eq("localDateTime"))).thenReturn(ucsbDateUpdated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findById(67L);
+                verify(ucsbDateRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(ucsbDateUpdated), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_has_the_version_as_its_etag() throws Exception {
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .id(7L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .version(3)
+                                .build();
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
+
+                mockMvc.perform(get("/api/ucsbdates?id=7"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"3\""));
+        }
+
+        private MvcResult putWithIfMatch(String ifMatch) throws Exception {
+                UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .name("firstDayOfFestivus")
+                                .quarterYYYYQ("20232")
+                                .localDateTime(LocalDateTime.parse("2023-01-03T00:00:00"))
+                                .build();
+                return mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", ifMatch)
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbDateEdited))
+                                                .with(csrf()))
+                                .andReturn();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_gets_412() throws Exception {
+                // arrange
+
+                when(optimisticUpdateService.update(eq(67L), eq(3L), any(UCSBDate.class), any(String[].class)))
+                                .thenThrow(new PreconditionFailedException(UCSBDate.class, 67L, 3));
+
+                // act
+                MvcResult response = putWithIfMatch("\"3\"");
+
+                // assert
+                assertEquals(412, response.getResponse().getStatus());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("UCSBDate with id 67 has been modified since version 3", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_an_if_match_that_is_not_a_version_gets_412() throws Exception {
+                for (String ifMatch : List.of("W/\"3\"", "\"3\", \"4\"", "\"UCSBDate-3\"")) {
+                        MvcResult response = putWithIfMatch(ifMatch);
+
+                        assertEquals(412, response.getResponse().getStatus());
+                        Map<String, Object> json = responseToJson(response);
+                        assertEquals("If-Match must be the ETag of the current version, e.g. \"3\", got " + ifMatch,
+                                        json.get("message"));
+                }
+                verify(optimisticUpdateService, never()).update(any(), any(Long.class), any(), any(String[].class));
+                verify(ucsbDateRepository, never()).save(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_if_match_star_is_unconditional() throws Exception {
+                UCSBDate ucsbDateOrig = UCSBDate.builder().name("firstDayOfClasses").quarterYYYYQ("20222").build();
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(any(UCSBDate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+                MvcResult response = putWithIfMatch("*");
+
+                assertEquals(200, response.getResponse().getStatus());
+                assertEquals("\"0\"", response.getResponse().getHeader("ETag"));
+                verify(ucsbDateRepository, times(1)).save(ucsbDateOrig);
+                verify(optimisticUpdateService, never()).update(any(), any(Long.class), any(), any(String[].class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_that_races_another_edit_gets_409() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDateOrig = UCSBDate.builder().name("firstDayOfClasses").quarterYYYYQ("20222").build();
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.save(any(UCSBDate.class)))
+                                .thenThrow(new ObjectOptimisticLockingFailureException(UCSBDate.class, 67L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbDateOrig))
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
 }
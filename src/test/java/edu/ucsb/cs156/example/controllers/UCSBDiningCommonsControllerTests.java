@@ -3,13 +3,24 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.UCSBDiningCommonsSnapshotService;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -25,6 +36,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -37,9 +50,18 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+        @MockBean
+        OptimisticUpdateService optimisticUpdateService;
+
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        UCSBDiningCommonsSnapshotService ucsbDiningCommonsSnapshotService;
+
+        @Autowired
+        TableVersionService tableVersionService;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -95,7 +117,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.85277)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
+                when(ucsbDiningCommonsSnapshotService.getByCode(eq("carrillo"))).thenReturn(Optional.of(commons));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
@@ -103,7 +125,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+                verify(ucsbDiningCommonsSnapshotService, times(1)).getByCode(eq("carrillo"));
                 String expectedJson = mapper.writeValueAsString(commons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -115,7 +137,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsSnapshotService.getByCode(eq("munger-hall"))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=munger-hall"))
@@ -123,7 +145,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("munger-hall"));
+                verify(ucsbDiningCommonsSnapshotService, times(1)).getByCode(eq("munger-hall"));
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
@@ -158,7 +180,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 ArrayList<UCSBDiningCommons> expectedCommons = new ArrayList<>();
                 expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
-                when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+                when(ucsbDiningCommonsSnapshotService.getAll()).thenReturn(expectedCommons);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
@@ -166,7 +188,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                verify(ucsbDiningCommonsSnapshotService, times(1)).getAll();
                 String expectedJson = mapper.writeValueAsString(expectedCommons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -207,17 +229,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                UCSBDiningCommons portola = UCSBDiningCommons.builder()
-                                .name("Portola")
-                                .code("portola")
-                                .hasSackMeal(true)
-                                .hasTakeOutMeal(true)
-                                .hasDiningCam(true)
-                                .latitude(34.417723)
-                                .longitude(-119.867427)
-                                .build();
-
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRowByCode(eq("portola"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +238,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowByCode("portola");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +250,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRowByCode(eq("munger-hall"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +259,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowByCode("munger-hall");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -281,6 +292,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
                 when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.save(any(UCSBDiningCommons.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -289,7 +301,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
@@ -332,4 +345,206 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
-}
\ No newline at end of file
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build();
+                UCSBDiningCommons second = UCSBDiningCommons.builder().code("de-la-guerra").name("De La Guerra").build();
+                List<UCSBDiningCommons> content = List.of(first, second);
+                PageRequest pageable = PageRequest.of(0, 2, Sort.by("code"));
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThan(eq(""), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThan("", pageable);
+                String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, "de-la-guerra"));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+                // arrange
+                List<UCSBDiningCommons> content = List.of();
+                PageRequest pageable = PageRequest.of(0, 50, Sort.by("code"));
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThan(eq("de-la-guerra"), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?after=de-la-guerra"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThan("de-la-guerra", pageable);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(), json.get("content"));
+                assertEquals(null, json.get("next"));
+        }
+
+        // Tests for conditional GET of /api/ucsbdiningcommons/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_while_the_etag_is_current() throws Exception {
+                String eTag = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", eTag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", eTag))
+                                .andExpect(content().string(""));
+
+                verify(ucsbDiningCommonsSnapshotService, times(1)).getAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_read_again_once_the_table_changes() throws Exception {
+                String eTag = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                tableVersionService.changed(UCSBDiningCommons.class);
+
+                String newETag = mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", eTag))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                assertNotEquals(eTag, newETag);
+                verify(ucsbDiningCommonsSnapshotService, times(2)).getAll();
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_nearest_commons() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons carrillo = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                List<DiningCommonsDistance> expected = List.of(new DiningCommonsDistance(carrillo, 12.5));
+                when(ucsbDiningCommonsSnapshotService.nearest(34.41, -119.85, 2)).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsSnapshotService, times(1)).nearest(34.41, -119.85, 2);
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_returns_one_commons_by_default() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=-90&lon=180"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=90&lon=-180"))
+                                .andExpect(status().isOk());
+
+                verify(ucsbDiningCommonsSnapshotService, times(1)).nearest(-90, 180, 1);
+                verify(ucsbDiningCommonsSnapshotService, times(1)).nearest(90, -180, 1);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_rejects_points_off_the_map() throws Exception {
+                for (String point : List.of("lat=90.1&lon=0", "lat=-90.1&lon=0", "lat=0&lon=180.1", "lat=0&lon=-180.1",
+                                "lat=NaN&lon=0", "lat=0&lon=NaN")) {
+                        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?" + point))
+                                        .andExpect(status().isBadRequest()).andReturn();
+
+                        Map<String, Object> json = responseToJson(response);
+                        assertEquals("lat must be between -90 and 90, and lon between -180 and 180", json.get("message"));
+                }
+                verify(ucsbDiningCommonsSnapshotService, times(0)).nearest(anyDouble(), anyDouble(), anyInt());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_rejects_k_less_than_one() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("k must be at least 1, got 0", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_commons_with_if_match_in_a_single_update() throws Exception {
+                // arrange
+
+                UCSBDiningCommons ucsbDiningCommonsEdited = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                UCSBDiningCommons ucsbDiningCommonsUpdated = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .code("carrillo").version(4)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbDiningCommonsEdited);
+
+                when(optimisticUpdateService.update(eq("carrillo"), eq(3L), eq(ucsbDiningCommonsEdited),
+                                eq("name"), eq("hasSackMeal"), eq("hasTakeOutMeal"), eq("hasDiningCam"), eq("latitude"), eq("longitude"))).thenReturn(ucsbDiningCommonsUpdated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(0)).findById("carrillo");
+                verify(ucsbDiningCommonsRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(ucsbDiningCommonsUpdated), response.getResponse().getContentAsString());
+        }
+}
@@ -3,13 +3,25 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.MenuItemImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -28,6 +40,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +52,15 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     @MockBean
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @MockBean
+    BulkInsertService bulkInsertService;
+
+    @MockBean
+    OptimisticUpdateService optimisticUpdateService;
+
+    @MockBean
+    MenuItemImportService menuItemImportService;
+
     @MockBean
     UserRepository userRepository;
 
@@ -194,13 +216,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         public void admin_can_delete_a_menu_item() throws Exception {
                 // arrange
 
-                UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem1 = UCSBDiningCommonsMenuItem.builder()
-                            .diningCommonsCode("ortega")
-                            .name("Baked Pesto Pasta with Chicken")
-                            .station("Entree Specials")
-                            .build();
-
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(123L))).thenReturn(Optional.of(ucsbDiningCommonsMenuItem1));
+                when(ucsbDiningCommonsMenuItemRepository.deleteRowById(eq(123L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -209,8 +225,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(123L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteRowById(123L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 123 deleted", json.get("message"));
@@ -222,7 +237,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(123L))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsMenuItemRepository.deleteRowById(eq(123L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -231,7 +246,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(123L);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteRowById(123L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 123 not found", json.get("message"));
         }
@@ -256,6 +271,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 String requestBody = mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited);
 
                 when(ucsbDiningCommonsMenuItemRepository.findById(eq(123L))).thenReturn(Optional.of(ucsbDiningCommonsMenuItemOrig));
+                when(ucsbDiningCommonsMenuItemRepository.save(any(UCSBDiningCommonsMenuItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -264,7 +280,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(123L);
@@ -303,4 +320,200 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals("UCSBDiningCommonsMenuItem with id 123 not found", json.get("message"));
         }
 
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+            mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+            // arrange
+            UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).diningCommonsCode("ortega").name("Baked Pesto Pasta").build();
+            UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder().id(2L).diningCommonsCode("ortega").name("Tofu Banh Mi").build();
+            List<UCSBDiningCommonsMenuItem> content = List.of(first, second);
+            PageRequest pageable = PageRequest.of(0, 2, Sort.by("id"));
+
+            when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThan(eq(0L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?size=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByIdGreaterThan(0L, pageable);
+            String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, 2L));
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+            // arrange
+            List<UCSBDiningCommonsMenuItem> content = List.of();
+            PageRequest pageable = PageRequest.of(0, 50, Sort.by("id"));
+
+            when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThan(eq(2L), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?after=2"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByIdGreaterThan(2L, pageable);
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(List.of(), json.get("content"));
+            assertEquals(null, json.get("next"));
+    }
+
+    @Test
+    public void logged_out_users_cannot_bulk_insert() throws Exception {
+            mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_bulk_insert_inserts_valid_rows_and_reports_the_others() throws Exception {
+            // arrange
+            UCSBDiningCommonsMenuItem good = UCSBDiningCommonsMenuItem.builder().id(7L)
+                            .diningCommonsCode("ortega").name("Tofu Banh Mi").station("Entrees").build();
+            UCSBDiningCommonsMenuItem noStation = UCSBDiningCommonsMenuItem.builder()
+                            .diningCommonsCode("ortega").name("Chicken Caesar Salad").build();
+            UCSBDiningCommonsMenuItem blank = UCSBDiningCommonsMenuItem.builder()
+                            .diningCommonsCode(" ").name("").station("\t").build();
+            String requestBody = mapper.writeValueAsString(List.of(good, noStation, blank));
+
+            when(bulkInsertService.insertAll(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+            // act
+            MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .contentType(MediaType.APPLICATION_JSON).content(requestBody).with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            good.setId(0);
+            verify(bulkInsertService, times(1)).insertAll(List.of(good));
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(1, json.get("inserted"));
+            assertEquals(List.of(
+                            Map.of("index", 1, "messages", List.of("station is required")),
+                            Map.of("index", 2, "messages", List.of("diningCommonsCode is required", "name is required", "station is required"))),
+                            json.get("errors"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_bulk_insert_of_null_fields_reports_each_one() throws Exception {
+            // act
+            MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                            .contentType(MediaType.APPLICATION_JSON).content("[{}]").with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(bulkInsertService, never()).insertAll(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals(List.of(Map.of("index", 0, "messages",
+                            List.of("diningCommonsCode is required", "name is required", "station is required"))),
+                            json.get("errors"));
+    }
+
+    @Test
+    public void logged_out_users_cannot_import() throws Exception {
+            mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import")
+                            .contentType("text/csv").content("diningCommonsCode,name,station\n").with(csrf()))
+                            .andExpect(status().is(403));
+            verify(menuItemImportService, never()).importMenuItems(any(), any(), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_import_passes_the_file_and_its_format_to_the_service() throws Exception {
+            // arrange
+            when(menuItemImportService.importMenuItems(any(), any(), any())).thenAnswer(invocation -> {
+                    InputStream in = invocation.getArgument(0);
+                    OutputStream out = invocation.getArgument(2);
+                    out.write((invocation.getArgument(1) + " " + new String(in.readAllBytes(), StandardCharsets.UTF_8) + "\n")
+                                    .getBytes(StandardCharsets.UTF_8));
+                    return null;
+            });
+
+            // act
+            MvcResult csv = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import")
+                            .contentType("text/csv;charset=UTF-8").content("diningCommonsCode,name,station").with(csrf()))
+                            .andExpect(status().isOk())
+                            .andExpect(content().contentType(NdjsonExportService.NDJSON))
+                            .andReturn();
+            MvcResult ndjson = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import")
+                            .contentType(NdjsonExportService.NDJSON).content("{}").with(csrf()))
+                            .andExpect(status().isOk())
+                            .andExpect(content().contentType(NdjsonExportService.NDJSON))
+                            .andReturn();
+
+            // assert
+            assertEquals("CSV diningCommonsCode,name,station\n", csv.getResponse().getContentAsString());
+            assertEquals("NDJSON {}\n", ndjson.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_import_of_a_csv_file_without_a_header_is_a_bad_request() throws Exception {
+            // arrange
+            when(menuItemImportService.importMenuItems(any(), any(), any())).thenThrow(new IllegalArgumentException(
+                            "the first line of a CSV file must name the columns diningCommonsCode, name and station"));
+
+            // act
+            MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import")
+                            .contentType("text/csv").content("ortega,Pho,Noodles").with(csrf()))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("the first line of a CSV file must name the columns diningCommonsCode, name and station",
+                            json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_ucsbdiningcommonsmenu_with_if_match_in_a_single_update() throws Exception {
+        // arrange
+
+        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItemEdited = UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta with Chicken")
+                .station("Entree Specials")
+                .build();
+
+        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItemUpdated = UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta with Chicken")
+                .station("Entree Specials")
+                .id(123L).version(4)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited);
+
+        when(optimisticUpdateService.update(eq(123L), eq(3L), eq(ucsbDiningCommonsMenuItemEdited),
+                eq("diningCommonsCode"), eq("name"), eq("station"))).thenReturn(ucsbDiningCommonsMenuItemUpdated);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsbdiningcommonsmenuitem?id=123")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(0)).findById(123L);
+        verify(ucsbDiningCommonsMenuItemRepository, times(0)).save(any());
+        assertEquals(mapper.writeValueAsString(ucsbDiningCommonsMenuItemUpdated), response.getResponse().getContentAsString());
+    }
 }
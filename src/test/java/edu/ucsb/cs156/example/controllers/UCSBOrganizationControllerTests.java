@@ -3,13 +3,24 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.BulkInsertService;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.OptimisticUpdateService;
+import edu.ucsb.cs156.example.services.UCSBOrganizationSuggestService;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -25,7 +36,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,9 +50,21 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @MockBean
         UCSBOrganizationRepository ucsbOrganizationRepository;
 
+        @MockBean
+        BulkInsertService bulkInsertService;
+
+        @MockBean
+        OptimisticUpdateService optimisticUpdateService;
+
+        @MockBean
+        UCSBOrganizationSuggestService ucsbOrganizationSuggestService;
+
         @MockBean
         UserRepository userRepository;
 
+        @Autowired
+        TableVersionService tableVersionService;
+
         // Authorization tests for /api/ucsborganization/admin/all
 
         @Test
@@ -212,6 +237,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(KRCEdited);
 
                 when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(KRCOrig));
+                when(ucsbOrganizationRepository.save(any(UCSBOrganization.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -220,7 +246,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
                 verify(ucsbOrganizationRepository, times(1)).findById("KRC");
@@ -266,14 +293,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_organizations() throws Exception {
                 // arrange
 
-                UCSBOrganization sky = UCSBOrganization.builder()
-                                .orgCode("SKY")
-                                .orgTranslationShort("SKYDIVING CLUB")
-                                .orgTranslation("SKYDIVING CLUB AT UCSB")
-                                .inactive(true)
-                                .build();
-
-                when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(sky));
+                when(ucsbOrganizationRepository.deleteRowByOrgCode(eq("SKY"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -282,8 +302,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("SKY");
-                verify(ucsbOrganizationRepository, times(1)).delete(any());
+                verify(ucsbOrganizationRepository, times(1)).deleteRowByOrgCode("SKY");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id SKY deleted", json.get("message"));
@@ -295,7 +314,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbOrganizationRepository.findById(eq("ASL"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.deleteRowByOrgCode(eq("ASL"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -304,10 +323,250 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("ASL");
+                verify(ucsbOrganizationRepository, times(1)).deleteRowByOrgCode("ASL");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id ASL not found", json.get("message"));
         }
 
-        
-}
\ No newline at end of file
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsborganization/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_with_cursor_for_next_page() throws Exception {
+                // arrange
+                UCSBOrganization first = UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("KOREAN RADIO CL").build();
+                UCSBOrganization second = UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("STUDENT LIFE").build();
+                List<UCSBOrganization> content = List.of(first, second);
+                PageRequest pageable = PageRequest.of(0, 2, Sort.by("orgCode"));
+
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThan(eq(""), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, true));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThan("", pageable);
+                String expectedJson = mapper.writeValueAsString(new KeysetPage<>(content, "OSLI"));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_no_cursor_on_last_page() throws Exception {
+                // arrange
+                List<UCSBOrganization> content = List.of();
+                PageRequest pageable = PageRequest.of(0, 50, Sort.by("orgCode"));
+
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThan(eq("OSLI"), eq(pageable))).thenReturn(new SliceImpl<>(content, pageable, false));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/page?after=OSLI"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThan("OSLI", pageable);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(), json.get("content"));
+                assertEquals(null, json.get("next"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsborganization/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_insert_rejects_existing_and_repeated_org_codes() throws Exception {
+                // arrange
+                UCSBOrganization zprSaucy = UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO").inactive(false).build();
+                UCSBOrganization skyExisting = UCSBOrganization.builder().orgCode("SKY").orgTranslationShort("SKYDIVING CLUB")
+                                .orgTranslation("SKYDIVING CLUB AT UCSB").inactive(false).build();
+                UCSBOrganization zprAgain = UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZPR")
+                                .orgTranslation("ZPR").inactive(true).build();
+                UCSBOrganization osli = UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("STUDENT LIFE")
+                                .orgTranslation("OFFICE OF STUDENT LIFE").inactive(false).build();
+                UCSBOrganization krcMissing = UCSBOrganization.builder().orgCode("KRC").inactive(false).build();
+                UCSBOrganization krc = UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("KOREAN RADIO CL")
+                                .orgTranslation("KOREAN RADIO CLUB").inactive(false).build();
+                UCSBOrganization noCode = UCSBOrganization.builder().orgTranslationShort("X").orgTranslation("X").build();
+                String requestBody = mapper.writeValueAsString(List.of(zprSaucy, skyExisting, zprAgain, osli, krcMissing, krc, noCode));
+
+                when(ucsbOrganizationRepository.findAllById(eq(List.of("ZPR", "SKY", "ZPR", "OSLI", "KRC", "KRC"))))
+                                .thenReturn(List.of(skyExisting));
+                when(bulkInsertService.insertAll(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsborganization/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(requestBody).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findAllById(any());
+                verify(bulkInsertService, times(1)).insertAll(List.of(zprSaucy, osli, krc));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(3, json.get("inserted"));
+                assertEquals(List.of(
+                                Map.of("index", 1, "messages", List.of("orgCode SKY already exists")),
+                                Map.of("index", 2, "messages", List.of("orgCode ZPR is repeated in this request")),
+                                Map.of("index", 4, "messages", List.of("orgTranslationShort is required", "orgTranslation is required")),
+                                Map.of("index", 6, "messages", List.of("orgCode is required"))),
+                                json.get("errors"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_bulk_insert_rejects_blank_org_codes() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsborganization/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[null, {\"orgCode\": \" \", \"orgTranslationShort\": \" \", \"orgTranslation\": \"\"}]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkInsertService, never()).insertAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(List.of(
+                                Map.of("index", 0, "messages", List.of("row is null")),
+                                Map.of("index", 1, "messages", List.of("orgCode is required", "orgTranslationShort is required", "orgTranslation is required"))),
+                                json.get("errors"));
+        }
+
+        // Tests for conditional GET of /api/ucsborganization/all
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_while_the_etag_is_current() throws Exception {
+                String eTag = mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/ucsborganization/all").header("If-None-Match", eTag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", eTag))
+                                .andExpect(content().string(""));
+
+                verify(ucsbOrganizationRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_read_again_once_the_table_changes() throws Exception {
+                String eTag = mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                tableVersionService.changed(UCSBOrganization.class);
+
+                String newETag = mockMvc.perform(get("/api/ucsborganization/all").header("If-None-Match", eTag))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                assertNotEquals(eTag, newETag);
+                verify(ucsbOrganizationRepository, times(2)).findAll();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_organizations_with_if_match_in_a_single_update() throws Exception {
+                // arrange
+
+                UCSBOrganization ucsbOrganizationEdited = UCSBOrganization.builder()
+                                .orgTranslationShort("KOREAN RADIO CL")
+                                .orgTranslation("KOREAN RADIO CLUB")
+                                .inactive(true)
+                                .build();
+
+                UCSBOrganization ucsbOrganizationUpdated = UCSBOrganization.builder()
+                                .orgTranslationShort("KOREAN RADIO CL")
+                                .orgTranslation("KOREAN RADIO CLUB")
+                                .inactive(true)
+                                .orgCode("KRC").version(4)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbOrganizationEdited);
+
+                when(optimisticUpdateService.update(eq("KRC"), eq(3L), eq(ucsbOrganizationEdited),
+                                eq("orgTranslationShort"), eq("orgTranslation"), eq("inactive"))).thenReturn(ucsbOrganizationUpdated);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsborganization?orgCode=KRC")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(0)).findById("KRC");
+                verify(ucsbOrganizationRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(ucsbOrganizationUpdated), response.getResponse().getContentAsString());
+        }
+
+        // Tests for /api/ucsborganization/suggest
+
+        @Test
+        public void logged_out_users_cannot_get_suggestions() throws Exception {
+                mockMvc.perform(get("/api/ucsborganization/suggest?prefix=k"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_suggestions() throws Exception {
+                // arrange
+                UCSBOrganization krc = UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("KOREAN RADIO CL")
+                                .orgTranslation("KOREAN RADIO CLUB").inactive(false).build();
+
+                when(ucsbOrganizationSuggestService.suggest("kor", 5)).thenReturn(List.of(krc));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/suggest?prefix=kor&limit=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationSuggestService, times(1)).suggest("kor", 5);
+                assertEquals(mapper.writeValueAsString(List.of(krc)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void suggestions_default_to_ten_for_an_empty_prefix() throws Exception {
+                // arrange
+                when(ucsbOrganizationSuggestService.suggest("", 10)).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization/suggest"))
+                                .andExpect(status().isOk()).andExpect(content().json("[]"));
+
+                // assert
+                verify(ucsbOrganizationSuggestService, times(1)).suggest("", 10);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void suggestion_limit_must_be_positive() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/suggest?prefix=k&limit=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationSuggestService, never()).suggest(any(), anyInt());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("limit must be positive, got 0", json.get("message"));
+        }
+}
@@ -2,7 +2,9 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.UserFilter;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserListService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
@@ -13,12 +15,18 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -29,6 +37,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  UserListService userListService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -55,19 +66,43 @@ public class UsersControllerTests extends ControllerTestCase {
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
     String expectedJson = mapper.writeValueAsString(expectedUsers);
+    doAnswer(invocation -> {
+      invocation.<OutputStream>getArgument(3).write(expectedJson.getBytes(StandardCharsets.UTF_8));
+      return 3L;
+    }).when(userListService).write(any(), eq(0L), isNull(), any());
     
     // act
 
     MvcResult response = mockMvc.perform(get("/api/admin/users"))
-        .andExpect(status().isOk()).andReturn();
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/json"))
+        .andReturn();
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
+    verify(userListService, times(1)).write(eq(UserFilter.builder().build()), eq(0L), isNull(), any());
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
 
   }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_can_filter_and_page() throws Exception {
+
+    // act
+
+    mockMvc.perform(get("/api/admin/users?admin=false&domain=ucsb.edu"
+        + "&lastLoginFrom=2024-10-01T00:00:00&lastLoginTo=2024-11-01T00:00:00&after=42&size=100000"))
+        .andExpect(status().isOk());
+
+    // assert
+
+    UserFilter filter = UserFilter.builder().admin(false).hostedDomain("ucsb.edu")
+        .lastLoginFrom(LocalDateTime.parse("2024-10-01T00:00:00"))
+        .lastLoginTo(LocalDateTime.parse("2024-11-01T00:00:00")).build();
+    // the size is capped at app.pagination.max-page-size
+    verify(userListService, times(1)).write(eq(filter), eq(42L), eq(500), any());
+  }
 }
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import edu.ucsb.cs156.example.services.TableVersionService;
+import edu.ucsb.cs156.example.services.TableVersionService.RowChange;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(TableVersionService.class)
+public class TableVersionListenerTests {
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  @Autowired
+  TableVersionService tableVersionService;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void writes_bump_the_table_version_once_the_transaction_commits() {
+    long before = tableVersionService.getVersion(UCSBOrganization.class);
+    List<List<RowChange>> changes = new ArrayList<>();
+    tableVersionService.addListener(UCSBOrganization.class, (version, rows) -> changes.add(rows));
+
+    UCSBOrganization org = entityManager.persistAndFlush(UCSBOrganization.builder()
+        .orgCode("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO").build());
+    org.setInactive(true);
+    entityManager.flush();
+    entityManager.remove(org);
+    entityManager.flush();
+    assertEquals(before, tableVersionService.getVersion(UCSBOrganization.class));
+
+    TestTransaction.flagForCommit();
+    TestTransaction.end();
+
+    assertEquals(before + 1, tableVersionService.getVersion(UCSBOrganization.class));
+    assertEquals(List.of(List.of(new RowChange("ZPR", org), new RowChange("ZPR", org), new RowChange("ZPR", null))),
+        changes);
+    assertEquals(0, tableVersionService.getVersion(UCSBDate.class));
+  }
+}
@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import edu.ucsb.cs156.example.events.UserChangedEvent;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@RecordApplicationEvents
+public class UserListenerTests {
+
+  @Autowired
+  TestEntityManager entityManager;
+
+  @Autowired
+  ApplicationEvents events;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void inserting_a_user_publishes_a_user_changed_event() {
+    entityManager.persistAndFlush(User.builder().email("new@ucsb.edu").build());
+    assertEquals(1, events.stream(UserChangedEvent.class).count());
+  }
+
+  @Test
+  public void updating_a_user_publishes_a_user_changed_event() {
+    User user = entityManager.persistAndFlush(User.builder().email("cgaucho@ucsb.edu").admin(false).build());
+
+    events.clear();
+    user.setAdmin(true);
+    entityManager.flush();
+
+    List<UserChangedEvent> published = events.stream(UserChangedEvent.class).toList();
+    assertEquals(1, published.size());
+    assertTrue(published.get(0).getUser().getAdmin());
+  }
+
+  @Test
+  public void deleting_a_user_publishes_a_user_changed_event() {
+    User user = entityManager.persistAndFlush(User.builder().email("gone@ucsb.edu").build());
+
+    events.clear();
+    entityManager.remove(user);
+    entityManager.flush();
+
+    assertEquals(1, events.stream(UserChangedEvent.class).count());
+  }
+
+  @Test
+  public void recording_a_login_does_not_publish_a_user_changed_event() {
+    User user = entityManager.persistAndFlush(User.builder().email("cgaucho@ucsb.edu").build());
+    LocalDateTime now = LocalDateTime.parse("2024-10-23T09:00:00");
+
+    events.clear();
+    int updated = userRepository.updateLastLogin(user.getId(), now);
+    entityManager.clear();
+
+    assertEquals(1, updated);
+    assertEquals(now, entityManager.find(User.class, user.getId()).getLastLogin());
+    assertEquals(0, events.stream(UserChangedEvent.class).count());
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ActuatorIT {
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @MockBean
+        UserRepository userRepository;
+
+        @Test
+        public void health_is_available_without_logging_in() throws Exception {
+                mockMvc.perform(get("/actuator/health"))
+                                .andExpect(status().isOk());
+        }
+
+        @Test
+        public void metrics_are_forbidden_when_not_logged_in() throws Exception {
+                mockMvc.perform(get("/actuator/metrics"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void metrics_are_forbidden_to_regular_users() throws Exception {
+                mockMvc.perform(get("/actuator/metrics"))
+                                .andExpect(status().is(403));
+                mockMvc.perform(get("/actuator/prometheus"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void controller_timings_are_tagged_by_controller_method_and_status() throws Exception {
+                // arrange
+
+                mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/restaurants?id=7"))
+                                .andExpect(status().isNotFound());
+                mockMvc.perform(get("/api/restaurants?id=8"))
+                                .andExpect(status().isNotFound());
+
+                // act
+
+                MvcResult ok = mockMvc.perform(get("/actuator/metrics/" + LoggingAspect.TIMER_NAME)
+                                .param("tag", "controller:RestaurantsController")
+                                .param("tag", "method:allRestaurants")
+                                .param("tag", "status:200"))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult notFound = mockMvc.perform(get("/actuator/metrics/" + LoggingAspect.TIMER_NAME)
+                                .param("tag", "controller:RestaurantsController")
+                                .param("tag", "status:404"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                assertEquals(1.0, count(ok));
+                assertEquals(2.0, count(notFound));
+
+                String prometheus = mockMvc.perform(get("/actuator/prometheus"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+                assertEquals(true, prometheus.contains("app_controller_requests_seconds_bucket{controller=\"RestaurantsController\""));
+        }
+
+        private double count(MvcResult result) throws Exception {
+                JsonNode json = mapper.readTree(result.getResponse().getContentAsString());
+                for (JsonNode measurement : json.get("measurements")) {
+                        if (measurement.get("statistic").asText().equals("COUNT")) {
+                                return measurement.get("value").asDouble();
+                        }
+                }
+                throw new AssertionError("no COUNT in " + json);
+        }
+}
@@ -23,6 +23,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -116,4 +118,37 @@ public class ArticlesIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void test_that_logged_in_user_can_page_through_articles() throws Exception {
+                // arrange
+
+                for (int i = 1; i <= 3; i++) {
+                        articlesRepository.save(Articles.builder()
+                                .title("Article " + i)
+                                .url("https://article" + i + ".com")
+                                .explanation("Article number " + i)
+                                .email("author@example.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-01T00:00:00"))
+                                .build());
+                }
+
+                // act
+                MvcResult firstPage = mockMvc.perform(get("/api/articles/page?size=2"))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult lastPage = mockMvc.perform(get("/api/articles/page?size=2&after=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> first = mapper.readValue(firstPage.getResponse().getContentAsString(), Map.class);
+                assertEquals(2, ((List<?>) first.get("content")).size());
+                assertEquals(2, first.get("next"));
+
+                Map<String, Object> last = mapper.readValue(lastPage.getResponse().getContentAsString(), Map.class);
+                List<Map<String, Object>> lastContent = (List<Map<String, Object>>) last.get("content");
+                assertEquals(1, lastContent.size());
+                assertEquals("Article 3", lastContent.get(0).get("title"));
+                assertEquals(null, last.get("next"));
+        }
 }
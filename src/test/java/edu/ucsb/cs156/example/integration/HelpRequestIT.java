@@ -21,7 +21,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.time.LocalDateTime;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.StreamSupport;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -117,4 +119,40 @@ public class HelpRequestIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_purge_help_requests_in_one_request() throws Exception {
+                // arrange
+
+                LocalDateTime reqTime = LocalDateTime.parse("2024-10-02T00:00:00");
+                List<HelpRequest> helpRequests = List.of("F24-16", "F24-17", "F24-18").stream()
+                                .map(teamId -> HelpRequest.builder()
+                                                .requesterEmail("ttnguyen@ucsb.edu")
+                                                .teamId(teamId)
+                                                .tableOrBreakoutRoom("Table 16")
+                                                .explanation("Needs help with jpa03")
+                                                .solved(true)
+                                                .requestTime(reqTime)
+                                                .build())
+                                .toList();
+                helpRequestRepository.saveAll(helpRequests);
+                long first = helpRequests.get(0).getId();
+                long second = helpRequests.get(1).getId();
+                long third = helpRequests.get(2).getId();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequest?ids=%d,%d,%d".formatted(first, second, third + 100))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                mockMvc.perform(delete("/api/helprequest?id=%d".formatted(first)).with(csrf()))
+                                .andExpect(status().isNotFound());
+
+                // assert
+                assertEquals("{\"message\":\"2 of 3 HelpRequests deleted\"}", response.getResponse().getContentAsString());
+                assertEquals(List.of(third),
+                                StreamSupport.stream(helpRequestRepository.findAll().spliterator(), false)
+                                                .map(HelpRequest::getId).toList());
+        }
 }
@@ -33,6 +33,7 @@ import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -117,4 +118,45 @@ public class MenuItemReviewIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void summary_follows_posts_edits_and_deletes() throws Exception {
+                // act
+                for (String stars : new String[] { "5", "3", "1" }) {
+                        mockMvc.perform(
+                                        post("/api/menuitemreview/post")
+                                            .param("itemId", "8")
+                                            .param("reviewerEmail", "cgaucho@ucsb.edu")
+                                            .param("stars", stars)
+                                            .param("dateReviewed", "2022-01-03T00:00:00")
+                                            .param("comments", "ok")
+                                            .with(csrf()))
+                                        .andExpect(status().isOk());
+                }
+                MenuItemReview edited = MenuItemReview.builder().itemId(8).reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(4).dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).comments("better").build();
+                mockMvc.perform(put("/api/menuitemreview?id=2")
+                                .contentType("application/json")
+                                .content(mapper.writeValueAsString(edited))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(delete("/api/menuitemreview?id=3").with(csrf()))
+                                .andExpect(status().isOk());
+
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/summary?itemId=8"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> json = mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+                assertEquals(2, json.get("reviewCount"));
+                assertEquals(9, json.get("starsSum"));
+                assertEquals(4.5, json.get("averageStars"));
+                assertEquals(4, json.get("minStars"));
+                assertEquals(5, json.get("maxStars"));
+                assertEquals(0, json.get("stars1"));
+                assertEquals(0, json.get("stars3"));
+                assertEquals(1, json.get("stars4"));
+                assertEquals(1, json.get("stars5"));
+        }
 }
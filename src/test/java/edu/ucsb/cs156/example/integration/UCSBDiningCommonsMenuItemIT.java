@@ -30,6 +30,12 @@ import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
@@ -102,4 +108,32 @@ public class UCSBDiningCommonsMenuItemIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_menu_items() throws Exception {
+                // arrange
+                ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+                                .diningCommonsCode("ortega").name("Existing").station("Grill").build());
+
+                List<Map<String, String>> rows = new ArrayList<>();
+                for (int i = 0; i < 120; i++) {
+                        rows.add(Map.of("diningCommonsCode", "carrillo", "name", "Item " + i, "station", "Grill"));
+                }
+                rows.add(Map.of("diningCommonsCode", "carrillo", "name", "No station"));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/bulk")
+                                .contentType("application/json").content(mapper.writeValueAsString(rows)).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> json = mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+                assertEquals(120, json.get("inserted"));
+                assertEquals(List.of(Map.of("index", 120, "messages", List.of("station is required"))), json.get("errors"));
+
+                Set<Long> ids = new HashSet<>();
+                ucsbDiningCommonsMenuItemRepository.findAll().forEach(item -> ids.add(item.getId()));
+                assertEquals(121, ids.size());
+        }
 }
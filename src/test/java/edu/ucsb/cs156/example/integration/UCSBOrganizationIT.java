@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +10,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -102,4 +104,78 @@ public class UCSBOrganizationIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void get_all_is_not_modified_until_an_organization_is_posted() throws Exception {
+                // arrange
+
+                ucsbOrganizationRepository.save(UCSBOrganization.builder()
+                                .orgCode("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO")
+                                .inactive(false)
+                                .build());
+                String eTag = mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+
+                mockMvc.perform(get("/api/ucsborganization/all").header("If-None-Match", eTag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(post("/api/ucsborganization/post?orgCode=SKY&orgTranslationShort=SKYDIVING CLUB&orgTranslation=SKYDIVING CLUB AT UCSB&inactive=false")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/all").header("If-None-Match", eTag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                assertNotEquals(eTag, response.getResponse().getHeader("ETag"));
+                assertEquals(true, response.getResponse().getContentAsString().contains("SKYDIVING CLUB AT UCSB"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_edit_with_a_stale_if_match_gets_412_and_changes_nothing() throws Exception {
+                // arrange
+
+                ucsbOrganizationRepository.save(UCSBOrganization.builder()
+                                .orgCode("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO")
+                                .inactive(false)
+                                .build());
+                String eTag = mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+                String first = mapper.writeValueAsString(UCSBOrganization.builder()
+                                .orgTranslationShort("ZPR").orgTranslation("ZETA PHI RHO").inactive(true).build());
+                String second = mapper.writeValueAsString(UCSBOrganization.builder()
+                                .orgTranslationShort("ZPR").orgTranslation("ZETA PHI RHO").inactive(false).build());
+
+                // act
+
+                MvcResult updated = mockMvc.perform(put("/api/ucsborganization?orgCode=ZPR")
+                                .header("If-Match", eTag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(first)
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                mockMvc.perform(put("/api/ucsborganization?orgCode=ZPR")
+                                .header("If-Match", eTag)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(second)
+                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                // assert
+
+                assertEquals("\"0\"", eTag);
+                assertEquals("\"1\"", updated.getResponse().getHeader("ETag"));
+                UCSBOrganization stored = ucsbOrganizationRepository.findById("ZPR").get();
+                assertEquals(true, stored.getInactive());
+                assertEquals(1, stored.getVersion());
+        }
 }
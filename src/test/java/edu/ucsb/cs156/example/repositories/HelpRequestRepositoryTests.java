@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class HelpRequestRepositoryTests {
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  private HelpRequest helpRequest(String teamId) {
+    return helpRequestRepository.save(HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").teamId(teamId)
+        .tableOrBreakoutRoom("7").explanation("Need help with jpa03").solved(false)
+        .requestTime(LocalDateTime.parse("2024-10-02T00:00:00")).build());
+  }
+
+  @Test
+  public void a_delete_returning_ids_returns_only_the_ids_it_deleted() {
+    long first = helpRequest("s24-5pm-1").getId();
+    long second = helpRequest("s24-5pm-2").getId();
+
+    List<Long> deleted = helpRequestRepository.deleteRowsReturningIds(List.of(first, second + 100));
+
+    assertEquals(List.of(first), deleted);
+    assertFalse(helpRequestRepository.existsById(first));
+    assertTrue(helpRequestRepository.existsById(second));
+  }
+
+  @Test
+  public void a_delete_returning_ids_of_missing_ids_deletes_nothing() {
+    long first = helpRequest("s24-5pm-1").getId();
+
+    assertEquals(List.of(), helpRequestRepository.deleteRowsReturningIds(List.of(first + 100)));
+    assertEquals(1, helpRequestRepository.count());
+  }
+}
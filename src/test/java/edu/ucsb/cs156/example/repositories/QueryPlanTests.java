@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * Checks that the secondary indexes created by the Liquibase changelogs are
+ * actually chosen by the H2 planner for the queries the repositories run.
+ */
+@JdbcTest
+@ActiveProfiles("test")
+public class QueryPlanTests {
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  private void assertUsesIndex(String indexName, String sql) {
+    String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    assertTrue(plan.toUpperCase().contains(indexName), () -> "expected " + indexName + " in plan:\n" + plan);
+  }
+
+  @Test
+  public void findByEmail_uses_the_users_email_index() {
+    assertUsesIndex("IDX_USERS_EMAIL", "SELECT * FROM users WHERE email = 'cgaucho@ucsb.edu'");
+  }
+
+  @Test
+  public void users_of_a_domain_are_listed_in_id_order_from_the_users_hosted_domain_index() {
+    assertUsesIndex("IDX_USERS_HOSTED_DOMAIN_ID",
+        "SELECT * FROM users WHERE id > 0 AND hosted_domain = 'ucsb.edu' ORDER BY id");
+  }
+
+  @Test
+  public void users_by_last_login_use_the_users_last_login_index() {
+    assertUsesIndex("IDX_USERS_LAST_LOGIN",
+        "SELECT * FROM users WHERE last_login >= TIMESTAMP '2024-10-01 00:00:00'");
+  }
+
+  @Test
+  public void users_email_is_unique() {
+    jdbcTemplate.update("INSERT INTO users (admin, email, email_verified) VALUES (false, 'dup@ucsb.edu', true)");
+    assertThrows(DuplicateKeyException.class, () -> jdbcTemplate
+        .update("INSERT INTO users (admin, email, email_verified) VALUES (false, 'dup@ucsb.edu', true)"));
+  }
+
+  @Test
+  public void findAllByQuarterYYYYQ_uses_the_ucsbdates_quarter_index() {
+    assertUsesIndex("IDX_UCSBDATES_QUARTERYYYYQ", "SELECT * FROM ucsbdates WHERE quarteryyyyq = '20222'");
+  }
+
+  @Test
+  public void reviews_for_an_item_use_the_menuitemreview_item_id_index() {
+    assertUsesIndex("IDX_MENUITEMREVIEW_ITEM_ID", "SELECT * FROM menuitemreview WHERE item_id = 7");
+  }
+
+  @Test
+  public void open_help_requests_use_the_solved_request_time_index() {
+    assertUsesIndex("IDX_HELPREQUEST_SOLVED_REQUEST_TIME",
+        "SELECT * FROM helprequest WHERE solved = false ORDER BY request_time");
+  }
+
+  @Test
+  public void pending_recommendation_requests_use_the_done_date_needed_index() {
+    assertUsesIndex("IDX_UCSBRECOMMENDATIONREQUESTS_DONE_DATE_NEEDED",
+        "SELECT * FROM ucsbrecommendationrequests WHERE done = false AND date_needed < TIMESTAMP '2024-12-01 00:00:00'");
+  }
+}
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.SearchPage;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ ArticlesSearchService.class, TableVersionService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ArticlesSearchServiceTests {
+
+  @Autowired
+  ArticlesSearchService articlesSearchService;
+
+  @SpyBean
+  ArticlesRepository articlesRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  TableVersionService tableVersionService;
+
+  @AfterEach
+  public void deleteAll() {
+    articlesRepository.deleteAll();
+    // so that each test starts with an index that has not been built
+    tableVersionService.changed(Articles.class);
+  }
+
+  private Articles article(String title, String explanation, String url) {
+    return Articles.builder().title(title).explanation(explanation).url(url)
+        .email("cgaucho@ucsb.edu").dateAdded(LocalDateTime.parse("2024-10-23T00:00:00")).build();
+  }
+
+  @Test
+  public void the_index_is_built_from_the_table_once() {
+    Articles jpa = articlesRepository.save(article("JPA tips", "Entities and repositories", "https://spring.io/jpa"));
+    Articles react = articlesRepository.save(article("React tips", "Hooks", "https://react.dev"));
+
+    SearchPage<Articles> tips = articlesSearchService.search("tips", 0, 10);
+    SearchPage<Articles> spring = articlesSearchService.search("spri", 0, 10);
+
+    assertEquals(new SearchPage<>(List.of(jpa, react), 0, 2), tips);
+    assertEquals(new SearchPage<>(List.of(jpa), 0, 1), spring);
+    verify(articlesRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void articles_written_after_the_index_is_built_are_applied_to_it_without_building_it_again() {
+    Articles jpa = articlesRepository.save(article("JPA tips", "Entities and repositories", "https://spring.io/jpa"));
+    Articles hooks = articlesRepository.save(article("Hooks", "useState", "https://react.dev"));
+    articlesSearchService.search("jpa", 0, 10);
+
+    Articles react = articlesRepository.save(article("React tips", "Hooks", "https://react.dev"));
+    articlesRepository.delete(jpa);
+    hooks.setTitle("Hooks tips");
+    hooks = articlesRepository.save(hooks);
+
+    assertEquals(new SearchPage<>(List.of(hooks, react), 0, 2), articlesSearchService.search("tips", 0, 10));
+    assertEquals(new SearchPage<>(List.of(), 0, 0), articlesSearchService.search("jpa", 0, 10));
+    verify(articlesRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void the_index_is_built_again_after_a_write_whose_articles_are_not_known() {
+    Articles jpa = articlesRepository.save(article("JPA tips", "Entities and repositories", "https://spring.io/jpa"));
+    articlesSearchService.search("jpa", 0, 10);
+
+    Articles react = articlesRepository.save(article("React tips", "Hooks", "https://react.dev"));
+    tableVersionService.changed(Articles.class);
+
+    assertEquals(new SearchPage<>(List.of(jpa, react), 0, 2), articlesSearchService.search("tips", 0, 10));
+    verify(articlesRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void results_are_paginated() {
+    Articles first = articlesRepository.save(article("Week 1", "Lab", null));
+    Articles second = articlesRepository.save(article("Week 2", "Lab", null));
+    Articles third = articlesRepository.save(article("Week 3", "Lab", null));
+
+    assertEquals(new SearchPage<>(List.of(first, second), 0, 3), articlesSearchService.search("lab", 0, 2));
+    assertEquals(new SearchPage<>(List.of(third), 1, 3), articlesSearchService.search("lab", 1, 2));
+  }
+
+  @Test
+  public void articles_deleted_since_the_index_was_built_are_left_out() {
+    Articles jpa = articlesRepository.save(article("JPA tips", "Entities and repositories", "https://spring.io/jpa"));
+    Articles react = articlesRepository.save(article("React tips", "Hooks", "https://react.dev"));
+    articlesSearchService.search("tips", 0, 10);
+
+    // outside JPA, so the table's version does not move on
+    jdbcTemplate.update("DELETE FROM articles WHERE id = ?", jpa.getId());
+
+    assertEquals(List.of(react), articlesSearchService.search("tips", 0, 10).getContent());
+  }
+}
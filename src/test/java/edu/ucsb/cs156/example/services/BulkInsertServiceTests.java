@@ -0,0 +1,133 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(BulkInsertService.class)
+@TestPropertySource(properties = {
+    "app.bulk.batch-size=50",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class BulkInsertServiceTests {
+
+  @Autowired
+  BulkInsertService bulkInsertService;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  private List<UCSBDate> dates(int n) {
+    List<UCSBDate> dates = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      dates.add(UCSBDate.builder().quarterYYYYQ("20224").name("day " + i)
+          .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00").plusDays(i)).build());
+    }
+    return dates;
+  }
+
+  @Test
+  public void inserts_every_row_with_distinct_sequence_ids() {
+    List<UCSBDate> dates = dates(120);
+
+    int inserted = bulkInsertService.insertAll(dates);
+
+    assertEquals(120, inserted);
+    assertEquals(120, ucsbDateRepository.count());
+    Set<Long> ids = new HashSet<>();
+    dates.forEach(date -> ids.add(date.getId()));
+    assertEquals(120, ids.size());
+    assertTrue(ids.stream().allMatch(id -> id > 0));
+  }
+
+  @Test
+  public void rows_inserted_by_sql_without_an_id_take_one_from_the_same_sequence() {
+    List<UCSBDate> dates = dates(3);
+    bulkInsertService.insertAll(dates);
+
+    jdbcTemplate.update("INSERT INTO ucsbdates (quarteryyyyq, name, local_date_time) "
+        + "VALUES ('20224', 'by sql', TIMESTAMP '2022-12-01 00:00:00')");
+    bulkInsertService.insertAll(dates(3));
+
+    assertEquals(7, ucsbDateRepository.count());
+    long sqlId = jdbcTemplate.queryForObject("SELECT id FROM ucsbdates WHERE name = 'by sql'", Long.class);
+    assertTrue(dates.stream().allMatch(date -> date.getId() < sqlId));
+  }
+
+  @Test
+  public void inserts_are_sent_as_jdbc_batches() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    bulkInsertService.insertAll(dates(120));
+
+    // 3 insert batches (50, 50, 20) plus a few sequence calls, rather than 120 inserts
+    assertEquals(120, statistics.getEntityInsertCount());
+    assertTrue(statistics.getPrepareStatementCount() <= 10,
+        () -> "prepared " + statistics.getPrepareStatementCount() + " statements");
+  }
+
+  @Test
+  public void inserts_entities_with_assigned_ids() {
+    List<UCSBOrganization> organizations = List.of(
+        UCSBOrganization.builder().orgCode("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO").build(),
+        UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("STUDENT LIFE").orgTranslation("OFFICE OF STUDENT LIFE").build());
+
+    assertEquals(2, bulkInsertService.insertAll(organizations));
+    assertTrue(ucsbOrganizationRepository.existsById("ZPR"));
+    assertTrue(ucsbOrganizationRepository.existsById("OSLI"));
+  }
+
+  @Test
+  public void versions_sent_with_the_rows_are_reset() {
+    List<UCSBDate> dates = dates(2);
+    dates.get(0).setVersion(7);
+
+    bulkInsertService.insertAll(dates);
+
+    assertEquals(0, ucsbDateRepository.findById(dates.get(0).getId()).get().getVersion());
+    assertEquals(0, ucsbDateRepository.findById(dates.get(1).getId()).get().getVersion());
+  }
+
+  @Test
+  public void empty_list_inserts_nothing() {
+    assertEquals(0, bulkInsertService.insertAll(List.of()));
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+public class CacheLoadsTests {
+
+  private final AsyncCache<String, String> cache = Caffeine.newBuilder().buildAsync();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  // A load that counts itself, and waits for the test to let it finish
+  private Function<String, String> blockedLoad(CountDownLatch started, CountDownLatch finish, String value) {
+    return key -> {
+      loads.incrementAndGet();
+      started.countDown();
+      try {
+        finish.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return value;
+    };
+  }
+
+  // Calls get on a new thread; if waiting is set, only returns once that thread is
+  // waiting for a load on another thread
+  private static <T> CompletableFuture<T> inThread(Supplier<T> get, boolean waiting) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Thread thread = Thread.ofVirtual().start(() -> {
+      try {
+        result.complete(get.get());
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    });
+    while (waiting && thread.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+    return result;
+  }
+
+  @Test
+  public void a_value_is_loaded_once_and_then_read_from_the_cache() {
+    assertEquals("1", CacheLoads.get(cache, "a", key -> Integer.toString(loads.incrementAndGet())));
+    assertEquals("1", CacheLoads.get(cache, "a", key -> Integer.toString(loads.incrementAndGet())));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void callers_that_miss_together_wait_for_one_load() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    CompletableFuture<String> first = inThread(() -> CacheLoads.get(cache, "a", blockedLoad(started, finish, "loaded")), false);
+    started.await();
+    CompletableFuture<String> second = inThread(() -> CacheLoads.get(cache, "a", key -> "not loaded"), true);
+
+    finish.countDown();
+
+    assertEquals("loaded", first.get());
+    assertEquals("loaded", second.get());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void a_load_that_was_running_when_the_key_was_invalidated_is_not_cached() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    CompletableFuture<String> stale = inThread(() -> CacheLoads.get(cache, "a", blockedLoad(started, finish, "before")), false);
+    started.await();
+
+    // the write being reported committed after the load read the row
+    cache.synchronous().invalidate("a");
+    finish.countDown();
+
+    assertEquals("before", stale.get());
+    assertNull(cache.getIfPresent("a"));
+    assertEquals("after", CacheLoads.get(cache, "a", key -> "after"));
+  }
+
+  @Test
+  public void a_failed_load_is_rethrown_to_every_caller_and_not_cached() throws Exception {
+    IllegalStateException failure = new IllegalStateException("database is down");
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    CompletableFuture<String> first = inThread(() -> CacheLoads.get(cache, "a", blockedLoad(started, finish, null)
+        .andThen(value -> {
+          throw failure;
+        })), false);
+    started.await();
+    CompletableFuture<String> second = inThread(() -> CacheLoads.get(cache, "a", key -> "not loaded"), true);
+
+    finish.countDown();
+
+    assertSame(failure, assertThrows(Exception.class, first::get).getCause());
+    assertSame(failure, assertThrows(Exception.class, second::get).getCause());
+    assertEquals("loaded", CacheLoads.get(cache, "a", key -> "loaded"));
+  }
+
+  @Test
+  public void an_error_in_a_load_is_rethrown_to_every_caller() throws Exception {
+    StackOverflowError failure = new StackOverflowError();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    CompletableFuture<String> first = inThread(() -> CacheLoads.get(cache, "a", blockedLoad(started, finish, null)
+        .andThen(value -> {
+          throw failure;
+        })), false);
+    started.await();
+    CompletableFuture<String> second = inThread(() -> CacheLoads.get(cache, "a", key -> "not loaded"), true);
+
+    finish.countDown();
+
+    assertSame(failure, assertThrows(Exception.class, first::get).getCause());
+    assertSame(failure, assertThrows(Exception.class, second::get).getCause());
+  }
+}
@@ -0,0 +1,255 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.events.UserChangedEvent;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringJUnitConfig(classes = { CurrentUserServiceImpl.class, CurrentUserServiceImplTests.Config.class })
+@TestPropertySource(properties = { "app.admin.emails=admin@ucsb.edu", "app.current-user.cache.ttl-seconds=300" })
+class CurrentUserServiceImplTests {
+
+  @TestConfiguration
+  static class Config {
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
+    // as registered by Spring Boot's transaction auto-configuration
+    @Bean
+    TransactionalEventListenerFactory transactionalEventListenerFactory() {
+      return new TransactionalEventListenerFactory();
+    }
+  }
+
+  @Autowired
+  CurrentUserServiceImpl currentUserService;
+
+  @Autowired
+  ApplicationEventPublisher publisher;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @AfterEach
+  void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private void logInAs(String sub, String email) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", sub);
+    attributes.put("email", email);
+    attributes.put("email_verified", true);
+    List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    DefaultOAuth2User principal = new DefaultOAuth2User(authorities, attributes, "email");
+    SecurityContextHolder.getContext()
+        .setAuthentication(new OAuth2AuthenticationToken(principal, authorities, "google"));
+  }
+
+  // Runs the write as if in a transaction, then beforeCommit, and then commits
+  private void inTransaction(Runnable write, Runnable beforeCommit) {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      write.run();
+      beforeCommit.run();
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry.get("cache.gets").tag("cache", "currentUser").tag("result", result)
+        .functionCounter().count();
+  }
+
+  @Test
+  void repeat_calls_for_the_same_sub_query_the_database_once() {
+    User stored = User.builder().id(1L).googleSub("sub-1").email("cgaucho@ucsb.edu").build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(stored));
+    logInAs("sub-1", "cgaucho@ucsb.edu");
+
+    double hitsBefore = cacheGets("hit");
+    double missesBefore = cacheGets("miss");
+
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+    User third = currentUserService.getUser();
+
+    assertEquals(stored, first);
+    assertEquals(stored, second);
+    assertEquals(stored, third);
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+    verify(userRepository, never()).save(any());
+    verify(userRepository, times(1)).updateLastLogin(eq(1L), any());
+    assertNotNull(first.getLastLogin());
+    assertEquals(1.0, cacheGets("miss") - missesBefore);
+    assertEquals(2.0, cacheGets("hit") - hitsBefore);
+  }
+
+  @Test
+  void a_new_user_is_created_once_and_then_served_from_the_cache() {
+    when(userRepository.findByEmail("ldelplaya@ucsb.edu")).thenReturn(Optional.empty());
+    logInAs("sub-2", "ldelplaya@ucsb.edu");
+
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+
+    assertEquals(first, second);
+    assertEquals("sub-2", first.getGoogleSub());
+    assertFalse(first.getAdmin());
+    assertNotNull(first.getLastLogin());
+    verify(userRepository, times(1)).save(any());
+    verify(userRepository, never()).updateLastLogin(anyLong(), any());
+  }
+
+  @Test
+  void an_admin_email_is_promoted_on_the_first_miss_only() {
+    User stored = User.builder().id(3L).googleSub("sub-3").email("admin@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(stored));
+    logInAs("sub-3", "admin@ucsb.edu");
+
+    User first = currentUserService.getUser();
+    currentUserService.getUser();
+
+    assertTrue(first.getAdmin());
+    verify(userRepository, times(1)).save(stored);
+  }
+
+  @Test
+  void a_promotion_evicts_its_own_load_so_the_promoted_user_is_loaded_once_more() {
+    User stored = User.builder().id(6L).googleSub("sub-6").email("admin@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(stored));
+    // like UserListener does when the update is flushed
+    doAnswer(invocation -> {
+      publisher.publishEvent(new UserChangedEvent(invocation.getArgument(0)));
+      return invocation.getArgument(0);
+    }).when(userRepository).save(any());
+    logInAs("sub-6", "admin@ucsb.edu");
+
+    assertTrue(currentUserService.getUser().getAdmin());
+    assertTrue(currentUserService.getUser().getAdmin());
+    assertTrue(currentUserService.getUser().getAdmin());
+    verify(userRepository, times(2)).findByEmail("admin@ucsb.edu");
+    verify(userRepository, times(1)).save(any());
+  }
+
+  @Test
+  void a_user_changed_in_a_transaction_is_evicted_when_it_commits() {
+    User before = User.builder().id(7L).googleSub("sub-7").email("phtcon@ucsb.edu").admin(false).build();
+    User after = User.builder().id(7L).googleSub("sub-7").email("phtcon@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("phtcon@ucsb.edu")).thenReturn(Optional.of(before), Optional.of(after));
+    logInAs("sub-7", "phtcon@ucsb.edu");
+    assertFalse(currentUserService.getUser().getAdmin());
+
+    // a request before the commit must not load (and cache) the row as it was before the write
+    inTransaction(() -> publisher.publishEvent(new UserChangedEvent(after)),
+        () -> assertFalse(currentUserService.getUser().getAdmin()));
+    verify(userRepository, times(1)).findByEmail("phtcon@ucsb.edu");
+
+    assertTrue(currentUserService.getUser().getAdmin());
+    verify(userRepository, times(2)).findByEmail("phtcon@ucsb.edu");
+  }
+
+  @Test
+  void each_caller_gets_its_own_copy_of_the_cached_user() {
+    User stored = User.builder().id(8L).googleSub("sub-8").email("scottpchow@ucsb.edu").fullName("Scott Chow").build();
+    when(userRepository.findByEmail("scottpchow@ucsb.edu")).thenReturn(Optional.of(stored));
+    logInAs("sub-8", "scottpchow@ucsb.edu");
+
+    User first = currentUserService.getUser();
+    first.setFullName("changed by one request");
+    stored.setFullName("changed in the persistence context");
+    User second = currentUserService.getUser();
+
+    assertNotSame(stored, first);
+    assertNotSame(first, second);
+    assertEquals("Scott Chow", second.getFullName());
+  }
+
+  @Test
+  void a_user_changed_event_evicts_the_user() {
+    User before = User.builder().id(4L).googleSub("sub-4").email("pconrad@ucsb.edu").admin(false).build();
+    User after = User.builder().id(4L).googleSub("sub-4").email("pconrad@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("pconrad@ucsb.edu")).thenReturn(Optional.of(before), Optional.of(after));
+    logInAs("sub-4", "pconrad@ucsb.edu");
+
+    assertFalse(currentUserService.getUser().getAdmin());
+    assertFalse(currentUserService.getUser().getAdmin());
+
+    publisher.publishEvent(new UserChangedEvent(after));
+
+    assertTrue(currentUserService.getUser().getAdmin());
+    verify(userRepository, times(2)).findByEmail("pconrad@ucsb.edu");
+  }
+
+  @Test
+  void users_without_a_sub_are_cached_by_email() {
+    User stored = User.builder().id(5L).email("nosub@ucsb.edu").build();
+    when(userRepository.findByEmail("nosub@ucsb.edu")).thenReturn(Optional.of(stored));
+    logInAs(null, "nosub@ucsb.edu");
+
+    currentUserService.getUser();
+    currentUserService.getUser();
+    verify(userRepository, times(1)).findByEmail("nosub@ucsb.edu");
+
+    currentUserService.evictUser(stored);
+    currentUserService.getUser();
+    verify(userRepository, times(2)).findByEmail("nosub@ucsb.edu");
+  }
+
+  @Test
+  void getUser_returns_null_when_not_logged_in_with_oauth() {
+    assertEquals(null, currentUserService.getUser());
+  }
+}
@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class GeoIndexTests {
+
+  private record Place(String name, double lat, double lon) {
+  }
+
+  private static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * GeoIndex.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+  }
+
+  private static GeoIndex<Place> index(List<Place> places) {
+    return new GeoIndex<>(places, Place::lat, Place::lon);
+  }
+
+  @Test
+  public void empty_index_finds_nothing() {
+    GeoIndex<Place> index = index(List.of());
+
+    assertEquals(0, index.size());
+    assertEquals(List.of(), index.nearest(34.41, -119.85, 3));
+  }
+
+  @Test
+  public void distances_are_great_circle_meters() {
+    Place carrillo = new Place("carrillo", 34.409953, -119.85277);
+    Place dlg = new Place("de-la-guerra", 34.409811, -119.845026);
+
+    List<GeoIndex.Neighbour<Place>> found = index(List.of(carrillo, dlg)).nearest(34.409953, -119.85277, 2);
+
+    assertEquals(carrillo, found.get(0).item());
+    assertEquals(0.0, found.get(0).distanceMeters(), 1e-6);
+    assertEquals(dlg, found.get(1).item());
+    assertEquals(haversineMeters(34.409953, -119.85277, 34.409811, -119.845026), found.get(1).distanceMeters(), 1e-6);
+  }
+
+  @Test
+  public void nearest_is_limited_to_k_and_to_the_number_of_items() {
+    List<Place> places = List.of(new Place("a", 0, 0), new Place("b", 0, 1), new Place("c", 0, 2));
+
+    assertEquals(List.of("a", "b"), index(places).nearest(0, -1, 2).stream().map(n -> n.item().name()).toList());
+    assertEquals(3, index(places).nearest(0, -1, 10).size());
+  }
+
+  @Test
+  public void nearest_matches_a_brute_force_search_across_the_antimeridian_and_poles() {
+    Random random = new Random(156);
+    List<Place> places = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      places.add(new Place("p" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+    }
+    GeoIndex<Place> index = index(places);
+
+    for (int q = 0; q < 200; q++) {
+      double lat = (q == 0) ? 90 : random.nextDouble() * 180 - 90;
+      double lon = (q == 1) ? 180 : random.nextDouble() * 360 - 180;
+      List<Place> expected = places.stream()
+          .sorted(Comparator.comparingDouble((Place p) -> haversineMeters(lat, lon, p.lat(), p.lon())))
+          .limit(5)
+          .toList();
+
+      List<GeoIndex.Neighbour<Place>> found = index.nearest(lat, lon, 5);
+
+      assertEquals(expected, found.stream().map(GeoIndex.Neighbour::item).toList());
+      for (GeoIndex.Neighbour<Place> n : found) {
+        assertEquals(haversineMeters(lat, lon, n.item().lat(), n.item().lon()), n.distanceMeters(), 1e-3);
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.events.HelpRequestChangedEvent;
+import edu.ucsb.cs156.example.events.HelpRequestsDeletedEvent;
+
+public class HelpRequestStreamServiceTests {
+
+  HelpRequestStreamService helpRequestStreamService = new HelpRequestStreamService();
+
+  // Senders are only run when a test runs them, so that queues fill up deterministically
+  ExecutorService senders = mock(ExecutorService.class);
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(helpRequestStreamService, "bufferSize", 2);
+    ReflectionTestUtils.setField(helpRequestStreamService, "timeoutMillis", 60_000L);
+    ReflectionTestUtils.setField(helpRequestStreamService, "senders", senders);
+  }
+
+  private void publish(long id) {
+    helpRequestStreamService.onHelpRequestChanged(new HelpRequestChangedEvent(
+        HelpRequestChangedEvent.Type.CREATED, HelpRequest.builder().id(id).build()));
+  }
+
+  private Runnable sender() {
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(senders).execute(captor.capture());
+    return captor.getValue();
+  }
+
+  @Test
+  public void one_sender_drains_all_the_events_queued_for_a_subscriber() {
+    helpRequestStreamService.subscribe();
+
+    publish(1);
+    publish(2);
+    sender().run();
+    publish(3);
+
+    verify(senders, times(2)).execute(any());
+    assertEquals(1, helpRequestStreamService.getSubscriberCount());
+  }
+
+  @Test
+  public void a_subscriber_that_falls_behind_the_buffer_is_disconnected() {
+    helpRequestStreamService.subscribe();
+    helpRequestStreamService.subscribe();
+
+    publish(1);
+    publish(2);
+    assertEquals(2, helpRequestStreamService.getSubscriberCount());
+
+    publish(3);
+    assertEquals(0, helpRequestStreamService.getSubscriberCount());
+  }
+
+  @Test
+  public void a_subscriber_whose_stream_has_ended_is_dropped_when_sending_fails() {
+    SseEmitter emitter = helpRequestStreamService.subscribe();
+    emitter.complete();
+
+    publish(1);
+    sender().run();
+
+    assertEquals(0, helpRequestStreamService.getSubscriberCount());
+  }
+
+  @Test
+  public void deleted_help_requests_are_sent_as_a_deleted_event_with_their_ids() {
+    SseEmitter emitter = helpRequestStreamService.subscribe();
+
+    helpRequestStreamService.onHelpRequestsDeleted(new HelpRequestsDeletedEvent(List.of(1L, 2L)));
+    sender().run();
+
+    // the emitter has no response yet, so it keeps what was sent
+    @SuppressWarnings("unchecked")
+    Set<SseEmitter.DataWithMediaType> sent = (Set<SseEmitter.DataWithMediaType>) ReflectionTestUtils
+        .getField(emitter, "earlySendAttempts");
+    assertEquals(List.of("id:1\nevent:deleted\ndata:", Map.of("ids", List.of(1L, 2L)), "\n\n"),
+        sent.stream().map(SseEmitter.DataWithMediaType::getData).toList());
+  }
+
+  @Test
+  public void shutdown_closes_every_subscriber() {
+    helpRequestStreamService.subscribe();
+    helpRequestStreamService.subscribe();
+
+    helpRequestStreamService.shutdown();
+
+    assertEquals(0, helpRequestStreamService.getSubscriberCount());
+    verify(senders).shutdownNow();
+  }
+}
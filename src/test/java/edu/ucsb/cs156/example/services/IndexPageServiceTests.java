@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = IndexPageService.class)
+@TestPropertySource(properties = "app.frontend.index=classpath:/frontend/index.html")
+public class IndexPageServiceTests {
+
+  @Autowired
+  IndexPageService indexPageService;
+
+  // The service outlives each test, so the page it read is dropped
+  @AfterEach
+  public void forgetPage() {
+    ReflectionTestUtils.setField(indexPageService, "index", new ClassPathResource("frontend/index.html"));
+    ReflectionTestUtils.setField(indexPageService, "variants", null);
+  }
+
+  private static byte[] bytes(String path) throws IOException {
+    return new ClassPathResource(path).getContentAsByteArray();
+  }
+
+  @Test
+  public void the_best_accepted_encoding_is_chosen() throws Exception {
+    IndexPageService.Variant br = indexPageService.select("gzip, deflate, br, zstd").get();
+    IndexPageService.Variant gzip = indexPageService.select("gzip, deflate").get();
+    IndexPageService.Variant identity = indexPageService.select(null).get();
+
+    assertEquals("br", br.encoding());
+    assertArrayEquals(bytes("frontend/index.html.br"), br.body());
+    assertEquals("gzip", gzip.encoding());
+    assertArrayEquals(bytes("frontend/index.html.gz"), gzip.body());
+    assertNull(identity.encoding());
+    assertArrayEquals(bytes("frontend/index.html"), identity.body());
+    assertSame(identity, indexPageService.select("deflate").get());
+  }
+
+  @Test
+  public void each_variant_has_its_own_strong_etag() {
+    String br = indexPageService.select("br").get().eTag();
+    String gzip = indexPageService.select("gzip").get().eTag();
+    String identity = indexPageService.select("").get().eTag();
+
+    assertTrue(identity.matches("[0-9a-f]{32}"), identity);
+    assertNotEquals(identity, br);
+    assertNotEquals(identity, gzip);
+    assertNotEquals(br, gzip);
+  }
+
+  @Test
+  public void encodings_are_accepted_by_name_or_wildcard_unless_their_quality_is_zero() {
+    assertTrue(IndexPageService.accepts("BR", "br"));
+    assertTrue(IndexPageService.accepts("gzip;q=0.5, br;q=1.0", "br"));
+    assertTrue(IndexPageService.accepts("*", "gzip"));
+    assertFalse(IndexPageService.accepts("br;q=0", "br"));
+    assertFalse(IndexPageService.accepts("br; q = 0.000, gzip", "br"));
+    assertFalse(IndexPageService.accepts("gzip", "br"));
+    assertFalse(IndexPageService.accepts(null, "br"));
+
+    assertEquals("gzip", indexPageService.select("br;q=0, gzip").get().encoding());
+  }
+
+  @Test
+  public void the_page_is_read_once() throws Exception {
+    Resource index = mock(Resource.class);
+    Resource missing = mock(Resource.class);
+    when(index.exists()).thenReturn(true);
+    when(index.getFilename()).thenReturn("index.html");
+    when(index.getContentAsByteArray()).thenReturn("<html>".getBytes(), "changed".getBytes());
+    when(index.createRelative("index.html.br")).thenReturn(missing);
+    when(index.createRelative("index.html.gz")).thenReturn(missing);
+    ReflectionTestUtils.setField(indexPageService, "index", index);
+
+    IndexPageService.Variant first = indexPageService.select("br, gzip").get();
+
+    // without precompressed siblings, the original is sent whatever the client accepts
+    assertNull(first.encoding());
+    assertArrayEquals("<html>".getBytes(), first.body());
+    assertSame(first, indexPageService.select("br, gzip").get());
+  }
+
+  @Test
+  public void a_load_that_waited_for_the_page_to_be_read_does_not_read_it_again() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch read = new CountDownLatch(1);
+    Resource index = mock(Resource.class);
+    Resource missing = mock(Resource.class);
+    when(index.exists()).thenReturn(true);
+    when(index.getFilename()).thenReturn("index.html");
+    when(index.getContentAsByteArray()).thenAnswer(invocation -> {
+      reading.countDown();
+      read.await();
+      return "<html>".getBytes();
+    });
+    when(index.createRelative(anyString())).thenReturn(missing);
+    ReflectionTestUtils.setField(indexPageService, "index", index);
+    CompletableFuture<IndexPageService.Variant> first = CompletableFuture
+        .supplyAsync(() -> indexPageService.select(null).get());
+    reading.await();
+
+    CompletableFuture<IndexPageService.Variant> second = new CompletableFuture<>();
+    Thread waiting = Thread.ofVirtual().start(() -> second.complete(indexPageService.select(null).get()));
+    while (waiting.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+    read.countDown();
+
+    assertSame(first.get(), second.get());
+    verify(index, times(1)).getContentAsByteArray();
+  }
+
+  @Test
+  public void without_a_frontend_build_there_is_no_page() {
+    ReflectionTestUtils.setField(indexPageService, "index", new ClassPathResource("frontend/missing.html"));
+
+    assertEquals(Optional.empty(), indexPageService.select("br"));
+  }
+
+  @Test
+  public void errors_reading_the_page_are_thrown() throws Exception {
+    Resource index = mock(Resource.class);
+    when(index.exists()).thenReturn(true);
+    when(index.getContentAsByteArray()).thenThrow(new IOException("disk on fire"));
+    ReflectionTestUtils.setField(indexPageService, "index", index);
+
+    UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> indexPageService.select(null));
+    assertEquals("disk on fire", e.getCause().getMessage());
+  }
+}
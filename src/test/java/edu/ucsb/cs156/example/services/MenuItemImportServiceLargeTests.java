@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.config.HibernateCacheConfig;
+import edu.ucsb.cs156.example.models.ImportProgress;
+import edu.ucsb.cs156.example.services.MenuItemImportService.Format;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * Imports a million rows, a tenth of them duplicates, and checks they are all counted.
+ *
+ * Tests tagged large-import run in their own surefire execution with a small heap
+ * (see pom.xml), so this fails with an OutOfMemoryError if the import ever starts
+ * holding the file or its rows in memory; the file is generated as it is read, and is
+ * larger than the heap.  The database is file-backed with a small page cache so that
+ * the table itself does not have to fit in the heap.
+ */
+@Tag("large-import")
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:file:./target/menu-item-import-large;CACHE_SIZE=8192")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ MenuItemImportService.class, HibernateCacheConfig.class, TableVersionService.class,
+    JacksonAutoConfiguration.class })
+public class MenuItemImportServiceLargeTests {
+
+  private static final int ROWS = 1_000_000;
+
+  private static final int DISTINCT_ROWS = 900_000;
+
+  @Autowired
+  MenuItemImportService menuItemImportService;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void import_of_a_million_rows_runs_in_a_small_heap() throws Exception {
+    // arrange
+    jdbcTemplate.execute("TRUNCATE TABLE ucsbdiningcommonsmenuitem");
+    jdbcTemplate.execute("DELETE FROM ucsbdiningcommons");
+    jdbcTemplate.update("""
+        INSERT INTO ucsbdiningcommons (code, name, has_dining_cam, has_sack_meal, has_take_out_meal)
+        VALUES ('ortega', 'Ortega', FALSE, FALSE, FALSE)
+        """);
+    LineCountingOutputStream out = new LineCountingOutputStream();
+
+    // act
+    ImportProgress progress = menuItemImportService.importMenuItems(new GeneratedCsv(), Format.CSV, out);
+
+    // assert
+    assertEquals(new ImportProgress(ROWS, DISTINCT_ROWS, ROWS - DISTINCT_ROWS, 0, List.of(), true),
+        progress);
+    assertEquals(ROWS / 1000 + 1, out.lines);
+    assertEquals(DISTINCT_ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ucsbdiningcommonsmenuitem", Long.class));
+
+    jdbcTemplate.execute("TRUNCATE TABLE ucsbdiningcommonsmenuitem");
+    jdbcTemplate.execute("DELETE FROM ucsbdiningcommons");
+  }
+
+  // A CSV file of ROWS menu items, made a row at a time as it is read; the last
+  // rows repeat the first ones
+  private static class GeneratedCsv extends InputStream {
+    private byte[] line = "diningCommonsCode,name,station\n".getBytes(StandardCharsets.UTF_8);
+    private int position = 0;
+    private int row = 0;
+
+    @Override
+    public int read() {
+      if (position == line.length) {
+        if (row == ROWS) {
+          return -1;
+        }
+        line = "ortega,Dish %d,Station %d\n".formatted(row % DISTINCT_ROWS, row % 10).getBytes(StandardCharsets.UTF_8);
+        position = 0;
+        row++;
+      }
+      return line[position++];
+    }
+  }
+
+  private static class LineCountingOutputStream extends OutputStream {
+    long lines = 0;
+
+    @Override
+    public void write(int b) {
+      if (b == '\n') {
+        lines++;
+      }
+    }
+  }
+}
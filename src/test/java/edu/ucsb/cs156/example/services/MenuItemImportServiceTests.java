@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.config.HibernateCacheConfig;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.BulkInsertError;
+import edu.ucsb.cs156.example.models.ImportProgress;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.MenuItemImportService.Format;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ MenuItemImportService.class, HibernateCacheConfig.class, TableVersionService.class,
+    JacksonAutoConfiguration.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = { "app.import.batch-size=3", "app.import.max-line-length=400" })
+public class MenuItemImportServiceTests {
+
+  @Autowired
+  MenuItemImportService menuItemImportService;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @BeforeEach
+  public void diningCommons() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("dlg").name("De La Guerra").build());
+  }
+
+  @AfterEach
+  public void deleteAll() {
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  private List<ImportProgress> importFile(String file, Format format) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImportProgress last = menuItemImportService.importMenuItems(
+        new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)), format, out);
+    List<ImportProgress> progress = new ArrayList<>();
+    for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+      progress.add(mapper.readValue(line, ImportProgress.class));
+    }
+    assertEquals(last, progress.get(progress.size() - 1));
+    return progress;
+  }
+
+  private Set<String> menu() {
+    Set<String> menu = new HashSet<>();
+    ucsbDiningCommonsMenuItemRepository.findAll().forEach(item -> menu.add(
+        "%s|%s|%s".formatted(item.getDiningCommonsCode(), item.getName(), item.getStation())));
+    return menu;
+  }
+
+  @Test
+  public void csv_rows_are_imported_in_batches_with_a_line_of_progress_for_each() throws Exception {
+    String file = """
+        Station,name,diningCommonsCode\r
+        Entrees,Baked Penne,ortega\r
+        \r
+        "Grill, Deli","Turkey ""Club"" Sandwich",dlg
+        Desserts,"Apple
+        Pie","ortega"
+        Entrees,Tofu Stir Fry, ortega
+        """;
+
+    List<ImportProgress> progress = importFile(file, Format.CSV);
+
+    assertEquals(List.of(
+        new ImportProgress(3, 3, 0, 0, List.of(), false),
+        new ImportProgress(4, 4, 0, 0, List.of(), true)), progress);
+    assertEquals(Set.of("ortega|Baked Penne|Entrees", "dlg|Turkey \"Club\" Sandwich|Grill, Deli",
+        "ortega|Apple\nPie|Desserts", "ortega|Tofu Stir Fry|Entrees"), menu());
+  }
+
+  @Test
+  public void ndjson_rows_already_on_the_menu_or_earlier_in_the_batch_are_skipped() throws Exception {
+    ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("dlg").name("Pho").station("Noodles").build());
+    // read through the query cache, which the import has to clear
+    assertEquals(1, menu().size());
+    String file = """
+        {"diningCommonsCode": "dlg", "name": "Pho", "station": "Noodles"}
+        {"diningCommonsCode": "ortega", "name": "Ramen", "station": "Noodles", "id": 7}
+        {"diningCommonsCode": "ortega", "name": " Ramen ", "station": "Noodles"}
+        {"diningCommonsCode": "ortega", "name": "Udon", "station": "Noodles"}
+        """;
+
+    List<ImportProgress> first = importFile(file, Format.NDJSON);
+    List<ImportProgress> again = importFile(file, Format.NDJSON);
+
+    assertEquals(new ImportProgress(4, 2, 2, 0, List.of(), true), first.get(first.size() - 1));
+    assertEquals(new ImportProgress(4, 0, 4, 0, List.of(), true), again.get(again.size() - 1));
+    assertEquals(Set.of("dlg|Pho|Noodles", "ortega|Ramen|Noodles", "ortega|Udon|Noodles"), menu());
+
+    // the ids taken from the sequence are not given out again
+    UCSBDiningCommonsMenuItem saved = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("dlg").name("Laksa").station("Noodles").build());
+    Set<Long> ids = new HashSet<>();
+    ucsbDiningCommonsMenuItemRepository.findAll().forEach(item -> ids.add(item.getId()));
+    assertEquals(4, ids.size());
+    assertTrue(ids.stream().allMatch(id -> id > 0));
+    assertTrue(ids.contains(saved.getId()));
+  }
+
+  @Test
+  public void rows_that_are_not_valid_are_rejected_with_their_problems() throws Exception {
+    String file = String.join("\n",
+        "{\"diningCommonsCode\": \"carrillo\", \"name\": \"Pizza\", \"station\": \"Pizza\"}",
+        "{\"name\": \" \"}",
+        "{\"diningCommonsCode\": \"dlg\", \"name\": \"" + "x".repeat(256) + "\", \"station\": \"Pizza\"}",
+        "not json",
+        "null",
+        "[\"" + "x".repeat(400) + "\"]",
+        "{\"diningCommonsCode\": \"dlg\", \"name\": \"Pizza\", \"station\": \"Pizza\"}");
+
+    List<ImportProgress> progress = importFile(file, Format.NDJSON);
+
+    assertEquals(3, progress.size());
+    assertEquals(List.of(
+        new BulkInsertError(0, List.of("diningCommonsCode carrillo is not the code of a dining commons")),
+        new BulkInsertError(1, List.of("diningCommonsCode is required", "name is required", "station is required")),
+        new BulkInsertError(2, List.of("name is longer than 255 characters"))), progress.get(0).getErrors());
+    List<BulkInsertError> errors = progress.get(1).getErrors();
+    assertEquals(3, errors.size());
+    assertTrue(errors.get(0).getMessages().get(0).startsWith("row is not a JSON object: "));
+    assertEquals(new BulkInsertError(4, List.of("row is not a JSON object")), errors.get(1));
+    assertEquals(new BulkInsertError(5, List.of("row is longer than 400 characters")), errors.get(2));
+    assertEquals(new ImportProgress(7, 1, 0, 6, List.of(), true), progress.get(2));
+    assertEquals(Set.of("dlg|Pizza|Pizza"), menu());
+  }
+
+  @Test
+  public void csv_fields_missing_from_a_row_are_required() throws Exception {
+    List<ImportProgress> progress = importFile("diningCommonsCode,name,station\ndlg,Pizza\n", Format.CSV);
+
+    assertEquals(List.of(new ImportProgress(1, 0, 0, 1, List.of(
+        new BulkInsertError(0, List.of("station is required"))), true)), progress);
+  }
+
+  @Test
+  public void a_csv_file_must_start_with_a_header_naming_the_columns() throws Exception {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> importFile("diningCommonsCode,name\ndlg,Pizza\n", Format.CSV));
+    assertEquals("the first line of a CSV file must name the columns diningCommonsCode, name and station",
+        e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> importFile("", Format.CSV));
+    assertThrows(IllegalArgumentException.class, () -> importFile("x".repeat(401), Format.CSV));
+  }
+
+  @Test
+  public void an_empty_file_imports_nothing() throws Exception {
+    assertEquals(List.of(new ImportProgress(0, 0, 0, 0, List.of(), true)), importFile("\n\n", Format.NDJSON));
+  }
+}
@@ -0,0 +1,255 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewSummary;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewSummaryRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(MenuItemReviewSummaryService.class)
+public class MenuItemReviewSummaryServiceTests {
+
+  @Autowired
+  MenuItemReviewSummaryService menuItemReviewSummaryService;
+
+  @Autowired
+  MenuItemReviewSummaryRepository menuItemReviewSummaryRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @SpyBean
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  private MenuItemReview review(long itemId, int stars) {
+    return MenuItemReview.builder().itemId(itemId).stars(stars).build();
+  }
+
+  @Test
+  public void item_without_reviews_has_an_empty_summary() {
+    MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(42L);
+
+    assertEquals(42L, summary.getItemId());
+    assertEquals(0, summary.getReviewCount());
+    assertNull(summary.getAverageStars());
+    assertNull(summary.getMinStars());
+    assertNull(summary.getMaxStars());
+  }
+
+  @Test
+  public void added_reviews_update_count_sum_bounds_and_histogram() {
+    menuItemReviewSummaryService.reviewAdded(review(1L, 4));
+    menuItemReviewSummaryService.reviewAdded(review(1L, 2));
+    menuItemReviewSummaryService.reviewAdded(review(1L, 4));
+    menuItemReviewSummaryService.reviewAdded(review(2L, 0));
+
+    MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(1L);
+    assertEquals(3, summary.getReviewCount());
+    assertEquals(10, summary.getStarsSum());
+    assertEquals(10.0 / 3, summary.getAverageStars());
+    assertEquals(2, summary.getMinStars());
+    assertEquals(4, summary.getMaxStars());
+    assertEquals(0, summary.getStars0());
+    assertEquals(1, summary.getStars2());
+    assertEquals(2, summary.getStars4());
+
+    MenuItemReviewSummary other = menuItemReviewSummaryService.getSummary(2L);
+    assertEquals(1, other.getReviewCount());
+    assertEquals(0, other.getMinStars());
+    assertEquals(0, other.getMaxStars());
+    assertEquals(1, other.getStars0());
+  }
+
+  @Test
+  public void removing_the_lowest_and_highest_reviews_moves_the_bounds() {
+    menuItemReviewSummaryService.reviewAdded(review(3L, 1));
+    menuItemReviewSummaryService.reviewAdded(review(3L, 3));
+    menuItemReviewSummaryService.reviewAdded(review(3L, 5));
+
+    menuItemReviewSummaryService.reviewRemoved(review(3L, 1));
+    menuItemReviewSummaryService.reviewRemoved(review(3L, 5));
+
+    MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(3L);
+    assertEquals(1, summary.getReviewCount());
+    assertEquals(3, summary.getStarsSum());
+    assertEquals(3, summary.getMinStars());
+    assertEquals(3, summary.getMaxStars());
+    assertEquals(0, summary.getStars1());
+    assertEquals(1, summary.getStars3());
+    assertEquals(0, summary.getStars5());
+  }
+
+  @Test
+  public void removing_the_last_review_deletes_the_summary_row() {
+    menuItemReviewSummaryService.reviewAdded(review(4L, 5));
+    menuItemReviewSummaryService.reviewRemoved(review(4L, 5));
+
+    assertFalse(menuItemReviewSummaryRepository.existsById(4L));
+    assertEquals(0, menuItemReviewSummaryService.getSummary(4L).getReviewCount());
+  }
+
+  @Test
+  public void changing_a_review_moves_its_rating_between_items_and_buckets() {
+    menuItemReviewSummaryService.reviewAdded(review(5L, 2));
+    menuItemReviewSummaryService.reviewAdded(review(5L, 3));
+
+    menuItemReviewSummaryService.reviewChanged(5L, 2, review(6L, 4));
+
+    MenuItemReviewSummary oldItem = menuItemReviewSummaryService.getSummary(5L);
+    assertEquals(1, oldItem.getReviewCount());
+    assertEquals(0, oldItem.getStars2());
+    assertEquals(3, oldItem.getMinStars());
+
+    MenuItemReviewSummary newItem = menuItemReviewSummaryService.getSummary(6L);
+    assertEquals(1, newItem.getReviewCount());
+    assertEquals(4, newItem.getStarsSum());
+    assertEquals(1, newItem.getStars4());
+  }
+
+  @Test
+  public void changing_only_the_stars_of_a_review_moves_it_between_buckets() {
+    menuItemReviewSummaryService.reviewAdded(review(12L, 1));
+
+    menuItemReviewSummaryService.reviewChanged(12L, 1, review(12L, 5));
+
+    MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(12L);
+    assertEquals(1, summary.getReviewCount());
+    assertEquals(0, summary.getStars1());
+    assertEquals(1, summary.getStars5());
+    assertEquals(5, summary.getStarsSum());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void concurrent_first_reviews_of_an_item_are_both_counted() throws Exception {
+    // each review's transaction finds no summary row, and neither inserts one until both have
+    CountDownLatch bothFoundNoRow = new CountDownLatch(2);
+    doAnswer(invocation -> {
+      bothFoundNoRow.countDown();
+      bothFoundNoRow.await(10, TimeUnit.SECONDS);
+      return invocation.callRealMethod();
+    }).when(jdbcTemplate).execute(any(ConnectionCallback.class));
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    try {
+      CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(
+          status -> menuItemReviewSummaryService.reviewAdded(review(13L, 2))));
+      CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(
+          status -> menuItemReviewSummaryService.reviewAdded(review(13L, 4))));
+      first.get(30, TimeUnit.SECONDS);
+      second.get(30, TimeUnit.SECONDS);
+
+      MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(13L);
+      assertEquals(2, summary.getReviewCount());
+      assertEquals(6, summary.getStarsSum());
+      assertEquals(2, summary.getMinStars());
+      assertEquals(4, summary.getMaxStars());
+    } finally {
+      menuItemReviewSummaryRepository.deleteById(13L);
+    }
+  }
+
+  @Test
+  public void a_failure_to_insert_the_first_summary_row_is_not_taken_for_a_concurrent_insert() throws Exception {
+    SQLException failure = new SQLException("disk full", "53100");
+    Connection connection = mock(Connection.class);
+    Savepoint savepoint = mock(Savepoint.class);
+    when(connection.setSavepoint()).thenReturn(savepoint);
+    when(connection.prepareStatement(any())).thenThrow(failure);
+    // as JdbcTemplate runs a callback, on a connection that fails as a database might
+    doAnswer(invocation -> {
+      try {
+        return invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection);
+      } catch (SQLException e) {
+        throw jdbcTemplate.getExceptionTranslator().translate("ConnectionCallback", null, e);
+      }
+    }).when(jdbcTemplate).execute(any(ConnectionCallback.class));
+
+    assertEquals(failure, assertThrows(DataAccessException.class,
+        () -> menuItemReviewSummaryService.reviewAdded(review(14L, 3))).getCause());
+    verify(connection).rollback(savepoint);
+  }
+
+  @Test
+  public void changing_a_review_without_changing_item_or_stars_is_a_no_op() {
+    menuItemReviewSummaryService.reviewAdded(review(7L, 1));
+
+    menuItemReviewSummaryService.reviewChanged(7L, 1, review(7L, 1));
+
+    MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(7L);
+    assertEquals(1, summary.getReviewCount());
+    assertEquals(1, summary.getStars1());
+  }
+
+  @Test
+  public void every_bucket_is_counted() {
+    for (int stars = 0; stars <= MenuItemReviewSummary.MAX_STARS; stars++) {
+      menuItemReviewSummaryService.reviewAdded(review(8L, stars));
+    }
+
+    MenuItemReviewSummary summary = menuItemReviewSummaryService.getSummary(8L);
+    assertEquals(6, summary.getReviewCount());
+    assertEquals(15, summary.getStarsSum());
+    assertEquals(1, summary.getStars0());
+    assertEquals(1, summary.getStars1());
+    assertEquals(1, summary.getStars2());
+    assertEquals(1, summary.getStars3());
+    assertEquals(1, summary.getStars4());
+    assertEquals(1, summary.getStars5());
+    assertEquals(0, summary.getMinStars());
+    assertEquals(5, summary.getMaxStars());
+  }
+
+  @Test
+  public void out_of_range_stars_are_rejected() {
+    assertThrows(IllegalArgumentException.class, () -> menuItemReviewSummaryService.reviewAdded(review(9L, 6)));
+    assertThrows(IllegalArgumentException.class, () -> menuItemReviewSummaryService.reviewAdded(review(9L, -1)));
+    assertFalse(menuItemReviewSummaryRepository.existsById(9L));
+  }
+
+  @Test
+  public void summary_rows_are_one_per_item_in_the_table() {
+    menuItemReviewSummaryService.reviewAdded(review(10L, 3));
+    menuItemReviewSummaryService.reviewAdded(review(10L, 4));
+
+    Integer rows = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM menuitemreviewsummary WHERE item_id = 10", Integer.class);
+    assertEquals(1, rows);
+  }
+}
@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * Exports a million rows and checks they all arrive.
+ *
+ * Tests tagged large-export run in their own surefire execution with a small heap
+ * (see pom.xml), so this fails with an OutOfMemoryError if the export ever starts
+ * holding rows in memory; the JSON written is larger than the heap.  The database is
+ * file-backed with a small page cache so that the table itself does not have to fit
+ * in the heap.
+ */
+@Tag("large-export")
+@JdbcTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:file:./target/ndjson-export-large;CACHE_SIZE=8192")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ NdjsonExportService.class, JacksonAutoConfiguration.class })
+public class NdjsonExportServiceLargeTests {
+
+  private static final int ROWS = 1_000_000;
+
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void export_of_a_million_rows_runs_in_a_small_heap() throws Exception {
+    // arrange
+    jdbcTemplate.execute("TRUNCATE TABLE articles");
+    jdbcTemplate.update("""
+        INSERT INTO articles (title, url, explanation, email, date_added)
+        SELECT 'Article ' || x, 'https://example.org/' || x, 'Explanation of article ' || x,
+               'author' || x || '@example.org', TIMESTAMP '2024-10-23 00:00:00'
+        FROM SYSTEM_RANGE(1, ?)
+        """, ROWS);
+    LineCountingOutputStream out = new LineCountingOutputStream();
+
+    // act
+    long count = ndjsonExportService.export(Articles.class, out);
+
+    // assert
+    assertEquals(ROWS, count);
+    assertEquals(ROWS, out.lines);
+
+    jdbcTemplate.execute("TRUNCATE TABLE articles");
+  }
+
+  private static class LineCountingOutputStream extends OutputStream {
+    long lines = 0;
+
+    @Override
+    public void write(int b) {
+      if (b == '\n') {
+        lines++;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      for (int i = off; i < off + len; i++) {
+        write(b[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import edu.ucsb.cs156.example.entities.UCSBRecommendationRequest;
+
+@JdbcTest
+@ActiveProfiles("test")
+@Import({ NdjsonExportService.class, JacksonAutoConfiguration.class })
+public class NdjsonExportServiceTests {
+
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Test
+  public void export_writes_one_line_per_row_in_api_json_format() throws Exception {
+    // arrange
+    Articles first = Articles.builder().id(1L).title("First Article").url("https://first.com")
+        .explanation("This is the first article.").email("first@example.com")
+        .dateAdded(LocalDateTime.parse("2024-10-23T00:00:00")).build();
+    Articles second = Articles.builder().id(2L).title("Second Article").url("https://second.com")
+        .explanation("This is the second article.").email("second@example.com")
+        .dateAdded(LocalDateTime.parse("2024-10-24T00:00:00")).build();
+    for (Articles a : new Articles[] { second, first }) {
+      jdbcTemplate.update(
+          "INSERT INTO articles (id, title, url, explanation, email, date_added) VALUES (?, ?, ?, ?, ?, ?)",
+          a.getId(), a.getTitle(), a.getUrl(), a.getExplanation(), a.getEmail(), a.getDateAdded());
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    long count = ndjsonExportService.export(Articles.class, out);
+
+    // assert
+    assertEquals(2L, count);
+    String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void export_maps_boolean_columns() throws Exception {
+    // arrange
+    UCSBRecommendationRequest request = UCSBRecommendationRequest.builder().id(5L)
+        .requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("BS/MS program")
+        .dateRequested(LocalDateTime.parse("2022-04-20T00:00:00"))
+        .dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00")).done(true).build();
+    jdbcTemplate.update(
+        "INSERT INTO ucsbrecommendationrequests (id, requester_email, professor_email, explanation, date_requested, date_needed, done) VALUES (?, ?, ?, ?, ?, ?, ?)",
+        request.getId(), request.getRequesterEmail(), request.getProfessorEmail(), request.getExplanation(),
+        request.getDateRequested(), request.getDateNeeded(), request.getDone());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    ndjsonExportService.export(UCSBRecommendationRequest.class, out);
+
+    // assert
+    assertEquals(mapper.writeValueAsString(request) + "\n", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void export_of_empty_table_writes_nothing() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long count = ndjsonExportService.export(Articles.class, out);
+
+    assertEquals(0L, count);
+    assertEquals("", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void export_rethrows_io_errors_from_the_output_stream() throws Exception {
+    // arrange
+    jdbcTemplate.update("INSERT INTO articles (id, title) VALUES (1, 'First Article')");
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("client went away");
+      }
+    };
+
+    // act and assert
+    IOException e = assertThrows(IOException.class, () -> ndjsonExportService.export(Articles.class, broken));
+    assertEquals("client went away", e.getMessage());
+  }
+}
@@ -0,0 +1,157 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+// Not transactional, so that each update commits and bumps the table version as it would in the app
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ OptimisticUpdateService.class, TableVersionService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OptimisticUpdateServiceTests {
+
+  @Autowired
+  OptimisticUpdateService optimisticUpdateService;
+
+  @Autowired
+  TableVersionService tableVersionService;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @AfterEach
+  public void deleteAll() {
+    ucsbDateRepository.deleteAll();
+    ucsbOrganizationRepository.deleteAll();
+  }
+
+  private UCSBDate saveDate() {
+    return ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20222").name("firstDayOfClasses")
+        .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00")).build());
+  }
+
+  @Test
+  public void update_copies_the_attributes_and_bumps_the_version() {
+    UCSBDate saved = saveDate();
+    long tableVersion = tableVersionService.getVersion(UCSBDate.class);
+    UCSBDate incoming = UCSBDate.builder().quarterYYYYQ("20223").name("lastDayOfClasses").build();
+
+    UCSBDate updated = optimisticUpdateService.update(saved.getId(), 0, incoming,
+        "quarterYYYYQ", "name", "localDateTime");
+
+    assertNotSame(incoming, updated);
+    assertEquals(saved.getId(), updated.getId());
+    assertEquals(1, updated.getVersion());
+    UCSBDate stored = ucsbDateRepository.findById(saved.getId()).get();
+    assertEquals("20223", stored.getQuarterYYYYQ());
+    assertEquals("lastDayOfClasses", stored.getName());
+    assertNull(stored.getLocalDateTime());
+    assertEquals(1, stored.getVersion());
+    assertEquals(tableVersion + 1, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void update_only_copies_the_given_attributes() {
+    UCSBDate saved = saveDate();
+    UCSBDate incoming = UCSBDate.builder().quarterYYYYQ("20223").name("lastDayOfClasses").build();
+
+    UCSBDate updated = optimisticUpdateService.update(saved.getId(), 0, incoming, "name");
+
+    UCSBDate stored = ucsbDateRepository.findById(saved.getId()).get();
+    assertEquals("20222", stored.getQuarterYYYYQ());
+    assertEquals("lastDayOfClasses", stored.getName());
+    assertEquals(saved.getLocalDateTime(), stored.getLocalDateTime());
+    // the result is the stored row, not the request
+    assertEquals(stored, updated);
+  }
+
+  @Test
+  public void update_returns_the_stored_row_when_it_was_read_earlier_in_the_transaction() {
+    UCSBDate saved = saveDate();
+
+    UCSBDate updated = new TransactionTemplate(transactionManager).execute(status -> {
+      ucsbDateRepository.findById(saved.getId()).get();
+      return optimisticUpdateService.update(saved.getId(), 0, UCSBDate.builder().name("lastDayOfClasses").build(),
+          "name");
+    });
+
+    assertEquals("lastDayOfClasses", updated.getName());
+    assertEquals("20222", updated.getQuarterYYYYQ());
+    assertEquals(1, updated.getVersion());
+  }
+
+  @Test
+  public void update_of_a_stale_version_changes_nothing() {
+    UCSBDate saved = saveDate();
+    optimisticUpdateService.update(saved.getId(), 0, UCSBDate.builder().name("first").build(), "name");
+    long tableVersion = tableVersionService.getVersion(UCSBDate.class);
+
+    PreconditionFailedException e = assertThrows(PreconditionFailedException.class,
+        () -> optimisticUpdateService.update(saved.getId(), 0, UCSBDate.builder().name("second").build(), "name"));
+
+    assertEquals("UCSBDate with id %d has been modified since version 0".formatted(saved.getId()), e.getMessage());
+    UCSBDate stored = ucsbDateRepository.findById(saved.getId()).get();
+    assertEquals("first", stored.getName());
+    assertEquals(1, stored.getVersion());
+    assertEquals(tableVersion, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void update_of_a_missing_entity_throws_entity_not_found() {
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class,
+        () -> optimisticUpdateService.update(7L, 0, UCSBDate.builder().name("second").build(), "name"));
+
+    assertEquals("UCSBDate with id 7 not found", e.getMessage());
+  }
+
+  @Test
+  public void update_works_for_entities_with_assigned_ids() {
+    ucsbOrganizationRepository.save(UCSBOrganization.builder()
+        .orgCode("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO").build());
+    UCSBOrganization incoming = UCSBOrganization.builder()
+        .orgTranslationShort("ZPR").orgTranslation("ZETA PHI RHO").inactive(true).build();
+
+    UCSBOrganization updated = optimisticUpdateService.update("ZPR", 0, incoming,
+        "orgTranslationShort", "orgTranslation", "inactive");
+
+    assertEquals("ZPR", updated.getOrgCode());
+    assertEquals(1, updated.getVersion());
+    UCSBOrganization stored = ucsbOrganizationRepository.findById("ZPR").get();
+    assertEquals("ZPR", stored.getOrgTranslationShort());
+    assertEquals(true, stored.getInactive());
+  }
+}
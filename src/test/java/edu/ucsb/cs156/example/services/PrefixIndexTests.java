@@ -0,0 +1,157 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PrefixIndexTests {
+
+  private static List<PrefixIndex.Key> keys(String first, String... others) {
+    List<PrefixIndex.Key> keys = new ArrayList<>();
+    keys.add(new PrefixIndex.Key(first, 0));
+    for (String other : others) {
+      keys.add(new PrefixIndex.Key(other, 1));
+    }
+    return keys;
+  }
+
+  private static PrefixIndex<String> index() {
+    PrefixIndex<String> index = new PrefixIndex<>(3, String::compareTo);
+    index.put("a", "ASUCSB", keys("ASUCSB", "Associated Students"));
+    index.put("k", "KRC", keys("KRC", "Korean Radio Club"));
+    index.put("s", "SKY", keys("SKY", "Skydiving Club"));
+    return index;
+  }
+
+  @Test
+  public void keys_are_normalized_to_lower_case_with_single_spaces() {
+    assertEquals("associated students", PrefixIndex.normalize("  Associated \t Students "));
+    assertEquals("", PrefixIndex.normalize("   "));
+  }
+
+  @Test
+  public void prefixes_match_ignoring_case_and_extra_spaces() {
+    PrefixIndex<String> index = index();
+
+    assertEquals(List.of("ASUCSB"), index.suggest("associated  STU", 10));
+    assertEquals(List.of("ASUCSB"), index.suggest("  associated ", 10));
+    assertEquals(List.of("KRC"), index.suggest("k", 10));
+    assertEquals(List.of(), index.suggest("kx", 10));
+    assertEquals(List.of(), index.suggest("xyz", 10));
+  }
+
+  @Test
+  public void better_ranked_keys_come_first_then_items_in_order() {
+    PrefixIndex<String> index = new PrefixIndex<>(10, String::compareTo);
+    index.put("1", "Zeta", keys("CLUB", "Zeta"));
+    index.put("2", "Beta", keys("BETA", "Club Beta"));
+    index.put("3", "Alpha", keys("ALPHA", "Club Alpha"));
+
+    // Zeta's code starts with "club", the others only their names
+    assertEquals(List.of("Zeta", "Alpha", "Beta"), index.suggest("club", 10));
+  }
+
+  @Test
+  public void an_item_is_suggested_once_at_its_best_rank() {
+    PrefixIndex<String> index = new PrefixIndex<>(10, String::compareTo);
+    index.put("1", "Beta", keys("SKY", "Sky", "Skydiving"));
+    index.put("2", "Alpha", keys("SKI", "Ski"));
+
+    assertEquals(List.of("Alpha", "Beta"), index.suggest("sk", 10));
+  }
+
+  @Test
+  public void suggestions_are_limited() {
+    PrefixIndex<String> index = index();
+
+    assertEquals(List.of("ASUCSB", "KRC", "SKY"), index.suggest("", 10));
+    assertEquals(List.of("ASUCSB", "KRC"), index.suggest("", 2));
+    assertEquals(List.of(), index.suggest("", 0));
+
+    index.put("z", "ZPR", keys("ZPR"));
+    assertEquals(List.of("ASUCSB", "KRC", "SKY"), index.suggest("", 10));
+  }
+
+  @Test
+  public void queries_return_the_lists_built_by_writes() {
+    PrefixIndex<String> index = index();
+
+    assertSame(index.suggest("ko", 10), index.suggest("KO", 10));
+  }
+
+  @Test
+  public void putting_an_item_again_replaces_it() {
+    PrefixIndex<String> index = index();
+
+    index.put("k", "KRC", keys("KRC", "Kayak Racing Club"));
+
+    assertEquals(3, index.size());
+    assertEquals(List.of(), index.suggest("korean", 10));
+    assertEquals(List.of("KRC"), index.suggest("kayak", 10));
+    assertEquals(List.of("KRC"), index.suggest("k", 10));
+  }
+
+  @Test
+  public void blank_keys_are_left_out() {
+    PrefixIndex<String> index = new PrefixIndex<>(3, String::compareTo);
+
+    index.put("x", "X", List.of(new PrefixIndex.Key(" ", 0)));
+
+    assertEquals(1, index.size());
+    assertEquals(List.of(), index.suggest("", 10));
+  }
+
+  @Test
+  public void removed_items_are_not_suggested() {
+    PrefixIndex<String> index = index();
+
+    assertTrue(index.remove("s"));
+    assertFalse(index.remove("s"));
+
+    assertEquals(2, index.size());
+    assertEquals(List.of(), index.suggest("sky", 10));
+    assertEquals(List.of("KRC"), index.suggest("k", 10));
+    assertEquals(List.of("ASUCSB", "KRC"), index.suggest("", 10));
+  }
+
+  @Test
+  public void suggestions_stay_correct_through_writes() {
+    String[] words = { "alpha", "alps", "beta", "bet", "al", "b" };
+    PrefixIndex<String> index = new PrefixIndex<>(4, String::compareTo);
+    List<List<String>> items = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      items.add(null);
+    }
+    Random random = new Random(156);
+
+    for (int step = 0; step < 2000; step++) {
+      int id = random.nextInt(items.size());
+      String name = "%02d".formatted(id);
+      if (random.nextInt(3) == 0) {
+        index.remove(name);
+        items.set(id, null);
+      } else {
+        List<String> itemKeys = List.of(words[random.nextInt(words.length)], words[random.nextInt(words.length)]);
+        index.put(name, name, itemKeys.stream().map(k -> new PrefixIndex.Key(k, 0)).toList());
+        items.set(id, itemKeys);
+      }
+    }
+
+    for (String prefix : List.of("", "a", "al", "alp", "b", "be", "bet", "beta", "c")) {
+      List<String> expected = new ArrayList<>();
+      for (int id = 0; id < items.size(); id++) {
+        if (items.get(id) != null && items.get(id).stream().anyMatch(k -> k.startsWith(prefix))) {
+          expected.add("%02d".formatted(id));
+        }
+      }
+      assertEquals(expected.subList(0, Math.min(4, expected.size())), index.suggest(prefix, 10), prefix);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.services.TableVersionService.RowChange;
+
+public class TableSnapshotTests {
+
+  private final TableVersionService tableVersionService = new TableVersionService();
+
+  private final AtomicInteger builds = new AtomicInteger();
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  private TableSnapshot<Integer> snapshot(long ttlSeconds) {
+    return new TableSnapshot<>(tableVersionService, UCSBDate.class, ttlSeconds, builds::incrementAndGet,
+        null, nanoTime::get);
+  }
+
+  @Test
+  public void the_value_is_built_once_while_the_table_is_unchanged() {
+    TableSnapshot<Integer> snapshot = snapshot(0);
+
+    assertEquals(1, snapshot.get());
+    nanoTime.addAndGet(TimeUnit.DAYS.toNanos(365));
+    assertEquals(1, snapshot.get());
+    assertEquals(1, builds.get());
+  }
+
+  @Test
+  public void the_value_is_built_again_after_the_table_changes() {
+    TableSnapshot<Integer> snapshot = snapshot(0);
+    snapshot.get();
+
+    tableVersionService.changed(UCSBDate.class);
+
+    assertEquals(2, snapshot.get());
+    assertEquals(2, snapshot.get());
+  }
+
+  @Test
+  public void the_value_is_built_again_once_it_is_older_than_its_time_to_live() {
+    TableSnapshot<Integer> snapshot = snapshot(60);
+    snapshot.get();
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(59));
+    assertEquals(1, snapshot.get());
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(2, snapshot.get());
+  }
+
+  // Set by a test to see when a build starts, and to hold it until the test lets it finish
+  private volatile CountDownLatch started = new CountDownLatch(1);
+
+  private volatile CountDownLatch finish = new CountDownLatch(0);
+
+  private TableSnapshot<Integer> blockedSnapshot() {
+    return new TableSnapshot<>(tableVersionService, UCSBDate.class, 0, () -> {
+      int build = builds.incrementAndGet();
+      started.countDown();
+      try {
+        finish.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return build;
+    });
+  }
+
+  @Test
+  public void callers_that_find_no_value_wait_for_one_build() throws Exception {
+    finish = new CountDownLatch(1);
+    TableSnapshot<Integer> snapshot = blockedSnapshot();
+    CompletableFuture<Integer> first = CompletableFuture.supplyAsync(snapshot::get);
+    started.await();
+
+    CompletableFuture<Integer> second = new CompletableFuture<>();
+    Thread waiting = Thread.ofVirtual().start(() -> second.complete(snapshot.get()));
+    while (waiting.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+    finish.countDown();
+
+    assertEquals(1, first.get());
+    assertEquals(1, second.get());
+    assertEquals(1, builds.get());
+  }
+
+  @Test
+  public void callers_that_find_the_value_out_of_date_while_it_is_built_are_given_the_old_one() throws Exception {
+    TableSnapshot<Integer> snapshot = blockedSnapshot();
+    snapshot.get();
+    started = new CountDownLatch(1);
+    finish = new CountDownLatch(1);
+    tableVersionService.changed(UCSBDate.class);
+
+    CompletableFuture<Integer> building = CompletableFuture.supplyAsync(snapshot::get);
+    started.await();
+
+    assertEquals(1, snapshot.get());
+    finish.countDown();
+    assertEquals(2, building.get());
+    assertEquals(2, snapshot.get());
+  }
+
+  // A snapshot whose value lists the ids it was built from (its build number) and then
+  // those of the rows applied to it
+  private TableSnapshot<List<Object>> appliedSnapshot(long ttlSeconds) {
+    return new TableSnapshot<>(tableVersionService, UCSBDate.class, ttlSeconds, () -> {
+      List<Object> ids = new CopyOnWriteArrayList<>();
+      ids.add(builds.incrementAndGet());
+      started.countDown();
+      try {
+        finish.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return ids;
+    }, (ids, row) -> ids.add(row.row() == null ? "-" + row.id() : row.id()), nanoTime::get);
+  }
+
+  @Test
+  public void rows_written_after_the_value_is_built_are_applied_to_it() {
+    TableSnapshot<List<Object>> snapshot = appliedSnapshot(0);
+    snapshot.get();
+
+    tableVersionService.written(UCSBDate.class, 7L, new UCSBDate());
+    tableVersionService.deleted(UCSBDate.class, List.of(8L, 9L));
+
+    assertEquals(List.of(1, 7L, "-8", "-9"), snapshot.get());
+    assertEquals(1, builds.get());
+  }
+
+  @Test
+  public void changes_before_the_value_is_first_built_are_not_applied() {
+    TableSnapshot<List<Object>> snapshot = appliedSnapshot(0);
+
+    tableVersionService.written(UCSBDate.class, 7L, new UCSBDate());
+
+    assertEquals(List.of(1), snapshot.get());
+  }
+
+  @Test
+  public void the_value_is_built_again_after_a_change_whose_rows_are_not_known() {
+    TableSnapshot<List<Object>> snapshot = appliedSnapshot(0);
+    snapshot.get();
+
+    tableVersionService.changed(UCSBDate.class);
+    tableVersionService.written(UCSBDate.class, 7L, new UCSBDate());
+
+    assertEquals(List.of(2), snapshot.get());
+  }
+
+  @Test
+  public void a_value_that_is_applied_to_is_still_built_again_once_it_is_older_than_its_time_to_live() {
+    TableSnapshot<List<Object>> snapshot = appliedSnapshot(60);
+    snapshot.get();
+    tableVersionService.written(UCSBDate.class, 7L, new UCSBDate());
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+    assertEquals(List.of(2), snapshot.get());
+  }
+
+  @Test
+  public void rows_written_while_the_value_is_built_are_applied_once_it_is_built() throws Exception {
+    finish = new CountDownLatch(1);
+    TableSnapshot<List<Object>> snapshot = appliedSnapshot(0);
+    CompletableFuture<List<Object>> building = CompletableFuture.supplyAsync(snapshot::get);
+    started.await();
+
+    tableVersionService.written(UCSBDate.class, 7L, new UCSBDate());
+    finish.countDown();
+
+    // the build read the version before the write, so it takes the write from the change
+    building.get();
+    assertEquals(List.of(1, 7L), snapshot.get());
+    assertEquals(1, builds.get());
+  }
+}
@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.TableVersionService.RowChange;
+
+public class TableVersionServiceTests {
+
+  TableVersionService tableVersionService = new TableVersionService();
+
+  @AfterEach
+  public void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void tables_start_at_version_zero() {
+    assertEquals(0, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void changes_outside_a_transaction_bump_the_version_straight_away() {
+    tableVersionService.changed(UCSBDate.class);
+    tableVersionService.changed(UCSBDate.class);
+
+    assertEquals(2, tableVersionService.getVersion(UCSBDate.class));
+    assertEquals(0, tableVersionService.getVersion(UCSBOrganization.class));
+  }
+
+  @Test
+  public void changes_in_a_transaction_bump_each_table_once_when_it_completes() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    tableVersionService.changed(UCSBDate.class);
+    tableVersionService.changed(UCSBDate.class);
+    tableVersionService.changed(UCSBOrganization.class);
+    assertEquals(0, tableVersionService.getVersion(UCSBDate.class));
+
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    assertEquals(1, tableVersionService.getVersion(UCSBDate.class));
+    assertEquals(1, tableVersionService.getVersion(UCSBOrganization.class));
+    assertEquals(null, TransactionSynchronizationManager.getResource(tableVersionService));
+  }
+
+  @Test
+  public void changes_in_a_transaction_that_rolls_back_bump_nothing() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    tableVersionService.changed(UCSBDate.class);
+
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    assertEquals(0, tableVersionService.getVersion(UCSBDate.class));
+    assertEquals(null, TransactionSynchronizationManager.getResource(tableVersionService));
+  }
+
+  private final List<String> changes = new ArrayList<>();
+
+  // Records the changes to the dates table, with the version the table had while each
+  // listener was told
+  private void listen() {
+    tableVersionService.addListener(UCSBDate.class, (version, rows) -> changes.add(
+        "%d at %d: %s".formatted(version, tableVersionService.getVersion(UCSBDate.class), rows)));
+  }
+
+  private void complete(int status) {
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCompletion(status);
+    }
+  }
+
+  @Test
+  public void listeners_are_told_about_each_change_with_its_rows_before_the_version_moves_on() {
+    listen();
+    UCSBDate date = new UCSBDate();
+
+    tableVersionService.written(UCSBDate.class, 1L, date);
+    tableVersionService.deleted(UCSBDate.class, List.of(2L, 3L));
+    tableVersionService.changed(UCSBDate.class);
+    tableVersionService.changed(UCSBOrganization.class);
+
+    assertEquals(List.of(
+        "1 at 0: " + List.of(new RowChange(1L, date)),
+        "2 at 1: " + List.of(new RowChange(2L, null), new RowChange(3L, null)),
+        "3 at 2: null"), changes);
+    assertEquals(3, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void listeners_are_told_about_the_rows_of_a_transaction_together_once_it_commits() {
+    listen();
+    UCSBDate date = new UCSBDate();
+    TransactionSynchronizationManager.initSynchronization();
+
+    tableVersionService.written(UCSBDate.class, 1L, date);
+    tableVersionService.deleted(UCSBDate.class, List.of(2L));
+    tableVersionService.changed(UCSBOrganization.class);
+    assertEquals(List.of(), changes);
+
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    assertEquals(List.of("1 at 0: " + List.of(new RowChange(1L, date), new RowChange(2L, null))), changes);
+  }
+
+  @Test
+  public void a_change_in_a_transaction_whose_rows_are_not_known_hides_the_rest() {
+    listen();
+    TransactionSynchronizationManager.initSynchronization();
+
+    tableVersionService.written(UCSBDate.class, 1L, new UCSBDate());
+    tableVersionService.changed(UCSBDate.class);
+    tableVersionService.deleted(UCSBDate.class, List.of(2L));
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    assertEquals(List.of("1 at 0: null"), changes);
+  }
+
+  @Test
+  public void listeners_are_not_told_about_a_transaction_that_rolls_back() {
+    listen();
+    TransactionSynchronizationManager.initSynchronization();
+
+    tableVersionService.written(UCSBDate.class, 1L, new UCSBDate());
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    assertEquals(List.of(), changes);
+  }
+
+  @Test
+  public void the_version_moves_on_even_if_a_listener_fails() {
+    tableVersionService.addListener(UCSBDate.class, (version, rows) -> {
+      throw new IllegalStateException("failed");
+    });
+
+    assertThrows(IllegalStateException.class, () -> tableVersionService.changed(UCSBDate.class));
+    assertEquals(1, tableVersionService.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void etag_is_quoted_and_changes_with_the_version() {
+    String before = tableVersionService.getETag(UCSBDate.class);
+    tableVersionService.changed(UCSBDate.class);
+    String after = tableVersionService.getETag(UCSBDate.class);
+
+    assertTrue(before.matches("\"UCSBDate-[0-9a-f]+-0-0\""), before);
+    assertTrue(after.matches("\"UCSBDate-[0-9a-f]+-1-0\""), after);
+  }
+
+  @Test
+  public void etag_changes_once_its_time_to_live_has_passed() {
+    AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toMillis(600));
+    tableVersionService.eTagTtlSeconds = 60;
+    tableVersionService.currentTimeMillis = now::get;
+
+    String first = tableVersionService.getETag(UCSBDate.class);
+    now.addAndGet(TimeUnit.SECONDS.toMillis(59));
+    String second = tableVersionService.getETag(UCSBDate.class);
+    now.addAndGet(TimeUnit.SECONDS.toMillis(1));
+    String third = tableVersionService.getETag(UCSBDate.class);
+
+    assertTrue(first.endsWith("-0-10\""), first);
+    assertEquals(first, second);
+    assertTrue(third.endsWith("-0-11\""), third);
+  }
+
+  @Test
+  public void etags_differ_between_restarts() {
+    assertNotEquals(new TableVersionService().getETag(UCSBDate.class), tableVersionService.getETag(UCSBDate.class));
+  }
+}
@@ -0,0 +1,206 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TextIndexTests {
+
+  private static TextIndex index() {
+    TextIndex index = new TextIndex(3, 1);
+    index.put(1, "Spring Boot testing", "How to test a Spring Boot controller");
+    index.put(2, "React hooks", "Using useState and useEffect in React");
+    index.put(3, "Testing React", "Jest and the testing library");
+    return index;
+  }
+
+  @Test
+  public void text_is_split_into_lower_case_terms_at_anything_but_letters_and_digits() {
+    assertEquals(List.of("https", "ucsb", "edu", "cs156", "déjà", "vu"),
+        TextIndex.terms("https://UCSB.edu/CS156 -- Déjà vu!"));
+    assertEquals(List.of(), TextIndex.terms(null));
+    assertEquals(List.of(), TextIndex.terms("  ...  "));
+  }
+
+  @Test
+  public void blank_queries_match_nothing() {
+    assertEquals(new TextIndex.Hits(List.of(), 0), index().search(" ? ", 0, 10));
+  }
+
+  @Test
+  public void every_query_term_must_match() {
+    TextIndex index = index();
+
+    assertEquals(List.of(2L, 3L), index.search("react", 0, 10).ids());
+    assertEquals(List.of(3L), index.search("react testing", 0, 10).ids());
+    assertEquals(new TextIndex.Hits(List.of(), 0), index.search("react boot", 0, 10));
+    assertEquals(new TextIndex.Hits(List.of(), 0), index.search("react boot testing", 0, 10));
+    assertEquals(new TextIndex.Hits(List.of(), 0), index.search("angular", 0, 10));
+  }
+
+  @Test
+  public void query_terms_match_as_prefixes_but_rank_below_whole_terms() {
+    TextIndex index = new TextIndex(1);
+    index.put(1, "testing");
+    index.put(2, "test");
+
+    assertEquals(List.of(1L, 2L), index.search("tes", 0, 10).ids());
+    assertEquals(List.of(2L, 1L), index.search("test", 0, 10).ids());
+  }
+
+  @Test
+  public void prefixes_are_expanded_to_a_bounded_number_of_terms() {
+    TextIndex index = new TextIndex(1);
+    for (int i = 0; i < TextIndex.MAX_PREFIX_EXPANSIONS + 10; i++) {
+      index.put(i, "term%03d".formatted(i));
+    }
+
+    assertEquals(TextIndex.MAX_PREFIX_EXPANSIONS, index.search("term", 0, 1000).total());
+  }
+
+  @Test
+  public void prefixes_of_a_few_or_of_many_documents_find_each_document_once() {
+    TextIndex index = new TextIndex(1);
+    for (int i = 0; i < 100; i++) {
+      index.put(i, (i % 2 == 0) ? "filler fillet" : "filler");
+    }
+    index.put(1000, "term1 term2");
+    index.put(1001, "term2");
+
+    // term1 is rarer than term2, so 1000 ranks first; each document is counted once
+    assertEquals(new TextIndex.Hits(List.of(1000L, 1001L), 2), index.search("term", 0, 10));
+    // 0, 2, ... also match fillet, which is rarer than filler
+    TextIndex.Hits fil = index.search("fil", 0, 3);
+    assertEquals(new TextIndex.Hits(List.of(0L, 2L, 4L), 100), fil);
+    assertEquals(new TextIndex.Hits(List.of(), 0), index.search("fil term1", 0, 10));
+    assertEquals(new TextIndex.Hits(List.of(0L, 2L, 4L), 100), index.search("filler fil", 0, 3));
+    assertEquals(new TextIndex.Hits(List.of(1000L), 1), index.search("term1 term", 0, 10));
+  }
+
+  @Test
+  public void later_terms_are_skipped_through_to_each_candidate() {
+    TextIndex index = new TextIndex(1);
+    index.put(1, "a b");
+    index.put(2, "a");
+    index.put(3, "a");
+    index.put(4, "a");
+    index.put(5, "b");
+    index.put(6, "b");
+
+    assertEquals(List.of(1L), index.search("a b", 0, 10).ids());
+  }
+
+  @Test
+  public void matches_in_heavier_fields_and_rarer_terms_rank_higher() {
+    TextIndex index = index();
+
+    // "testing" is in the title of 1 and 3, and also in the explanation of 3
+    assertEquals(List.of(3L, 1L), index.search("testing", 0, 10).ids());
+    assertEquals(List.of(1L), index.search("spring testing", 0, 10).ids());
+    assertEquals(List.of(2L, 3L), index.search("react", 0, 10).ids());
+  }
+
+  @Test
+  public void equal_scores_are_ranked_by_id() {
+    TextIndex index = new TextIndex(1);
+    index.put(9, "same");
+    index.put(4, "same");
+    index.put(6, "same");
+
+    assertEquals(List.of(4L, 6L, 9L), index.search("same", 0, 10).ids());
+  }
+
+  @Test
+  public void results_are_paginated_with_the_total_count() {
+    TextIndex index = new TextIndex(1);
+    for (int i = 1; i <= 7; i++) {
+      index.put(i, "page");
+    }
+
+    assertEquals(new TextIndex.Hits(List.of(1L, 2L, 3L), 7), index.search("page", 0, 3));
+    assertEquals(new TextIndex.Hits(List.of(4L, 5L, 6L), 7), index.search("page", 3, 3));
+    assertEquals(new TextIndex.Hits(List.of(7L), 7), index.search("page", 6, 3));
+    assertEquals(new TextIndex.Hits(List.of(), 7), index.search("page", 9, 3));
+    assertEquals(new TextIndex.Hits(List.of(), 7), index.search("page", Integer.MAX_VALUE, 3));
+    assertEquals(new TextIndex.Hits(List.of(), 7), index.search("page", 0, 0));
+  }
+
+  @Test
+  public void putting_a_document_again_replaces_it() {
+    TextIndex index = index();
+
+    index.put(2, "Vue components", null);
+
+    assertEquals(3, index.size());
+    assertEquals(List.of(3L), index.search("react", 0, 10).ids());
+    assertEquals(List.of(2L), index.search("vue", 0, 10).ids());
+  }
+
+  @Test
+  public void removed_documents_are_not_found() {
+    TextIndex index = index();
+
+    assertTrue(index.remove(3));
+    assertFalse(index.remove(3));
+
+    assertEquals(2, index.size());
+    assertEquals(List.of(2L), index.search("react", 0, 10).ids());
+    assertEquals(List.of(1L), index.search("testing", 0, 10).ids());
+  }
+
+  @Test
+  public void removing_every_document_empties_the_index() {
+    TextIndex index = new TextIndex(1);
+    index.put(1, "alpha");
+    index.put(2, "beta");
+
+    index.remove(1);
+    index.remove(2);
+
+    assertEquals(0, index.size());
+    assertEquals(new TextIndex.Hits(List.of(), 0), index.search("alpha", 0, 10));
+  }
+
+  @Test
+  public void the_index_stays_correct_through_compactions() {
+    TextIndex index = new TextIndex(1, 1);
+    Random random = new Random(156);
+    String[] words = { "alpha", "beta", "gamma", "delta", "epsilon" };
+    List<List<String>> docs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      docs.add(null);
+    }
+
+    for (int step = 0; step < 2000; step++) {
+      int id = random.nextInt(docs.size());
+      if (random.nextInt(3) == 0) {
+        index.remove(id);
+        docs.set(id, null);
+      } else {
+        String title = words[random.nextInt(words.length)];
+        String text = words[random.nextInt(words.length)];
+        index.put(id, title, text);
+        docs.set(id, List.of(title, text));
+      }
+    }
+
+    for (String word : words) {
+      List<Long> expected = new ArrayList<>();
+      for (int id = 0; id < docs.size(); id++) {
+        if (docs.get(id) != null && docs.get(id).contains(word)) {
+          expected.add((long) id);
+        }
+      }
+      List<Long> found = new ArrayList<>(index.search(word, 0, 100).ids());
+      found.sort(null);
+      assertEquals(expected, found, word);
+    }
+    assertEquals(docs.stream().filter(d -> d != null).count(), index.size());
+  }
+}
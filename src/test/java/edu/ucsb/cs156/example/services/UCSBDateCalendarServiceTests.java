@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ UCSBDateCalendarService.class, TableVersionService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UCSBDateCalendarServiceTests {
+
+  @Autowired
+  UCSBDateCalendarService ucsbDateCalendarService;
+
+  @SpyBean
+  UCSBDateRepository ucsbDateRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Autowired
+  TableVersionService tableVersionService;
+
+  @AfterEach
+  public void deleteAll() {
+    ucsbDateRepository.deleteAll();
+    // so that each test starts with an index that has not been built
+    tableVersionService.changed(UCSBDate.class);
+  }
+
+  private UCSBDate date(String quarterYYYYQ, String name, String localDateTime) {
+    return ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ(quarterYYYYQ).name(name)
+        .localDateTime(LocalDateTime.parse(localDateTime)).build());
+  }
+
+  @Test
+  public void the_index_is_built_from_the_table_once_and_is_in_time_order() {
+    UCSBDate finals = date("20222", "finals", "2022-06-06T08:00:00");
+    UCSBDate first = date("20222", "firstDayOfClasses", "2022-03-28T08:00:00");
+    UCSBDate alsoFirst = date("20222", "instructionBegins", "2022-03-28T08:00:00");
+    UCSBDate fall = date("20224", "firstDayOfClasses", "2022-09-22T08:00:00");
+
+    assertEquals(List.of(first, alsoFirst, finals, fall),
+        ucsbDateCalendarService.upcoming(LocalDateTime.parse("2022-01-01T00:00:00"), 10));
+    assertEquals(List.of(first, alsoFirst, finals), ucsbDateCalendarService.quarter("20222"));
+    assertEquals(List.of(fall), ucsbDateCalendarService.quarter("20224"));
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void upcoming_dates_are_strictly_after_the_time_and_limited() {
+    date("20222", "firstDayOfClasses", "2022-03-28T08:00:00");
+    UCSBDate finals = date("20222", "finals", "2022-06-06T08:00:00");
+    UCSBDate fall = date("20224", "firstDayOfClasses", "2022-09-22T08:00:00");
+
+    assertEquals(List.of(finals), ucsbDateCalendarService.upcoming(LocalDateTime.parse("2022-03-28T08:00:00"), 1));
+    assertEquals(List.of(finals, fall), ucsbDateCalendarService.upcoming(LocalDateTime.parse("2022-03-28T08:00:00"), 5));
+    assertEquals(List.of(), ucsbDateCalendarService.upcoming(LocalDateTime.parse("2022-09-22T08:00:00"), 5));
+  }
+
+  @Test
+  public void a_range_includes_its_start_and_excludes_its_end() {
+    UCSBDate first = date("20222", "firstDayOfClasses", "2022-03-28T08:00:00");
+    UCSBDate alsoFirst = date("20222", "instructionBegins", "2022-03-28T08:00:00");
+    date("20222", "finals", "2022-06-06T08:00:00");
+
+    assertEquals(List.of(first, alsoFirst), ucsbDateCalendarService.range(
+        LocalDateTime.parse("2022-03-28T08:00:00"), LocalDateTime.parse("2022-06-06T08:00:00"), 5));
+    assertEquals(List.of(first), ucsbDateCalendarService.range(
+        LocalDateTime.parse("2022-03-28T08:00:00"), LocalDateTime.parse("2022-06-06T08:00:00"), 1));
+    assertEquals(List.of(), ucsbDateCalendarService.range(
+        LocalDateTime.parse("2022-03-28T08:00:00"), LocalDateTime.parse("2022-03-28T08:00:00"), 5));
+    assertEquals(List.of(), ucsbDateCalendarService.quarter("20231"));
+  }
+
+  @Test
+  public void dates_written_after_the_index_is_built_are_applied_to_it_without_building_it_again() {
+    UCSBDate first = date("20222", "firstDayOfClasses", "2022-03-28T08:00:00");
+    UCSBDate finals = date("20222", "finals", "2022-06-06T08:00:00");
+    LocalDateTime start = LocalDateTime.parse("2022-01-01T00:00:00");
+    assertEquals(List.of(first, finals), ucsbDateCalendarService.upcoming(start, 10));
+
+    // moved to another time and quarter
+    first.setQuarterYYYYQ("20223");
+    first.setLocalDateTime(LocalDateTime.parse("2022-07-01T08:00:00"));
+    first = ucsbDateRepository.save(first);
+    assertEquals(List.of(finals, first), ucsbDateCalendarService.upcoming(start, 10));
+    assertEquals(List.of(finals), ucsbDateCalendarService.quarter("20222"));
+    assertEquals(List.of(first), ucsbDateCalendarService.quarter("20223"));
+
+    // without a quarter, a date is only on the timeline; without a time, it is not indexed
+    UCSBDate noQuarter = ucsbDateRepository.save(UCSBDate.builder()
+        .localDateTime(LocalDateTime.parse("2022-01-02T00:00:00")).build());
+    finals.setLocalDateTime(null);
+    finals = ucsbDateRepository.save(finals);
+    assertEquals(List.of(noQuarter, first), ucsbDateCalendarService.upcoming(start, 10));
+    assertEquals(List.of(), ucsbDateCalendarService.quarter("20222"));
+
+    ucsbDateRepository.deleteAll();
+    assertEquals(List.of(), ucsbDateCalendarService.upcoming(start, 10));
+    assertEquals(List.of(), ucsbDateCalendarService.quarter("20223"));
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void a_date_given_a_time_again_is_put_back_on_the_calendar() {
+    UCSBDate finals = date("20222", "finals", "2022-06-06T08:00:00");
+    LocalDateTime start = LocalDateTime.parse("2022-01-01T00:00:00");
+    ucsbDateCalendarService.upcoming(start, 10);
+
+    finals.setLocalDateTime(null);
+    finals = ucsbDateRepository.save(finals);
+    assertEquals(List.of(), ucsbDateCalendarService.upcoming(start, 10));
+
+    finals.setLocalDateTime(LocalDateTime.parse("2022-06-07T08:00:00"));
+    finals = ucsbDateRepository.save(finals);
+    assertEquals(List.of(finals), ucsbDateCalendarService.upcoming(start, 10));
+    assertEquals(List.of(finals), ucsbDateCalendarService.quarter("20222"));
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void the_index_is_built_again_after_a_write_whose_dates_are_not_known() {
+    UCSBDate first = date("20222", "firstDayOfClasses", "2022-03-28T08:00:00");
+    LocalDateTime start = LocalDateTime.parse("2022-01-01T00:00:00");
+    ucsbDateCalendarService.upcoming(start, 10);
+
+    UCSBDate finals = date("20222", "finals", "2022-06-06T08:00:00");
+    tableVersionService.changed(UCSBDate.class);
+
+    assertEquals(List.of(first, finals), ucsbDateCalendarService.upcoming(start, 10));
+    verify(ucsbDateRepository, times(2)).findAll();
+  }
+}
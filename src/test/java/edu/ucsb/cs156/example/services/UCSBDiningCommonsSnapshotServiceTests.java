@@ -0,0 +1,96 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.DiningCommonsDistance;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+// Not transactional, so that each save commits and bumps the table version as it would in the app
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ UCSBDiningCommonsSnapshotService.class, TableVersionService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UCSBDiningCommonsSnapshotServiceTests {
+
+  @Autowired
+  UCSBDiningCommonsSnapshotService ucsbDiningCommonsSnapshotService;
+
+  @SpyBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  UCSBDiningCommons carrillo = UCSBDiningCommons.builder().code("carrillo").name("Carrillo")
+      .hasDiningCam(true).latitude(34.409953).longitude(-119.85277).build();
+  UCSBDiningCommons dlg = UCSBDiningCommons.builder().code("de-la-guerra").name("De La Guerra")
+      .hasDiningCam(true).latitude(34.409811).longitude(-119.845026).build();
+  UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega")
+      .hasTakeOutMeal(true).latitude(34.410987).longitude(-119.84709).build();
+  UCSBDiningCommons munger = UCSBDiningCommons.builder().code("munger-hall").name("Munger Hall").build();
+  UCSBDiningCommons portola = UCSBDiningCommons.builder().code("portola").name("Portola").latitude(34.417723).build();
+
+  @AfterEach
+  public void deleteAll() {
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  @Test
+  public void snapshot_is_read_once_while_the_table_is_unchanged() {
+    ucsbDiningCommonsRepository.saveAll(List.of(carrillo, dlg));
+
+    assertEquals(List.of("carrillo", "de-la-guerra"),
+        ucsbDiningCommonsSnapshotService.getAll().stream().map(UCSBDiningCommons::getCode).toList());
+    assertEquals("De La Guerra", ucsbDiningCommonsSnapshotService.getByCode("de-la-guerra").get().getName());
+    assertTrue(ucsbDiningCommonsSnapshotService.getByCode("portola").isEmpty());
+    assertEquals(1, ucsbDiningCommonsSnapshotService.nearest(34.41, -119.85, 1).size());
+
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void snapshot_is_read_again_after_a_write() {
+    ucsbDiningCommonsRepository.save(carrillo);
+    assertEquals(1, ucsbDiningCommonsSnapshotService.getAll().size());
+
+    ucsbDiningCommonsRepository.save(dlg);
+
+    assertEquals(2, ucsbDiningCommonsSnapshotService.getAll().size());
+    assertEquals("De La Guerra", ucsbDiningCommonsSnapshotService.getByCode("de-la-guerra").get().getName());
+    verify(ucsbDiningCommonsRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void nearest_orders_by_distance_and_skips_commons_without_a_location() {
+    ucsbDiningCommonsRepository.saveAll(List.of(carrillo, dlg, ortega, munger, portola));
+
+    // a point just west of de la guerra
+    List<DiningCommonsDistance> nearest = ucsbDiningCommonsSnapshotService.nearest(34.4098, -119.8455, 10);
+
+    assertEquals(List.of("de-la-guerra", "ortega", "carrillo"),
+        nearest.stream().map(d -> d.getCommons().getCode()).toList());
+    assertTrue(nearest.get(0).getDistanceMeters() < 50, "distance was " + nearest.get(0).getDistanceMeters());
+    assertTrue(nearest.get(0).getDistanceMeters() < nearest.get(1).getDistanceMeters());
+    assertTrue(nearest.get(1).getDistanceMeters() < nearest.get(2).getDistanceMeters());
+    assertTrue(ucsbDiningCommonsSnapshotService.getByCode("munger-hall").isPresent());
+    assertTrue(ucsbDiningCommonsSnapshotService.getByCode("portola").isPresent());
+  }
+}
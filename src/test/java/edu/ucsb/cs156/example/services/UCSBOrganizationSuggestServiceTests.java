@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ UCSBOrganizationSuggestService.class, TableVersionService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "app.suggest.max-limit=2")
+public class UCSBOrganizationSuggestServiceTests {
+
+  @Autowired
+  UCSBOrganizationSuggestService ucsbOrganizationSuggestService;
+
+  @SpyBean
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Autowired
+  TableVersionService tableVersionService;
+
+  @AfterEach
+  public void deleteAll() {
+    ucsbOrganizationRepository.deleteAll();
+    // so that each test starts with an index that has not been built
+    tableVersionService.changed(UCSBOrganization.class);
+  }
+
+  private UCSBOrganization organization(String orgCode, String orgTranslationShort, String orgTranslation,
+      boolean inactive) {
+    return ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode(orgCode)
+        .orgTranslationShort(orgTranslationShort).orgTranslation(orgTranslation).inactive(inactive).build());
+  }
+
+  @Test
+  public void the_index_is_built_from_the_table_once_and_leaves_out_inactive_organizations() {
+    UCSBOrganization krc = organization("KRC", "KOREAN RADIO CL", "KOREAN RADIO CLUB", false);
+    organization("KOR", "KOREAN CLUB", "KOREAN CULTURE CLUB", true);
+
+    assertEquals(List.of(krc), ucsbOrganizationSuggestService.suggest("ko", 10));
+    assertEquals(List.of(krc), ucsbOrganizationSuggestService.suggest("radio", 10));
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void codes_rank_above_names_and_names_above_later_words() {
+    UCSBOrganization osli = organization("OSLI", "STUDENT LIFE", "OFFICE OF STUDENT LIFE", false);
+    UCSBOrganization asucsb = organization("ASUCSB", "A.S.", "ASSOCIATED STUDENTS", false);
+    UCSBOrganization stu = organization("STU", "STUDIO", "STUDIO ARTS", false);
+
+    assertEquals(List.of(stu, osli), ucsbOrganizationSuggestService.suggest("stu", 10));
+    assertEquals(List.of(asucsb, stu), ucsbOrganizationSuggestService.suggest("a", 10));
+    assertEquals(List.of(asucsb), ucsbOrganizationSuggestService.suggest("s.", 10));
+  }
+
+  @Test
+  public void the_limit_is_capped_by_the_configured_maximum() {
+    organization("A1", "A1", "A1", false);
+    organization("A2", "A2", "A2", false);
+    organization("A3", "A3", "A3", false);
+
+    assertEquals(2, ucsbOrganizationSuggestService.suggest("a", 10).size());
+    assertEquals(1, ucsbOrganizationSuggestService.suggest("a", 1).size());
+  }
+
+  @Test
+  public void organizations_written_after_the_index_is_built_are_applied_to_it_without_building_it_again() {
+    UCSBOrganization krc = organization("KRC", "KOREAN RADIO CL", "KOREAN RADIO CLUB", false);
+    UCSBOrganization sky = organization("SKY", "SKYDIVING CLUB", "SKYDIVING CLUB AT UCSB", false);
+    ucsbOrganizationSuggestService.suggest("", 10);
+
+    krc.setInactive(true);
+    krc = ucsbOrganizationRepository.save(krc);
+    UCSBOrganization zpr = organization("ZPR", "ZETA PHI RHO", "ZETA PHI RHO", false);
+    ucsbOrganizationRepository.delete(sky);
+
+    assertEquals(List.of(), ucsbOrganizationSuggestService.suggest("korean", 10));
+    assertEquals(List.of(zpr), ucsbOrganizationSuggestService.suggest("phi", 10));
+    assertEquals(List.of(), ucsbOrganizationSuggestService.suggest("club", 10));
+    assertEquals(List.of(zpr), ucsbOrganizationSuggestService.suggest("", 10));
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+
+    krc.setInactive(false);
+    krc = ucsbOrganizationRepository.save(krc);
+    zpr.setOrgTranslationShort("ZPR");
+    zpr = ucsbOrganizationRepository.save(zpr);
+
+    assertEquals(List.of(krc), ucsbOrganizationSuggestService.suggest("korean", 10));
+    assertEquals(List.of(zpr), ucsbOrganizationSuggestService.suggest("zpr", 10));
+    assertEquals("ZPR", ucsbOrganizationSuggestService.suggest("zpr", 10).get(0).getOrgTranslationShort());
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void the_index_is_built_again_after_a_write_whose_organizations_are_not_known() {
+    UCSBOrganization krc = organization("KRC", "KOREAN RADIO CL", "KOREAN RADIO CLUB", false);
+    ucsbOrganizationSuggestService.suggest("", 10);
+
+    UCSBOrganization sky = organization("SKY", "SKYDIVING CLUB", "SKYDIVING CLUB AT UCSB", false);
+    tableVersionService.changed(UCSBOrganization.class);
+
+    assertEquals(List.of(krc, sky), ucsbOrganizationSuggestService.suggest("", 10));
+    verify(ucsbOrganizationRepository, times(2)).findAll();
+  }
+}
@@ -0,0 +1,125 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.UserFilter;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+@JdbcTest
+@ActiveProfiles("test")
+@Import({ UserListService.class, JacksonAutoConfiguration.class })
+public class UserListServiceTests {
+
+  @Autowired
+  UserListService userListService;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  private final User admin = User.builder().id(1L).email("phtcon@ucsb.edu").googleSub("sub-1")
+      .fullName("Phill Conrad").emailVerified(true).hostedDomain("ucsb.edu").admin(true)
+      .lastLogin(LocalDateTime.parse("2024-10-20T09:00:00")).build();
+
+  private final User student = User.builder().id(2L).email("cgaucho@ucsb.edu").googleSub("sub-2")
+      .fullName("Chris Gaucho").emailVerified(true).hostedDomain("ucsb.edu").admin(false)
+      .lastLogin(LocalDateTime.parse("2024-10-01T09:00:00")).build();
+
+  private final User visitor = User.builder().id(3L).email("visitor@gmail.com").googleSub("sub-3")
+      .fullName("Visitor").emailVerified(true).admin(false).build();
+
+  @BeforeEach
+  public void insertUsers() {
+    for (User u : new User[] { visitor, admin, student }) {
+      jdbcTemplate.update(
+          "INSERT INTO users (id, email, google_sub, full_name, email_verified, hosted_domain, admin, last_login) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+          u.getId(), u.getEmail(), u.getGoogleSub(), u.getFullName(), u.getEmailVerified(), u.getHostedDomain(),
+          u.getAdmin(), u.getLastLogin());
+    }
+  }
+
+  private String write(UserFilter filter, long after, Integer limit) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    userListService.write(filter, after, limit, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void without_filters_every_user_is_written_as_a_json_array_in_id_order() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long count = userListService.write(UserFilter.builder().build(), 0, null, out);
+
+    assertEquals(3L, count);
+    assertEquals(mapper.writeValueAsString(List.of(admin, student, visitor)), out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void users_are_filtered_by_admin_and_domain() throws Exception {
+    assertEquals(mapper.writeValueAsString(List.of(admin)), write(UserFilter.builder().admin(true).build(), 0, null));
+    assertEquals(mapper.writeValueAsString(List.of(student)),
+        write(UserFilter.builder().admin(false).hostedDomain("ucsb.edu").build(), 0, null));
+  }
+
+  @Test
+  public void users_are_filtered_by_last_login() throws Exception {
+    UserFilter october = UserFilter.builder().lastLoginFrom(LocalDateTime.parse("2024-10-01T09:00:00"))
+        .lastLoginTo(LocalDateTime.parse("2024-10-20T09:00:00")).build();
+
+    assertEquals(mapper.writeValueAsString(List.of(student)), write(october, 0, null));
+  }
+
+  @Test
+  public void users_are_paged_by_id() throws Exception {
+    UserFilter all = UserFilter.builder().build();
+
+    assertEquals(mapper.writeValueAsString(List.of(admin, student)), write(all, 0, 2));
+    assertEquals(mapper.writeValueAsString(List.of(visitor)), write(all, 2, 2));
+    assertEquals("[]", write(all, 3, 2));
+  }
+
+  @Test
+  public void write_rethrows_io_errors_from_the_output_stream() throws Exception {
+    // enough users to fill the generator's buffer, so that a write fails mid-query
+    for (long id = 4; id < 100; id++) {
+      jdbcTemplate.update("INSERT INTO users (id, email, email_verified, admin) VALUES (?, ?, true, false)",
+          id, "user%d@ucsb.edu".formatted(id));
+    }
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("client went away");
+      }
+    };
+
+    IOException e = assertThrows(IOException.class,
+        () -> userListService.write(UserFilter.builder().build(), 0, null, broken));
+    assertEquals("client went away", e.getMessage());
+  }
+}
@@ -0,0 +1,41 @@
+// a stand-in for a bundle of the frontend build, served by StaticResourceConfig
+export function component0(props) { return "component 0: " + JSON.stringify(props); }
+export function component1(props) { return "component 1: " + JSON.stringify(props); }
+export function component2(props) { return "component 2: " + JSON.stringify(props); }
+export function component3(props) { return "component 3: " + JSON.stringify(props); }
+export function component4(props) { return "component 4: " + JSON.stringify(props); }
+export function component5(props) { return "component 5: " + JSON.stringify(props); }
+export function component6(props) { return "component 6: " + JSON.stringify(props); }
+export function component7(props) { return "component 7: " + JSON.stringify(props); }
+export function component8(props) { return "component 8: " + JSON.stringify(props); }
+export function component9(props) { return "component 9: " + JSON.stringify(props); }
+export function component10(props) { return "component 10: " + JSON.stringify(props); }
+export function component11(props) { return "component 11: " + JSON.stringify(props); }
+export function component12(props) { return "component 12: " + JSON.stringify(props); }
+export function component13(props) { return "component 13: " + JSON.stringify(props); }
+export function component14(props) { return "component 14: " + JSON.stringify(props); }
+export function component15(props) { return "component 15: " + JSON.stringify(props); }
+export function component16(props) { return "component 16: " + JSON.stringify(props); }
+export function component17(props) { return "component 17: " + JSON.stringify(props); }
+export function component18(props) { return "component 18: " + JSON.stringify(props); }
+export function component19(props) { return "component 19: " + JSON.stringify(props); }
+export function component20(props) { return "component 20: " + JSON.stringify(props); }
+export function component21(props) { return "component 21: " + JSON.stringify(props); }
+export function component22(props) { return "component 22: " + JSON.stringify(props); }
+export function component23(props) { return "component 23: " + JSON.stringify(props); }
+export function component24(props) { return "component 24: " + JSON.stringify(props); }
+export function component25(props) { return "component 25: " + JSON.stringify(props); }
+export function component26(props) { return "component 26: " + JSON.stringify(props); }
+export function component27(props) { return "component 27: " + JSON.stringify(props); }
+export function component28(props) { return "component 28: " + JSON.stringify(props); }
+export function component29(props) { return "component 29: " + JSON.stringify(props); }
+export function component30(props) { return "component 30: " + JSON.stringify(props); }
+export function component31(props) { return "component 31: " + JSON.stringify(props); }
+export function component32(props) { return "component 32: " + JSON.stringify(props); }
+export function component33(props) { return "component 33: " + JSON.stringify(props); }
+export function component34(props) { return "component 34: " + JSON.stringify(props); }
+export function component35(props) { return "component 35: " + JSON.stringify(props); }
+export function component36(props) { return "component 36: " + JSON.stringify(props); }
+export function component37(props) { return "component 37: " + JSON.stringify(props); }
+export function component38(props) { return "component 38: " + JSON.stringify(props); }
+export function component39(props) { return "component 39: " + JSON.stringify(props); }